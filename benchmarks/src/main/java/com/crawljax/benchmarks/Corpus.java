@@ -0,0 +1,42 @@
+package com.crawljax.benchmarks;
+
+import com.google.common.io.Resources;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import javax.imageio.ImageIO;
+
+/**
+ * The captured DOMs and screenshots the benchmarks run on. For every size there are two states of
+ * the same application, so the comparators see realistic differences. The sizes are
+ * <code>small</code>, <code>medium</code> and <code>large</code>.
+ */
+public final class Corpus {
+
+    private Corpus() {}
+
+    /**
+     * @param size  the size of the state.
+     * @param index the first or second state of the given size.
+     * @return the captured DOM of the state.
+     * @throws IOException if the corpus cannot be read.
+     */
+    public static String dom(String size, int index) throws IOException {
+        return Resources.toString(resource("dom", size, index, "html"), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param size  the size of the state.
+     * @param index the first or second state of the given size.
+     * @return the screenshot of the state.
+     * @throws IOException if the corpus cannot be read.
+     */
+    public static BufferedImage screenshot(String size, int index) throws IOException {
+        return ImageIO.read(resource("screenshots", size, index, "png"));
+    }
+
+    private static URL resource(String kind, String size, int index, String extension) {
+        return Resources.getResource(Corpus.class, "/corpus/" + kind + "/" + size + "-" + index + "." + extension);
+    }
+}
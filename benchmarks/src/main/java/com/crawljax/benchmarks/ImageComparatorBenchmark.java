@@ -0,0 +1,62 @@
+package com.crawljax.benchmarks;
+
+import com.crawljax.stateabstractions.visual.OpenCVLoad;
+import com.crawljax.stateabstractions.visual.PDiffComparator;
+import com.crawljax.stateabstractions.visual.SSIMComparator;
+import com.crawljax.stateabstractions.visual.imagehashes.DHash;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The screenshot comparisons that work on the full images: SSIM, perceptual differencing and DHash.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImageComparatorBenchmark {
+
+    @Param({"small", "medium", "large"})
+    public String size;
+
+    private BufferedImage screenshot1;
+    private BufferedImage screenshot2;
+    private DHash dHash;
+
+    @Setup
+    public void load() throws IOException {
+        OpenCVLoad.load();
+        screenshot1 = Corpus.screenshot(size, 1);
+        screenshot2 = Corpus.screenshot(size, 2);
+        dHash = new DHash();
+    }
+
+    @Benchmark
+    public double ssim() throws IOException {
+        return SSIMComparator.computeDistance(screenshot1, screenshot2);
+    }
+
+    @Benchmark
+    public double pDiff() {
+        return PDiffComparator.computeDistance(screenshot1, screenshot2);
+    }
+
+    @Benchmark
+    public boolean dHash() throws IOException {
+        return dHash.imagesPerceptuallySimilar(screenshot1, screenshot2);
+    }
+}
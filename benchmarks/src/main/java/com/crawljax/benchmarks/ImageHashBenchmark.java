@@ -0,0 +1,87 @@
+package com.crawljax.benchmarks;
+
+import com.crawljax.stateabstractions.visual.imagehashes.AverageImageHash;
+import com.crawljax.stateabstractions.visual.imagehashes.BlockMeanImageHash;
+import com.crawljax.stateabstractions.visual.imagehashes.ColorMomentImageHash;
+import com.crawljax.stateabstractions.visual.imagehashes.MarrHildrethImageHash;
+import com.crawljax.stateabstractions.visual.imagehashes.PerceptualImageHash;
+import com.crawljax.stateabstractions.visual.imagehashes.RadialVarianceImageHash;
+import com.crawljax.stateabstractions.visual.imagehashes.VisHash;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hashing a screenshot and comparing two hashes with the image hashes in
+ * {@link com.crawljax.stateabstractions.visual.imagehashes}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImageHashBenchmark {
+
+    private static final double THRESHOLD = 0.0;
+
+    @Param({"small", "medium", "large"})
+    public String size;
+
+    @Param({"average", "blockMean", "colorMoment", "marrHildreth", "perceptual", "radialVariance"})
+    public String hash;
+
+    private VisHash visHash;
+    private BufferedImage screenshot;
+    private Mat hash1;
+    private Mat hash2;
+
+    @Setup
+    public void load() throws IOException {
+        visHash = newHash(hash);
+        screenshot = Corpus.screenshot(size, 1);
+        hash1 = visHash.getHash(screenshot);
+        hash2 = visHash.getHash(Corpus.screenshot(size, 2));
+    }
+
+    private static VisHash newHash(String name) {
+        switch (name) {
+            case "average":
+                return new AverageImageHash(THRESHOLD);
+            case "blockMean":
+                return new BlockMeanImageHash(THRESHOLD);
+            case "colorMoment":
+                return new ColorMomentImageHash(THRESHOLD);
+            case "marrHildreth":
+                return new MarrHildrethImageHash(THRESHOLD);
+            case "perceptual":
+                return new PerceptualImageHash(THRESHOLD);
+            case "radialVariance":
+                return new RadialVarianceImageHash(THRESHOLD);
+            default:
+                throw new IllegalArgumentException("Unknown image hash " + name);
+        }
+    }
+
+    @Benchmark
+    public Mat computeHash() {
+        return visHash.getHash(screenshot);
+    }
+
+    @Benchmark
+    public double compareHashes() {
+        return visHash.compare(hash1, hash2);
+    }
+}
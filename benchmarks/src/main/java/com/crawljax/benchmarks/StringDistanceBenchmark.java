@@ -0,0 +1,75 @@
+package com.crawljax.benchmarks;
+
+import com.crawljax.oraclecomparator.comparators.EditDistanceComparator;
+import com.crawljax.stateabstractions.dom.DOMConfiguration;
+import com.crawljax.stateabstractions.dom.LevenshteinStateVertexImpl;
+import com.crawljax.stateabstractions.dom.TLSHStateVertexImpl;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The DOM string comparisons of the {@link LevenshteinStateVertexImpl} and the
+ * {@link TLSHStateVertexImpl}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StringDistanceBenchmark {
+
+    private static final double THRESHOLD = 0.95;
+
+    @Param({"small", "medium", "large"})
+    public String size;
+
+    private LevenshteinStateVertexImpl levenshtein1;
+    private LevenshteinStateVertexImpl levenshtein2;
+    private TLSHStateVertexImpl tlsh1;
+    private TLSHStateVertexImpl tlsh2;
+
+    @Setup
+    public void load() throws IOException {
+        String dom1 = Corpus.dom(size, 1);
+        String dom2 = Corpus.dom(size, 2);
+        EditDistanceComparator comparator = new EditDistanceComparator(THRESHOLD);
+        levenshtein1 = new LevenshteinStateVertexImpl(1, "", "state1", dom1, dom1, comparator);
+        levenshtein2 = new LevenshteinStateVertexImpl(2, "", "state2", dom2, dom2, comparator);
+        tlsh1 = new TLSHStateVertexImpl(
+                1, "", "state1", dom1, dom1, THRESHOLD, DOMConfiguration.Mode.ORIGINAL_DOM, comparator);
+        tlsh2 = new TLSHStateVertexImpl(
+                2, "", "state2", dom2, dom2, THRESHOLD, DOMConfiguration.Mode.ORIGINAL_DOM, comparator);
+    }
+
+    @Benchmark
+    public boolean levenshteinEquals() {
+        return levenshtein1.equals(levenshtein2);
+    }
+
+    @Benchmark
+    public double levenshteinDistance() {
+        return levenshtein1.getDist(levenshtein2);
+    }
+
+    @Benchmark
+    public boolean tlshEquals() {
+        return tlsh1.equals(tlsh2);
+    }
+
+    @Benchmark
+    public double tlshDistance() {
+        return tlsh1.getDist(tlsh2);
+    }
+}
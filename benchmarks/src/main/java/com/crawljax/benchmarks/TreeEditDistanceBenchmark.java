@@ -0,0 +1,96 @@
+package com.crawljax.benchmarks;
+
+import com.crawljax.stateabstractions.dom.RTED.RTEDUtils;
+import com.crawljax.stateabstractions.dom.TreeSignature;
+import com.crawljax.stateabstractions.dom.apted.costmodel.StringUnitCostModel;
+import com.crawljax.stateabstractions.dom.apted.distance.APTED;
+import com.crawljax.stateabstractions.dom.apted.node.NodeIndexer;
+import com.crawljax.stateabstractions.dom.apted.node.StringNodeData;
+import com.crawljax.stateabstractions.dom.apted.util.AptedUtils;
+import com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl;
+import com.crawljax.util.DomUtils;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * The tree edit distances behind the {@link HybridStateVertexImpl} and the
+ * {@link com.crawljax.stateabstractions.dom.RTEDStateVertexImpl}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TreeEditDistanceBenchmark {
+
+    @Param({"small", "medium", "large"})
+    public String size;
+
+    private String dom1;
+    private String dom2;
+    private Document document1;
+    private Document document2;
+    private NodeIndexer<StringNodeData, StringUnitCostModel> indexedTree1;
+    private NodeIndexer<StringNodeData, StringUnitCostModel> indexedTree2;
+    private TreeSignature signature1;
+    private TreeSignature signature2;
+
+    @Setup
+    public void load() throws IOException {
+        dom1 = Corpus.dom(size, 1);
+        dom2 = Corpus.dom(size, 2);
+        document1 = DomUtils.asDocument(dom1);
+        document2 = DomUtils.asDocument(dom2);
+        indexedTree1 = AptedUtils.getIndexedTree(document1, false);
+        indexedTree2 = AptedUtils.getIndexedTree(document2, false);
+        signature1 = TreeSignature.of(indexedTree1);
+        signature2 = TreeSignature.of(indexedTree2);
+    }
+
+    /**
+     * Builds both trees and computes the distance, like every comparison did before the indexed trees
+     * were cached.
+     */
+    @Benchmark
+    public double hybridComputeDistance() {
+        return HybridStateVertexImpl.computeDistance(document1, document2, false);
+    }
+
+    /**
+     * Computes the distance between cached indexed trees, like {@link HybridStateVertexImpl#equals}.
+     */
+    @Benchmark
+    public double hybridIndexedTrees() {
+        return new APTED<StringUnitCostModel, StringNodeData>(new StringUnitCostModel())
+                .computeEditDistance(indexedTree1, indexedTree2);
+    }
+
+    @Benchmark
+    public double rtedRobustTreeEditDistance() {
+        return RTEDUtils.getRobustTreeEditDistance(dom1, dom2);
+    }
+
+    /**
+     * The lower bounds the {@link com.crawljax.stateabstractions.dom.TreeDistancePrefilter} checks
+     * before computing a tree edit distance.
+     */
+    @Benchmark
+    public int treeSignatureLowerBounds() {
+        return Math.max(
+                signature1.sizeLowerBound(signature2),
+                Math.max(signature1.labelLowerBound(signature2), signature1.degreeLowerBound(signature2)));
+    }
+}
@@ -0,0 +1,61 @@
+package com.crawljax.benchmarks;
+
+import com.crawljax.util.DomUtils;
+import com.crawljax.util.XPathHelper;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+/**
+ * Evaluating the kind of XPath expressions used by the candidate extraction and the conditions,
+ * with the compiled expression cache of {@link XPathHelper} and with a new compilation every time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XPathBenchmark {
+
+    @Param({"small", "medium", "large"})
+    public String size;
+
+    @Param({"//*[@evlistval]", "//A[@href]", "/HTML[1]/BODY[1]//DIV[@class]"})
+    public String expression;
+
+    private Document document;
+
+    @Setup
+    public void load() throws IOException {
+        document = DomUtils.asDocument(Corpus.dom(size, 1));
+    }
+
+    @Benchmark
+    public NodeList cachedExpression() throws XPathExpressionException {
+        return XPathHelper.evaluateXpathExpression(document, expression);
+    }
+
+    @Benchmark
+    public NodeList compiledEveryTime() throws XPathExpressionException {
+        return (NodeList) XPathFactory.newInstance()
+                .newXPath()
+                .compile(expression)
+                .evaluate(document, XPathConstants.NODESET);
+    }
+}
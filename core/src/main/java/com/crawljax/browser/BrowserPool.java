@@ -0,0 +1,213 @@
+package com.crawljax.browser;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.crawljax.core.configuration.BrowserOptions;
+import com.crawljax.core.configuration.CrawljaxConfiguration;
+import com.crawljax.core.plugin.Plugins;
+import com.crawljax.metrics.MetricsModule;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.Closeable;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the browsers of the crawl healthy. Between two crawl tasks a browser is replaced when it
+ * fired too many events, when its JavaScript heap grew too large or when it does not answer a
+ * script in time. The replacement is taken from a set of spare drivers that are started in the
+ * background, and it is swapped into the existing {@link WebDriverBackedEmbeddedBrowser}, so the
+ * crawler keeps its browser and continues from the index. The
+ * {@link com.crawljax.core.plugin.OnBrowserCreatedPlugin}s run again for the new driver.
+ * <p>
+ * The pool is only active for the default {@link WebDriverBrowserBuilder} and when
+ * {@link BrowserOptions#isPooled()}.
+ */
+@Singleton
+public class BrowserPool implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BrowserPool.class);
+
+    /**
+     * Answers with the size of the JavaScript heap, or <code>0</code> when the browser does not
+     * report it.
+     */
+    private static final String PING_SCRIPT =
+            "return window.performance && performance.memory ? performance.memory.usedJSHeapSize : 0;";
+
+    private final boolean enabled;
+    private final WebDriverBrowserBuilder builder;
+    private final Plugins plugins;
+    private final int spareBrowsers;
+    private final int recycleAfterEvents;
+    private final long maxHeapSize;
+    private final long maxPingLatency;
+
+    private final BlockingQueue<WebDriver> spares = new LinkedBlockingQueue<>();
+    private final ExecutorService warmer;
+    private final ExecutorService pinger;
+    private final MetricRegistry registry;
+    private final Timer pingLatency;
+
+    private volatile boolean closed;
+
+    @Inject
+    public BrowserPool(
+            CrawljaxConfiguration config, WebDriverBrowserBuilder builder, Plugins plugins, MetricRegistry registry) {
+        BrowserOptions options = config.getBrowserConfig().getBrowserOptions();
+        this.enabled = config.getBrowserConfig().isDefaultBuilder() && options.isPooled();
+        this.builder = builder;
+        this.plugins = plugins;
+        this.spareBrowsers = options.getSpareBrowsers();
+        this.recycleAfterEvents = options.getRecycleAfterEvents();
+        this.maxHeapSize = options.getMaxBrowserHeapSize();
+        this.maxPingLatency = options.getMaxPingLatency();
+        this.registry = registry;
+        this.pingLatency = registry.timer(MetricRegistry.name(MetricsModule.CRAWL_PREFIX, "browsers", "ping_latency"));
+        Gauge<Integer> spareCount = spares::size;
+        registry.gauge(MetricRegistry.name(MetricsModule.CRAWL_PREFIX, "browsers", "spares"), () -> spareCount);
+        this.warmer = Executors.newSingleThreadExecutor(daemon("browser-warmer-%d"));
+        this.pinger = Executors.newCachedThreadPool(daemon("browser-pinger-%d"));
+        if (enabled) {
+            for (int i = 0; i < spareBrowsers; i++) {
+                warmUp();
+            }
+        }
+    }
+
+    private static ThreadFactory daemon(String nameFormat) {
+        return new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build();
+    }
+
+    /**
+     * Replaces the driver of the browser when it should be recycled. Must be called by the thread
+     * that owns the browser, before the browser goes back to the index.
+     *
+     * @param browser the browser of a crawler.
+     * @return whether the driver was replaced.
+     */
+    public boolean maintain(EmbeddedBrowser browser) {
+        if (!enabled || closed || !(browser instanceof WebDriverBackedEmbeddedBrowser)) {
+            return false;
+        }
+        WebDriverBackedEmbeddedBrowser webDriverBrowser = (WebDriverBackedEmbeddedBrowser) browser;
+        String reason = recycleReason(webDriverBrowser);
+        if (reason == null) {
+            return false;
+        }
+        recycle(webDriverBrowser, reason);
+        return true;
+    }
+
+    private String recycleReason(WebDriverBackedEmbeddedBrowser browser) {
+        if (recycleAfterEvents > 0 && browser.getEventsFired() >= recycleAfterEvents) {
+            return "events";
+        }
+        if (maxPingLatency <= 0 && maxHeapSize <= 0) {
+            return null;
+        }
+        WebDriver driver = browser.getWebDriver();
+        Future<Object> ping = pinger.submit(() -> ((JavascriptExecutor) driver).executeScript(PING_SCRIPT));
+        Object heapSize;
+        try (Timer.Context ignored = pingLatency.time()) {
+            heapSize = maxPingLatency > 0 ? ping.get(maxPingLatency, TimeUnit.MILLISECONDS) : ping.get();
+        } catch (TimeoutException e) {
+            ping.cancel(true);
+            LOG.info("The browser did not answer within {} ms", maxPingLatency);
+            return "unhealthy";
+        } catch (ExecutionException e) {
+            LOG.info("The browser did not answer: {}", e.getCause().getMessage());
+            return "unhealthy";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (maxHeapSize > 0 && heapSize instanceof Number && ((Number) heapSize).longValue() > maxHeapSize) {
+            LOG.info("The JavaScript heap of the browser grew to {} bytes", heapSize);
+            return "memory";
+        }
+        return null;
+    }
+
+    private void recycle(WebDriverBackedEmbeddedBrowser browser, String reason) {
+        LOG.info("Recycling the browser after {} events, reason: {}", browser.getEventsFired(), reason);
+        WebDriver fresh = spares.poll();
+        if (fresh == null) {
+            LOG.debug("No spare browser is ready, starting one");
+            fresh = builder.newDriver();
+        }
+        WebDriver previous = browser.replaceDriver(fresh);
+        pinger.submit(() -> quit(previous));
+        plugins.runOnBrowserCreatedPlugins(browser);
+        registry.counter(MetricRegistry.name(MetricsModule.CRAWL_PREFIX, "browsers", "recycled"))
+                .inc();
+        registry.counter(MetricRegistry.name(MetricsModule.CRAWL_PREFIX, "browsers", "recycled", reason))
+                .inc();
+        if (spareBrowsers > 0) {
+            warmUp();
+        }
+    }
+
+    private void warmUp() {
+        warmer.submit(() -> {
+            if (closed) {
+                return;
+            }
+            try {
+                spares.add(builder.newDriver());
+            } catch (RuntimeException e) {
+                LOG.warn("Could not start a spare browser: {}", e.getMessage());
+                LOG.debug("Starting a spare browser failed", e);
+            }
+            if (closed) {
+                quitSpares();
+            }
+        });
+    }
+
+    private static void quit(WebDriver driver) {
+        try {
+            driver.quit();
+        } catch (RuntimeException e) {
+            LOG.debug("Could not quit a recycled browser: {}", e.getMessage());
+        }
+    }
+
+    private void quitSpares() {
+        WebDriver spare;
+        while ((spare = spares.poll()) != null) {
+            quit(spare);
+        }
+    }
+
+    /**
+     * @return the number of spare browsers that are ready.
+     */
+    public int getSpareCount() {
+        return spares.size();
+    }
+
+    /**
+     * Stops starting spare browsers and quits the spares that were started.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        warmer.shutdownNow();
+        quitSpares();
+        pinger.shutdown();
+    }
+}
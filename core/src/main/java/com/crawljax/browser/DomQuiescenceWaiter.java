@@ -0,0 +1,178 @@
+package com.crawljax.browser;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.crawljax.metrics.MetricsModule;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Waits until a page has settled after an event or a reload, instead of always sleeping the
+ * configured wait. A page is settled when no DOM mutations were observed during the quiet period
+ * and no fetch, XMLHttpRequest or animation frame is pending. The configured wait is the upper
+ * bound.
+ * <p>
+ * The instrumentation is injected in the page the first time it is polled, so a page that has just
+ * been loaded always waits at least one quiet period. Preparing for an event restarts the quiet
+ * period, so the effects the event schedules with a short timeout are waited for as well.
+ * <p>
+ * Animation frames requested from animation frame callbacks more than {@value #MAX_FRAME_CHAIN}
+ * times in a row are an animation loop. Those frames are not waited for, and the mutations they make
+ * are not counted as activity, otherwise an animated page would always wait the maximum.
+ */
+public class DomQuiescenceWaiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DomQuiescenceWaiter.class);
+
+    private static final long POLL_INTERVAL = 10;
+
+    static final int MAX_FRAME_CHAIN = 3;
+
+    /**
+     * Installs the observer and the counters if they are not in the document yet, restarts the quiet
+     * period when <code>arguments[1]</code> is set, and returns whether the page is quiescent.
+     */
+    private static final String QUIESCENCE_SCRIPT = "var quietPeriod = arguments[0];"
+            + "var now = Date.now();"
+            + "var s = window.__crawljaxQuiescence;"
+            + "if (!s) {"
+            + "  s = window.__crawljaxQuiescence = {lastActivity: now, requests: 0, frames: 0, depth: -1};"
+            + "  var touch = function() { s.lastActivity = Date.now(); };"
+            + "  var finished = function() { s.requests--; touch(); };"
+            + "  var observer = new MutationObserver(touch);"
+            + "  observer.observe(document,"
+            + "    {childList: true, subtree: true, attributes: true, characterData: true});"
+            + "  if (window.fetch) {"
+            + "    var fetch = window.fetch;"
+            + "    window.fetch = function() {"
+            + "      s.requests++;"
+            + "      try {"
+            + "        var result = fetch.apply(this, arguments);"
+            + "        result.then(finished, finished);"
+            + "        return result;"
+            + "      } catch (e) { finished(); throw e; }"
+            + "    };"
+            + "  }"
+            + "  var send = XMLHttpRequest.prototype.send;"
+            + "  XMLHttpRequest.prototype.send = function() {"
+            + "    s.requests++;"
+            + "    this.addEventListener('loadend', finished);"
+            + "    try { return send.apply(this, arguments); }"
+            + "    catch (e) { this.removeEventListener('loadend', finished); finished(); throw e; }"
+            + "  };"
+            + "  if (window.requestAnimationFrame) {"
+            + "    var pending = {};"
+            + "    var done = function(id) { if (pending[id]) { delete pending[id]; s.frames--; touch(); } };"
+            + "    var request = window.requestAnimationFrame;"
+            + "    var cancel = window.cancelAnimationFrame;"
+            + "    window.requestAnimationFrame = function(callback) {"
+            + "      var depth = s.depth + 1;"
+            + "      var counted = depth < " + MAX_FRAME_CHAIN + ";"
+            + "      var id = request.call(window, function(time) {"
+            + "        var outer = s.depth;"
+            + "        s.depth = depth;"
+            + "        if (counted) { done(id); }"
+            + "        try { callback(time); } finally {"
+            + "          s.depth = outer;"
+            + "          if (!counted) { observer.takeRecords(); }"
+            + "        }"
+            + "      });"
+            + "      if (counted) { pending[id] = true; s.frames++; }"
+            + "      return id;"
+            + "    };"
+            + "    window.cancelAnimationFrame = function(id) { done(id); return cancel.call(window, id); };"
+            + "  }"
+            + "}"
+            + "if (arguments[1]) { s.lastActivity = now; }"
+            + "return s.requests <= 0 && s.frames <= 0 && now - s.lastActivity >= quietPeriod;";
+
+    private final long quietPeriod;
+    private final Histogram eventSettleTime;
+    private final Histogram reloadSettleTime;
+
+    /**
+     * @param quietPeriod the time in milliseconds without any activity after which the page is
+     *                    considered quiescent.
+     * @param registry    the registry for the settle time histograms.
+     */
+    public DomQuiescenceWaiter(long quietPeriod, MetricRegistry registry) {
+        this.quietPeriod = quietPeriod;
+        this.eventSettleTime = registry.histogram(
+                MetricRegistry.name(MetricsModule.CRAWL_PREFIX, "browser", "event_settle_time"));
+        this.reloadSettleTime = registry.histogram(
+                MetricRegistry.name(MetricsModule.CRAWL_PREFIX, "browser", "reload_settle_time"));
+    }
+
+    /**
+     * Injects the instrumentation before an event is fired, so the mutations caused by the event
+     * are observed, and restarts the quiet period, so a page that was quiet before the event is not
+     * considered settled before the event had a chance to change it.
+     *
+     * @param driver the browser the event will be fired in.
+     */
+    public void prepare(WebDriver driver) {
+        try {
+            isQuiescent(driver, true);
+        } catch (WebDriverException e) {
+            LOGGER.debug("Could not prepare the page for waiting: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Waits until the page has settled after an event.
+     *
+     * @param driver  the browser the event was fired in.
+     * @param maxWait the maximum time to wait in milliseconds.
+     * @return the time waited in milliseconds.
+     * @throws InterruptedException when interrupted during the wait.
+     */
+    public long waitAfterEvent(WebDriver driver, long maxWait) throws InterruptedException {
+        long waited = waitForQuiescence(driver, maxWait);
+        eventSettleTime.update(waited);
+        return waited;
+    }
+
+    /**
+     * Waits until the page has settled after the URL has been loaded.
+     *
+     * @param driver  the browser that loaded the URL.
+     * @param maxWait the maximum time to wait in milliseconds.
+     * @return the time waited in milliseconds.
+     * @throws InterruptedException when interrupted during the wait.
+     */
+    public long waitAfterReload(WebDriver driver, long maxWait) throws InterruptedException {
+        long waited = waitForQuiescence(driver, maxWait);
+        reloadSettleTime.update(waited);
+        return waited;
+    }
+
+    private long waitForQuiescence(WebDriver driver, long maxWait) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        long deadline = start + maxWait;
+        while (true) {
+            try {
+                if (isQuiescent(driver, false)) {
+                    break;
+                }
+            } catch (WebDriverException e) {
+                /* The page may be unloading or showing an alert; keep waiting up to the deadline. */
+                LOGGER.trace("Could not check quiescence: {}", e.getMessage());
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                LOGGER.debug("Page did not settle within {} ms", maxWait);
+                break;
+            }
+            Thread.sleep(Math.min(POLL_INTERVAL, remaining));
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    private boolean isQuiescent(WebDriver driver, boolean restart) {
+        Object quiescent = ((JavascriptExecutor) driver).executeScript(QUIESCENCE_SCRIPT, quietPeriod, restart);
+        return Boolean.TRUE.equals(quiescent);
+    }
+}
@@ -0,0 +1,64 @@
+package com.crawljax.browser;
+
+import com.google.common.base.MoreObjects;
+import org.openqa.selenium.Rectangle;
+
+/**
+ * The bounding box of an element in page coordinates, as returned by
+ * {@link EmbeddedBrowser#getBoundingBoxes(java.util.List)}. When the element could not be resolved
+ * there is no rectangle, only the reason.
+ */
+public final class ElementBoundingBox {
+
+    private final String xpath;
+    private final Rectangle rectangle;
+    private final String error;
+
+    private ElementBoundingBox(String xpath, Rectangle rectangle, String error) {
+        this.xpath = xpath;
+        this.rectangle = rectangle;
+        this.error = error;
+    }
+
+    public static ElementBoundingBox found(String xpath, Rectangle rectangle) {
+        return new ElementBoundingBox(xpath, rectangle, null);
+    }
+
+    public static ElementBoundingBox failed(String xpath, String error) {
+        return new ElementBoundingBox(xpath, null, error);
+    }
+
+    public String getXpath() {
+        return xpath;
+    }
+
+    /**
+     * @return whether the element was found and measured.
+     */
+    public boolean isFound() {
+        return rectangle != null;
+    }
+
+    /**
+     * @return the bounding box, or <code>null</code> if the element could not be resolved.
+     */
+    public Rectangle getRectangle() {
+        return rectangle;
+    }
+
+    /**
+     * @return why the element could not be resolved, or <code>null</code> if it was found.
+     */
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("xpath", xpath)
+                .add("rectangle", rectangle)
+                .add("error", error)
+                .toString();
+    }
+}
@@ -5,12 +5,15 @@ import com.crawljax.core.configuration.PreCrawlConfiguration;
 import com.crawljax.core.state.Eventable;
 import com.crawljax.core.state.Identification;
 import com.crawljax.forms.FormInput;
+import com.google.common.collect.ImmutableList;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.net.URI;
+import java.util.List;
 import org.openqa.selenium.ElementNotInteractableException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
+import org.w3c.dom.Document;
 
 /**
  * Browser interface used by Crawljax.
@@ -39,6 +42,16 @@ public interface EmbeddedBrowser {
      */
     String getStrippedDom();
 
+    /**
+     * Hands over the parsed tree of the last {@link #getStrippedDom()}, so it does not have to be
+     * parsed again. The browser drops its reference, the caller may change the tree.
+     *
+     * @param strippedDom a result of {@link #getStrippedDom()}.
+     * @return the tree that <code>strippedDom</code> was serialized from, or <code>null</code> if it
+     * is not the last stripped DOM or was already taken.
+     */
+    Document takeStrippedDocument(String strippedDom);
+
     /**
      * Removes the stripped items from {@link PreCrawlConfiguration#getFilterAttributeNames()}.
      *
@@ -128,6 +141,15 @@ public interface EmbeddedBrowser {
      */
     WebElement getWebElement(Identification identification);
 
+    /**
+     * Resolves the elements and measures them in a single round trip to the browser.
+     *
+     * @param xpaths the XPath expressions of the elements in the top document.
+     * @return the bounding box in page coordinates of every element, in the order of the given
+     * expressions. Elements that could not be resolved have an error instead.
+     */
+    ImmutableList<ElementBoundingBox> getBoundingBoxes(List<String> xpaths);
+
     /**
      * @return The selenium web driver.
      * @author qhanam
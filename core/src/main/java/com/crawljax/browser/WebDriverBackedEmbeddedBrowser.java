@@ -14,6 +14,7 @@ import com.crawljax.forms.InputValue;
 import com.crawljax.forms.RandomInputValueGenerator;
 import com.crawljax.util.DomUtils;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.io.Files;
 import io.github.bonigarcia.wdm.WebDriverManager;
@@ -38,6 +39,8 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.imageio.ImageIO;
@@ -48,6 +51,7 @@ import org.openqa.selenium.Keys;
 import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.NoSuchFrameException;
 import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Rectangle;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.UnhandledAlertException;
 import org.openqa.selenium.WebDriver;
@@ -78,8 +82,53 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
 
     private static final int BROWSER_CLOSE_TIMEOUT_SECS = 20;
 
+    /**
+     * Serializes the document and the documents of all same-origin frames in one round trip. The
+     * frames are identified the same way as {@link DomUtils#getFrameIdentification(Element)}.
+     */
+    private static final String DOM_SNAPSHOT_SCRIPT = "var frames = {};"
+            + "var serialize = function(doc, parent) {"
+            + "  var elements = doc.querySelectorAll('iframe, frame');"
+            + "  for (var i = 0; i < elements.length; i++) {"
+            + "    var name = elements[i].getAttribute('id') || elements[i].getAttribute('name');"
+            + "    if (!name) { continue; }"
+            + "    var id = parent ? parent + '.' + name : name;"
+            + "    var frameDoc = null;"
+            + "    try { frameDoc = elements[i].contentDocument; } catch (e) {}"
+            + "    if (frameDoc && frameDoc.documentElement) {"
+            + "      frames[id] = frameDoc.documentElement.outerHTML;"
+            + "      serialize(frameDoc, id);"
+            + "    }"
+            + "  }"
+            + "};"
+            + "serialize(document, '');"
+            + "return {dom: document.documentElement.outerHTML, frames: frames};";
+
+    /**
+     * Resolves every XPath expression in <code>arguments[0]</code> to the bounding box of the element
+     * in page coordinates, or to the error that occurred.
+     */
+    private static final String BOUNDING_BOXES_SCRIPT = "var xpaths = arguments[0];"
+            + "var boxes = [];"
+            + "for (var i = 0; i < xpaths.length; i++) {"
+            + "  try {"
+            + "    var node = document.evaluate(xpaths[i], document, null,"
+            + "      XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;"
+            + "    if (!node || !node.getBoundingClientRect) {"
+            + "      boxes.push({error: 'No element found'});"
+            + "      continue;"
+            + "    }"
+            + "    var rect = node.getBoundingClientRect();"
+            + "    boxes.push({x: rect.left + window.scrollX, y: rect.top + window.scrollY,"
+            + "      width: rect.width, height: rect.height});"
+            + "  } catch (e) {"
+            + "    boxes.push({error: String(e)});"
+            + "  }"
+            + "}"
+            + "return boxes;";
+
     private final ImmutableSortedSet<String> filterAttributes;
-    private final WebDriver browser;
+    private volatile WebDriver browser;
     private int pixelDensity = -1;
     /**
      * ChromeDeveloperTools are used to fetch event handler information
@@ -88,8 +137,38 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
 
     private long crawlWaitEvent;
     private long crawlWaitReload;
+
+    /**
+     * Waits for the page to settle instead of the fixed waits when set.
+     */
+    private DomQuiescenceWaiter quiescenceWaiter;
     private IgnoreFrameChecker ignoreFrameChecker = new AcceptAllFramesChecker();
 
+    /**
+     * The last snapshot taken by {@link #getStrippedDom()}, until the page is interacted with or a
+     * script is executed.
+     */
+    private DomSnapshot domSnapshot;
+
+    /**
+     * The result of the last {@link #getStrippedDom()} and the tree it was serialized from, until
+     * the tree is taken.
+     */
+    private String strippedDom;
+
+    private Document strippedDocument;
+
+    /**
+     * The number of events fired since the driver was created.
+     */
+    private int eventsFired;
+
+    /**
+     * Guards firing events and replacing the driver. A lock instead of a monitor, so a virtual thread
+     * that waits for the browser while holding it does not pin its carrier thread.
+     */
+    private final Lock driverLock = new ReentrantLock();
+
     /**
      * Constructor without configuration values.
      *
@@ -228,13 +307,13 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
     }
 
     /**
-     * Private used static method for creation of a RemoteWebDriver. Taking care of the default
+     * Static method for creation of a RemoteWebDriver. Taking care of the default
      * Capabilities and using the HttpCommandExecutor.
      *
      * @param hubUrl the url of the hub to use.
      * @return the RemoteWebDriver instance.
      */
-    private static RemoteWebDriver buildRemoteWebDriver(String hubUrl, DesiredCapabilities desiredCapabilities) {
+    static RemoteWebDriver buildRemoteWebDriver(String hubUrl, DesiredCapabilities desiredCapabilities) {
         URL url;
         try {
             url = new URL(hubUrl);
@@ -271,9 +350,14 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
      */
     @Override
     public void goToUrl(URI url) {
+        domSnapshot = null;
         try {
             browser.navigate().to(url.toString());
-            Thread.sleep(this.crawlWaitReload);
+            if (quiescenceWaiter != null) {
+                quiescenceWaiter.waitAfterReload(browser, this.crawlWaitReload);
+            } else {
+                Thread.sleep(this.crawlWaitReload);
+            }
             handlePopups();
         } catch (WebDriverException e) {
             throwIfConnectionException(e);
@@ -306,7 +390,7 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
     }
 
     /**
-     * Fires the event and waits for a specified time.
+     * Fires the event and waits for a specified time, or until the page has settled.
      *
      * @param webElement the element to fire event on.
      * @param eventable  The HTML event type (onclick, onmouseover, ...).
@@ -315,6 +399,9 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
      */
     private boolean fireEventWait(WebElement webElement, Eventable eventable)
             throws ElementNotInteractableException, InterruptedException {
+        if (quiescenceWaiter != null) {
+            quiescenceWaiter.prepare(browser);
+        }
         switch (eventable.getEventType()) {
             case click:
                 try {
@@ -346,7 +433,11 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
                 return false;
         }
 
-        Thread.sleep(this.crawlWaitEvent);
+        if (quiescenceWaiter != null) {
+            quiescenceWaiter.waitAfterEvent(browser, this.crawlWaitEvent);
+        } else {
+            Thread.sleep(this.crawlWaitEvent);
+        }
         return true;
     }
 
@@ -398,8 +489,11 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
 
         try {
             //			String dom = toUniformDOM(DomUtils.getDocumentToString(getDomTreeWithFrames_GoldStandards()));
-            String dom = toUniformDOM(DomUtils.getDocumentToString(getDomTreeWithFrames()));
+            Document document = DomUtils.stripDocument(getDomTreeWithFrames(), filterAttributes);
+            String dom = DomUtils.getDocumentToString(document);
             LOGGER.trace(dom);
+            strippedDom = dom;
+            strippedDocument = document;
             return dom;
         } catch (WebDriverException | CrawljaxException e) {
             LOGGER.warn("Could not get the dom", e);
@@ -407,6 +501,14 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
         }
     }
 
+    @Override
+    public Document takeStrippedDocument(String dom) {
+        Document document = dom != null && dom.equals(strippedDom) ? strippedDocument : null;
+        strippedDom = null;
+        strippedDocument = null;
+        return document;
+    }
+
     @Override
     public String getUnStrippedDom() {
         return browser.getPageSource();
@@ -441,7 +543,7 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
         for (String attribute : this.filterAttributes) {
             String regex = "\\s" + attribute + "=\"[^\"]*\"";
             Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-            Matcher m = p.matcher(html);
+            Matcher m = p.matcher(filteredHtml);
             filteredHtml = m.replaceAll("");
         }
         return filteredHtml;
@@ -449,6 +551,7 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
 
     @Override
     public void goBack() {
+        domSnapshot = null;
         try {
             browser.navigate().back();
         } catch (WebDriverException e) {
@@ -463,6 +566,7 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
      */
     @Override
     public boolean input(Identification identification, String text) {
+        domSnapshot = null;
         try {
             WebElement field = browser.findElement(identification.getWebDriverBy());
             if (field != null) {
@@ -486,8 +590,20 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
      * @throws InterruptedException when interrupted during the wait.
      */
     @Override
-    public synchronized boolean fireEventAndWait(Eventable eventable)
+    public boolean fireEventAndWait(Eventable eventable)
             throws ElementNotInteractableException, NoSuchElementException, InterruptedException {
+        driverLock.lockInterruptibly();
+        try {
+            return fireEventAndWaitLocked(eventable);
+        } finally {
+            driverLock.unlock();
+        }
+    }
+
+    private boolean fireEventAndWaitLocked(Eventable eventable)
+            throws ElementNotInteractableException, NoSuchElementException, InterruptedException {
+        domSnapshot = null;
+        eventsFired++;
         try {
 
             boolean handleChanged = false;
@@ -541,6 +657,7 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
      */
     @Override
     public Object executeJavaScript(String code) throws CrawljaxException {
+        domSnapshot = null;
         try {
             JavascriptExecutor js = (JavascriptExecutor) browser;
             return js.executeScript(code);
@@ -585,6 +702,7 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
 
     @Override
     public void closeOtherWindows() {
+        domSnapshot = null;
         try {
             String current = browser.getWindowHandle();
             for (String handle : browser.getWindowHandles()) {
@@ -608,8 +726,10 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
      */
     private Document getDomTreeWithFrames() throws CrawljaxException {
 
+        domSnapshot = takeDomSnapshot();
         try {
-            Document document = DomUtils.asDocument(browser.getPageSource());
+            String source = domSnapshot != null ? domSnapshot.dom : browser.getPageSource();
+            Document document = DomUtils.asDocument(source);
             appendFrameContent(document.getDocumentElement(), document, "");
             return document;
         } catch (IOException e) {
@@ -617,12 +737,41 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
         }
     }
 
+    /**
+     * @return the document and the same-origin frames as serialized by the browser, or
+     * <code>null</code> if the page could not be serialized by a script.
+     */
+    private DomSnapshot takeDomSnapshot() {
+        try {
+            Object result = ((JavascriptExecutor) browser).executeScript(DOM_SNAPSHOT_SCRIPT);
+            if (!(result instanceof Map)) {
+                return null;
+            }
+            Map<?, ?> snapshot = (Map<?, ?>) result;
+            if (!(snapshot.get("dom") instanceof String)) {
+                return null;
+            }
+            Map<String, String> frames = new HashMap<>();
+            if (snapshot.get("frames") instanceof Map) {
+                for (Map.Entry<?, ?> frame : ((Map<?, ?>) snapshot.get("frames")).entrySet()) {
+                    frames.put(String.valueOf(frame.getKey()), String.valueOf(frame.getValue()));
+                }
+            }
+            return new DomSnapshot((String) snapshot.get("dom"), frames);
+        } catch (WebDriverException e) {
+            throwIfConnectionException(e);
+            LOGGER.debug("Could not take a DOM snapshot, falling back to the page source: {}", e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * @return a Document object containing the contents of iframes as well.
      * @throws CrawljaxException if an exception is thrown.
      */
     private Document getDomTreeWithFrames_GoldStandards() throws CrawljaxException {
 
+        domSnapshot = null;
         try {
             Document document = DomUtils.asDocument(browser.getPageSource());
             if (document.getElementsByTagName("title")
@@ -693,29 +842,32 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
         if (nameId != null && !ignoreFrameChecker.isFrameIgnored(frameIdentification + nameId)) {
             frameIdentification += nameId;
 
-            String handle = browser.getWindowHandle();
+            String toAppend = domSnapshot != null ? domSnapshot.frames.get(frameIdentification) : null;
+            if (toAppend == null) {
+                String handle = browser.getWindowHandle();
+
+                LOGGER.debug("The current H: {}", handle);
+                try {
+                    switchToFrame(frameIdentification);
+                } catch (InvalidSelectorException e) {
+                    LOGGER.info("Invalid frame selector: {}, continuing...", frameIdentification);
+                    LOGGER.debug(e.getMessage(), e);
+                    browser.switchTo().defaultContent();
+                    return;
+                } catch (Exception e) {
+                    LOGGER.error("Cannot switch to frame {}", frameIdentification);
+                    LOGGER.debug(e.getMessage(), e);
+                    browser.switchTo().defaultContent();
+                    return;
+                }
+
+                toAppend = browser.getPageSource();
 
-            LOGGER.debug("The current H: {}", handle);
-            try {
-                switchToFrame(frameIdentification);
-            } catch (InvalidSelectorException e) {
-                LOGGER.info("Invalid frame selector: {}, continuing...", frameIdentification);
-                LOGGER.debug(e.getMessage(), e);
-                browser.switchTo().defaultContent();
-                return;
-            } catch (Exception e) {
-                LOGGER.error("Cannot switch to frame {}", frameIdentification);
-                LOGGER.debug(e.getMessage(), e);
                 browser.switchTo().defaultContent();
-                return;
             }
 
-            String toAppend = browser.getPageSource();
-
             LOGGER.debug("frame dom: {}", toAppend);
 
-            browser.switchTo().defaultContent();
-
             try {
                 Element toAppendElement = DomUtils.asDocument(toAppend).getDocumentElement();
                 Element importedElement = (Element) document.importNode(toAppendElement, true);
@@ -828,8 +980,16 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
         }
     }
 
+    /**
+     * @param iframeIdentification the iframe's name or id.
+     * @return the DOM of the frame from the snapshot taken by {@link #getStrippedDom()} if the page
+     * has not been interacted with since, otherwise the current DOM of the frame.
+     */
     @Override
     public String getFrameDom(String iframeIdentification) {
+        if (domSnapshot != null && domSnapshot.frames.containsKey(iframeIdentification)) {
+            return domSnapshot.frames.get(iframeIdentification);
+        }
         try {
             switchToFrame(iframeIdentification);
         } catch (InvalidSelectorException e) {
@@ -882,11 +1042,88 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
         }
     }
 
+    @Override
+    public ImmutableList<ElementBoundingBox> getBoundingBoxes(List<String> xpaths) {
+        if (xpaths.isEmpty()) {
+            return ImmutableList.of();
+        }
+        Object result;
+        try {
+            result = ((JavascriptExecutor) browser).executeScript(BOUNDING_BOXES_SCRIPT, xpaths);
+        } catch (WebDriverException e) {
+            throwIfConnectionException(e);
+            LOGGER.warn("Could not get the bounding boxes: {}", e.getMessage());
+            result = null;
+        }
+        List<?> boxes = result instanceof List ? (List<?>) result : ImmutableList.of();
+        ImmutableList.Builder<ElementBoundingBox> builder = ImmutableList.builder();
+        for (int i = 0; i < xpaths.size(); i++) {
+            String xpath = xpaths.get(i);
+            Object box = i < boxes.size() ? boxes.get(i) : null;
+            if (!(box instanceof Map)) {
+                builder.add(ElementBoundingBox.failed(xpath, "No result from the browser"));
+            } else if (((Map<?, ?>) box).containsKey("error")) {
+                builder.add(ElementBoundingBox.failed(xpath, String.valueOf(((Map<?, ?>) box).get("error"))));
+            } else {
+                Map<?, ?> rect = (Map<?, ?>) box;
+                builder.add(ElementBoundingBox.found(
+                        xpath,
+                        new Rectangle(
+                                intValue(rect.get("x")),
+                                intValue(rect.get("y")),
+                                intValue(rect.get("height")),
+                                intValue(rect.get("width")))));
+            }
+        }
+        return builder.build();
+    }
+
+    private static int intValue(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    /**
+     * The DOM snapshot is kept, as most callers only read the page. {@link #getFrameDom(String)}
+     * does not see changes made through the driver until the next {@link #getStrippedDom()}, event,
+     * page load or {@link #executeJavaScript(String)}.
+     */
     @Override
     public WebDriver getWebDriver() {
         return browser;
     }
 
+    /**
+     * @return the number of events fired since the current driver was set.
+     */
+    int getEventsFired() {
+        driverLock.lock();
+        try {
+            return eventsFired;
+        } finally {
+            driverLock.unlock();
+        }
+    }
+
+    /**
+     * Continues with another driver. The page of the new driver is not set, the caller must load
+     * one.
+     *
+     * @param driver the new driver.
+     * @return the previous driver, which is not closed.
+     */
+    WebDriver replaceDriver(WebDriver driver) {
+        driverLock.lock();
+        try {
+            WebDriver previous = browser;
+            browser = driver;
+            domSnapshot = null;
+            eventsFired = 0;
+            return previous;
+        } finally {
+            driverLock.unlock();
+        }
+    }
+
     /**
      * @return the period to wait after an event.
      */
@@ -979,7 +1216,7 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
         }
 
         if (this.pixelDensity != -1) {
-            BufferedImage img = Shutterbug.shootPage(getWebDriver(), Capture.FULL_SCROLL, scrollTime, true)
+            BufferedImage img = Shutterbug.shootPage(browser, Capture.FULL_SCROLL, scrollTime, true)
                     .getImage();
             BufferedImage resizedImage = new BufferedImage(
                     img.getWidth() / pixelDensity, img.getHeight() / pixelDensity, BufferedImage.TYPE_INT_RGB);
@@ -1026,6 +1263,7 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
 
     /**
      * @return the WebDriver used as an EmbeddedBrowser.
+     * @see #getWebDriver()
      */
     public WebDriver getBrowser() {
         return browser;
@@ -1070,4 +1308,26 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
     public void setUSE_CDP(boolean USE_CDP) {
         this.USE_CDP = USE_CDP;
     }
+
+    /**
+     * @param quiescenceWaiter waits for the page to settle after events and reloads, bounded by the
+     *                         configured waits. <code>null</code> to always wait the configured time.
+     */
+    public void setQuiescenceWaiter(DomQuiescenceWaiter quiescenceWaiter) {
+        this.quiescenceWaiter = quiescenceWaiter;
+    }
+
+    /**
+     * The serialized document and the serialized same-origin frames by their identification.
+     */
+    private static final class DomSnapshot {
+
+        private final String dom;
+        private final Map<String, String> frames;
+
+        private DomSnapshot(String dom, Map<String, String> frames) {
+            this.dom = dom;
+            this.frames = frames;
+        }
+    }
 }
@@ -1,8 +1,11 @@
 package com.crawljax.browser;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.crawljax.core.configuration.CrawljaxConfiguration;
 import com.crawljax.core.configuration.ProxyConfiguration.ProxyType;
 import com.crawljax.core.plugin.Plugins;
+import com.crawljax.metrics.MetricsModule;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableSortedSet;
 import io.github.bonigarcia.wdm.WebDriverManager;
@@ -10,6 +13,7 @@ import io.github.bonigarcia.wdm.config.DriverManagerType;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import org.openqa.selenium.Dimension;
+import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.edge.EdgeDriver;
@@ -29,11 +33,19 @@ public class WebDriverBrowserBuilder implements Provider<EmbeddedBrowser> {
     private static final boolean SYSTEM_OFFLINE = false;
     private final CrawljaxConfiguration configuration;
     private final Plugins plugins;
+    private final MetricRegistry registry;
+    private final Timer startupTime;
 
-    @Inject
     public WebDriverBrowserBuilder(CrawljaxConfiguration configuration, Plugins plugins) {
+        this(configuration, plugins, new MetricRegistry());
+    }
+
+    @Inject
+    public WebDriverBrowserBuilder(CrawljaxConfiguration configuration, Plugins plugins, MetricRegistry registry) {
         this.configuration = configuration;
         this.plugins = plugins;
+        this.registry = registry;
+        this.startupTime = registry.timer(MetricRegistry.name(MetricsModule.CRAWL_PREFIX, "browsers", "startup_time"));
     }
 
     /**
@@ -54,7 +66,7 @@ public class WebDriverBrowserBuilder implements Provider<EmbeddedBrowser> {
         EmbeddedBrowser browser = null;
         EmbeddedBrowser.BrowserType browserType =
                 configuration.getBrowserConfig().getBrowserType();
-        try {
+        try (Timer.Context ignored = startupTime.time()) {
             switch (browserType) {
                 case CHROME:
                     browser = newChromeBrowser(filterAttributes, crawlWaitReload, crawlWaitEvent, false);
@@ -107,14 +119,58 @@ public class WebDriverBrowserBuilder implements Provider<EmbeddedBrowser> {
                     && USE_CDP) {
                 ((WebDriverBackedEmbeddedBrowser) browser).setUSE_CDP(true);
             }
+
+            long quietPeriod = configuration.getCrawlRules().getDomQuiescencePeriod();
+            if (quietPeriod > 0) {
+                ((WebDriverBackedEmbeddedBrowser) browser)
+                        .setQuiescenceWaiter(new DomQuiescenceWaiter(quietPeriod, registry));
+            }
         }
 
         plugins.runOnBrowserCreatedPlugins(browser);
         return browser;
     }
 
+    /**
+     * Starts a driver of the configured type, without the {@link EmbeddedBrowser} around it. Used
+     * by the {@link BrowserPool} to replace the driver of a browser.
+     *
+     * @return the new driver.
+     */
+    WebDriver newDriver() {
+        EmbeddedBrowser.BrowserType browserType =
+                configuration.getBrowserConfig().getBrowserType();
+        try (Timer.Context ignored = startupTime.time()) {
+            switch (browserType) {
+                case CHROME:
+                    return newChromeDriver(false);
+                case CHROME_HEADLESS:
+                    return newChromeDriver(true);
+                case FIREFOX:
+                    return newFirefoxDriver(false);
+                case FIREFOX_HEADLESS:
+                    return newFirefoxDriver(true);
+                case EDGE:
+                    return newEdgeDriver(false);
+                case EDGE_HEADLESS:
+                    return newEdgeDriver(true);
+                case REMOTE:
+                    return WebDriverBackedEmbeddedBrowser.buildRemoteWebDriver(
+                            configuration.getBrowserConfig().getRemoteHubUrl(),
+                            configuration.getBrowserConfig().getDesiredCapabilities());
+                default:
+                    throw new IllegalStateException("Unrecognized browser type " + browserType);
+            }
+        }
+    }
+
     private EmbeddedBrowser newEdgeBrowser(
             ImmutableSortedSet<String> filterAttributes, long crawlWaitReload, long crawlWaitEvent, boolean headless) {
+        return WebDriverBackedEmbeddedBrowser.withDriver(
+                newEdgeDriver(headless), filterAttributes, crawlWaitReload, crawlWaitEvent);
+    }
+
+    private WebDriver newEdgeDriver(boolean headless) {
         EdgeOptions edgeOptions = new EdgeOptions();
 
         if (headless) {
@@ -122,14 +178,16 @@ public class WebDriverBrowserBuilder implements Provider<EmbeddedBrowser> {
             edgeOptions.addArguments("disable-gpu");
         }
 
-        EdgeDriver driver = (EdgeDriver)
-                WebDriverManager.edgedriver().capabilities(edgeOptions).create();
-
-        return WebDriverBackedEmbeddedBrowser.withDriver(driver, filterAttributes, crawlWaitReload, crawlWaitEvent);
+        return (EdgeDriver) WebDriverManager.edgedriver().capabilities(edgeOptions).create();
     }
 
     private EmbeddedBrowser newFirefoxBrowser(
             ImmutableSortedSet<String> filterAttributes, long crawlWaitReload, long crawlWaitEvent, boolean headless) {
+        return WebDriverBackedEmbeddedBrowser.withDriver(
+                newFirefoxDriver(headless), filterAttributes, crawlWaitReload, crawlWaitEvent);
+    }
+
+    private WebDriver newFirefoxDriver(boolean headless) {
 
         FirefoxProfile profile = null;
 
@@ -180,13 +238,16 @@ public class WebDriverBrowserBuilder implements Provider<EmbeddedBrowser> {
 
         WebDriverManager manager = WebDriverManager.firefoxdriver();
         manager.capabilities(firefoxOptions);
-        FirefoxDriver driver = (FirefoxDriver) manager.create();
-
-        return WebDriverBackedEmbeddedBrowser.withDriver(driver, filterAttributes, crawlWaitReload, crawlWaitEvent);
+        return (FirefoxDriver) manager.create();
     }
 
     private EmbeddedBrowser newChromeBrowser(
             ImmutableSortedSet<String> filterAttributes, long crawlWaitReload, long crawlWaitEvent, boolean headless) {
+        return WebDriverBackedEmbeddedBrowser.withDriver(
+                newChromeDriver(headless), filterAttributes, crawlWaitEvent, crawlWaitReload);
+    }
+
+    private WebDriver newChromeDriver(boolean headless) {
 
         ChromeOptions optionsChrome = new ChromeOptions();
 
@@ -217,7 +278,6 @@ public class WebDriverBrowserBuilder implements Provider<EmbeddedBrowser> {
         Dimension d = new Dimension(1200, 890);
         // Resize current window to the set dimension
         driverChrome.manage().window().setSize(d);
-        return WebDriverBackedEmbeddedBrowser.withDriver(
-                driverChrome, filterAttributes, crawlWaitEvent, crawlWaitReload);
+        return driverChrome;
     }
 }
@@ -71,11 +71,13 @@ public class ClickableDetectorPlugin implements OnNewStatePlugin {
     }
 
     public void findClickables(EmbeddedBrowser browser, StateVertex newState) throws IOException {
-        Document dom = newState.getDocument();
-        if (isPopulated(dom)) {
+        Document shared = newState.getDocument();
+        if (isPopulated(shared)) {
             LOG.info("Already populated dom. No need to run clickable detection again");
             return;
         }
+        // The listeners are added to a copy, which replaces the document of the state.
+        Document dom = (Document) shared.cloneNode(true);
 
         WebDriver driver = browser.getWebDriver();
         String script = CDP_SCRIPT;
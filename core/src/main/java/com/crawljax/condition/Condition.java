@@ -16,4 +16,16 @@ public interface Condition {
      * @return whether the evaluated condition is satisfied
      */
     boolean check(EmbeddedBrowser browser);
+
+    /**
+     * Checks the condition against a snapshot of the state that is shared with other conditions.
+     * Conditions that inspect the DOM or combine other conditions override this method; the default
+     * checks the browser of the context.
+     *
+     * @param context the state to evaluate.
+     * @return whether the evaluated condition is satisfied
+     */
+    default boolean check(ConditionContext context) {
+        return check(context.getBrowser());
+    }
 }
@@ -0,0 +1,84 @@
+package com.crawljax.condition;
+
+import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.util.DomUtils;
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import net.jcip.annotations.NotThreadSafe;
+import org.w3c.dom.Document;
+
+/**
+ * The state of the browser that a set of conditions is evaluated against. The stripped DOM is
+ * retrieved and parsed at most once, however many conditions need it, and a condition that is
+ * checked more than once, for example as the precondition of several invariants, is evaluated
+ * once. Use a new context when the page may have changed.
+ * <p>
+ * {@link CountCondition}s count every check, so they are never memoized.
+ */
+@NotThreadSafe
+public class ConditionContext {
+
+    private final EmbeddedBrowser browser;
+    private final Map<Condition, Boolean> results = new HashMap<>();
+    private String strippedDom;
+    private Document document;
+
+    /**
+     * @param browser the browser in the state to evaluate.
+     */
+    public ConditionContext(EmbeddedBrowser browser) {
+        this.browser = Preconditions.checkNotNull(browser);
+    }
+
+    /**
+     * @param browser     the browser in the state to evaluate.
+     * @param strippedDom the result of {@link EmbeddedBrowser#getStrippedDom()} for that state.
+     */
+    public ConditionContext(EmbeddedBrowser browser, String strippedDom) {
+        this(browser);
+        this.strippedDom = strippedDom;
+    }
+
+    public EmbeddedBrowser getBrowser() {
+        return browser;
+    }
+
+    /**
+     * @return the stripped DOM of the browser, retrieved on the first call.
+     */
+    public String getStrippedDom() {
+        if (strippedDom == null) {
+            strippedDom = browser.getStrippedDom();
+        }
+        return strippedDom;
+    }
+
+    /**
+     * @return the stripped DOM as a document, parsed on the first call. Callers must not change it.
+     * @throws IOException when the DOM cannot be parsed.
+     */
+    public Document getDocument() throws IOException {
+        if (document == null) {
+            document = DomUtils.asDocument(getStrippedDom());
+        }
+        return document;
+    }
+
+    /**
+     * @param condition the condition.
+     * @return the result of {@link Condition#check(ConditionContext)}, evaluated once per context.
+     */
+    public boolean check(Condition condition) {
+        if (condition instanceof CountCondition) {
+            return condition.check(this);
+        }
+        Boolean result = results.get(condition);
+        if (result == null) {
+            result = condition.check(this);
+            results.put(condition, result);
+        }
+        return result;
+    }
+}
@@ -34,13 +34,21 @@ public class ConditionTypeChecker<T extends ConditionType> {
      * @return a list of {@link ConditionType} where {@link Condition#check(EmbeddedBrowser)} failed.
      */
     public ImmutableList<T> getFailedConditions(EmbeddedBrowser browser) {
+        return getFailedConditions(new ConditionContext(browser));
+    }
+
+    /**
+     * @param context The state to check, shared with other checks of the same state.
+     * @return a list of {@link ConditionType} where {@link Condition#check(ConditionContext)} failed.
+     */
+    public ImmutableList<T> getFailedConditions(ConditionContext context) {
         LOGGER.debug("Checking {} ConditionTypes", invariants.size());
         ImmutableList.Builder<T> builder = ImmutableList.builder();
         for (T invariant : invariants) {
-            if (preConditionsHold(browser, invariant)) {
+            if (preConditionsHold(context, invariant)) {
                 Condition invariantCondition = invariant.getCondition();
                 LOGGER.debug("Checking ConditionType: {}", invariant.getDescription());
-                if (!invariantCondition.check(browser)) {
+                if (!context.check(invariantCondition)) {
                     LOGGER.debug("ConditionType '{}' failed", invariant.getDescription());
                     builder.add(invariant);
                 }
@@ -49,9 +57,9 @@ public class ConditionTypeChecker<T extends ConditionType> {
         return builder.build();
     }
 
-    private boolean preConditionsHold(EmbeddedBrowser browser, T invariant) {
+    private boolean preConditionsHold(ConditionContext context, T invariant) {
         for (Condition condition : invariant.getPreConditions()) {
-            if (!condition.check(browser)) {
+            if (!context.check(condition)) {
                 LOGGER.debug(
                         "Precondition failed for ConditionType: {} - PreCondition: {} : ",
                         invariant.getDescription(),
@@ -34,7 +34,12 @@ public class CountCondition implements Condition {
      */
     @Override
     public boolean check(EmbeddedBrowser browser) {
-        if (condition.check(browser)) {
+        return check(new ConditionContext(browser));
+    }
+
+    @Override
+    public boolean check(ConditionContext context) {
+        if (context.check(condition)) {
             count.getAndIncrement();
         }
         return count.get() <= maxCount;
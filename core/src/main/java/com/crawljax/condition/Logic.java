@@ -56,7 +56,12 @@ public final class Logic {
 
         @Override
         public boolean check(EmbeddedBrowser browser) {
-            return !condition.check(browser);
+            return check(new ConditionContext(browser));
+        }
+
+        @Override
+        public boolean check(ConditionContext context) {
+            return !context.check(condition);
         }
 
         @Override
@@ -89,8 +94,13 @@ public final class Logic {
 
         @Override
         public boolean check(EmbeddedBrowser browser) {
+            return check(new ConditionContext(browser));
+        }
+
+        @Override
+        public boolean check(ConditionContext context) {
             for (Condition condition : conditions) {
-                if (!condition.check(browser)) {
+                if (!context.check(condition)) {
                     return false;
                 }
             }
@@ -130,8 +140,13 @@ public final class Logic {
 
         @Override
         public boolean check(EmbeddedBrowser browser) {
+            return check(new ConditionContext(browser));
+        }
+
+        @Override
+        public boolean check(ConditionContext context) {
             for (Condition condition : conditions) {
-                if (condition.check(browser)) {
+                if (context.check(condition)) {
                     return true;
                 }
             }
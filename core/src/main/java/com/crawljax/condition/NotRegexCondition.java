@@ -27,6 +27,11 @@ public class NotRegexCondition implements Condition {
         return Logic.not(regexCondition).check(browser);
     }
 
+    @Override
+    public boolean check(ConditionContext context) {
+        return Logic.not(regexCondition).check(context);
+    }
+
     @Override
     public int hashCode() {
         return Objects.hashCode(getClass(), regexCondition);
@@ -28,6 +28,11 @@ public class NotUrlCondition implements Condition {
         return Logic.not(urlCondition).check(browser);
     }
 
+    @Override
+    public boolean check(ConditionContext context) {
+        return Logic.not(urlCondition).check(context);
+    }
+
     @Override
     public int hashCode() {
         return Objects.hashCode(getClass(), urlCondition);
@@ -28,6 +28,11 @@ public class NotVisibleCondition implements Condition {
         return Logic.not(visibleCondition).check(browser);
     }
 
+    @Override
+    public boolean check(ConditionContext context) {
+        return Logic.not(visibleCondition).check(context);
+    }
+
     @Override
     public int hashCode() {
         return Objects.hashCode(getClass(), visibleCondition);
@@ -27,6 +27,11 @@ public class NotXPathCondition implements Condition {
         return Logic.not(xpathCondition).check(browser);
     }
 
+    @Override
+    public boolean check(ConditionContext context) {
+        return Logic.not(xpathCondition).check(context);
+    }
+
     @Override
     public int hashCode() {
         return Objects.hashCode(getClass(), xpathCondition);
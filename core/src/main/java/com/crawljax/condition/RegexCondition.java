@@ -28,7 +28,12 @@ public class RegexCondition implements Condition {
 
     @Override
     public boolean check(EmbeddedBrowser browser) {
-        String dom = browser.getStrippedDom();
+        return check(new ConditionContext(browser));
+    }
+
+    @Override
+    public boolean check(ConditionContext context) {
+        String dom = context.getStrippedDom();
         boolean found = pattern.matcher(dom).find();
         if (found) {
             LOG.trace("Found expression {} in DOM {}", expression, dom);
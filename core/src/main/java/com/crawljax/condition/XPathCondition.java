@@ -1,7 +1,6 @@
 package com.crawljax.condition;
 
 import com.crawljax.browser.EmbeddedBrowser;
-import com.crawljax.util.DomUtils;
 import com.crawljax.util.XPathHelper;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
@@ -31,12 +30,13 @@ public class XPathCondition implements Condition {
 
     @Override
     public boolean check(EmbeddedBrowser browser) {
-        return checkXPathExpression(browser);
+        return check(new ConditionContext(browser));
     }
 
-    private boolean checkXPathExpression(EmbeddedBrowser browser) {
+    @Override
+    public boolean check(ConditionContext context) {
         try {
-            Document document = DomUtils.asDocument(browser.getStrippedDom());
+            Document document = context.getDocument();
             NodeList nodeList = XPathHelper.evaluateXpathExpression(document, expression);
             return nodeList.getLength() > 0;
         } catch (XPathExpressionException | IOException e) {
@@ -2,6 +2,7 @@ package com.crawljax.condition.eventablecondition;
 
 import com.crawljax.browser.EmbeddedBrowser;
 import com.crawljax.condition.Condition;
+import com.crawljax.condition.ConditionContext;
 import com.crawljax.core.state.Eventable;
 import com.crawljax.forms.FormInput;
 import com.crawljax.util.XPathHelper;
@@ -51,8 +52,16 @@ public class EventableCondition {
      * @return true iff all the conditions are satisfied.
      */
     public boolean checkAllConditionsSatisfied(EmbeddedBrowser browser) {
+        return checkAllConditionsSatisfied(new ConditionContext(browser));
+    }
+
+    /**
+     * @param context The state to check, shared with other checks of the same state.
+     * @return true iff all the conditions are satisfied.
+     */
+    public boolean checkAllConditionsSatisfied(ConditionContext context) {
         for (Condition condition : getConditions()) {
-            if (!condition.check(browser)) {
+            if (!context.check(condition)) {
                 return false;
             }
         }
@@ -0,0 +1,238 @@
+package com.crawljax.core;
+
+import com.codahale.metrics.MetricRegistry;
+import com.crawljax.core.configuration.CrawlRules;
+import com.crawljax.core.configuration.CrawljaxConfiguration;
+import com.crawljax.core.state.StateVertex;
+import com.crawljax.metrics.MetricsModule;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Chooses how a {@link Crawler} reaches the next state to crawl. Reloading the URL and replaying
+ * the events from the index always works but costs a page load and a wait for every event. The
+ * planner compares it with the shortcuts that are available and picks the route with the lowest
+ * expected cost. The cost of a route is learned from the time it took so far; a shortcut that fails
+ * is followed by the reset, so its expected cost includes the reset weighed by how often the
+ * shortcut failed for that state before.
+ * <p>
+ * The time and the outcome of every route are reported to the {@link MetricRegistry} of the crawl.
+ */
+@Singleton
+public class BacktrackPlanner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BacktrackPlanner.class);
+
+    /**
+     * The weight of a new measurement in the average costs.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * The ways to reach a state.
+     */
+    public enum Route {
+        /**
+         * Follow the events from the state the browser is in.
+         */
+        CURRENT_PATH,
+        /**
+         * Go back in the browser history to the state before the last event.
+         */
+        HISTORY,
+        /**
+         * Load the URL of the state.
+         */
+        DIRECT_URL,
+        /**
+         * Reload the URL of the crawl and follow the events from the index.
+         */
+        RESET;
+
+        private String metricName() {
+            return name().toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    private static final class Attempts {
+
+        private int tried;
+        private int succeeded;
+
+        private void add(boolean success) {
+            tried++;
+            if (success) {
+                succeeded++;
+            }
+        }
+
+        /**
+         * @param prior the probability of success before the first attempt.
+         * @return the estimated probability of success.
+         */
+        private double successRate(double prior) {
+            return (succeeded + 2 * prior) / (tried + 2);
+        }
+    }
+
+    private final boolean enabled;
+    private final MetricRegistry registry;
+    private final Map<Integer, Map<Route, Attempts>> attempts = new HashMap<>();
+    private final Map<Route, Attempts> totals = new EnumMap<>(Route.class);
+
+    private double loadCost;
+    private double eventCost;
+    private double historyCost;
+
+    @Inject
+    public BacktrackPlanner(CrawljaxConfiguration config, MetricRegistry registry) {
+        CrawlRules rules = config.getCrawlRules();
+        this.enabled = rules.isBacktrackShortcuts();
+        this.registry = registry;
+        this.loadCost = rules.getWaitAfterReloadUrl();
+        this.eventCost = rules.getWaitAfterEvent();
+        this.historyCost = rules.getWaitAfterReloadUrl();
+        for (Route route : Route.values()) {
+            totals.put(route, new Attempts());
+        }
+    }
+
+    /**
+     * @return whether shortcuts are taken at all.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param target          the state to reach.
+     * @param hopsFromCurrent the number of events from the current state to the target, or
+     *                        <code>-1</code> when there is no such path.
+     * @param hopsFromIndex   the number of events from the index to the target.
+     * @param history         whether the target is the state before the last event.
+     * @param directUrl       whether the target has a URL of its own.
+     * @return the route with the lowest expected cost, {@link Route#RESET} when nothing is cheaper.
+     */
+    public synchronized Route plan(
+            StateVertex target, int hopsFromCurrent, int hopsFromIndex, boolean history, boolean directUrl) {
+        if (!enabled) {
+            return Route.RESET;
+        }
+        double resetCost = loadCost + Math.max(hopsFromIndex, 0) * eventCost;
+        Route best = Route.RESET;
+        double bestCost = resetCost;
+        if (hopsFromCurrent >= 0) {
+            double cost = expectedCost(target, Route.CURRENT_PATH, hopsFromCurrent * eventCost, resetCost);
+            if (cost < bestCost) {
+                best = Route.CURRENT_PATH;
+                bestCost = cost;
+            }
+        }
+        if (history) {
+            double cost = expectedCost(target, Route.HISTORY, historyCost, resetCost);
+            if (cost < bestCost) {
+                best = Route.HISTORY;
+                bestCost = cost;
+            }
+        }
+        if (directUrl) {
+            double cost = expectedCost(target, Route.DIRECT_URL, loadCost, resetCost);
+            if (cost < bestCost) {
+                best = Route.DIRECT_URL;
+                bestCost = cost;
+            }
+        }
+        LOG.debug(
+                "Reaching {} by {}, expected {} ms instead of {} ms",
+                target.getName(),
+                best,
+                (long) bestCost,
+                (long) resetCost);
+        return best;
+    }
+
+    /**
+     * @param hopsFromCurrent the number of events from the current state to a state, or
+     *                        <code>-1</code> when there is no such path.
+     * @param hopsFromIndex   the number of events from the index to the state.
+     * @return the expected time in milliseconds to reach the state, following the path from the
+     * current state only when shortcuts are taken.
+     */
+    public synchronized double expectedCost(int hopsFromCurrent, int hopsFromIndex) {
+        double resetCost = loadCost + Math.max(hopsFromIndex, 0) * eventCost;
+        if (!enabled || hopsFromCurrent < 0) {
+            return resetCost;
+        }
+        return Math.min(resetCost, hopsFromCurrent * eventCost);
+    }
+
+    private double expectedCost(StateVertex target, Route route, double cost, double resetCost) {
+        double prior = totals.get(route).successRate(0.5);
+        Attempts forState = attempts.getOrDefault(target.getId(), Map.of()).get(route);
+        double success = forState == null ? prior : forState.successRate(prior);
+        return cost + (1 - success) * resetCost;
+    }
+
+    /**
+     * @param target  the state that was to be reached.
+     * @param route   the route that was taken.
+     * @param hops    the number of events that were fired on the route.
+     * @param success whether the target was reached.
+     * @param nanos   the time the route took.
+     */
+    public synchronized void record(StateVertex target, Route route, int hops, boolean success, long nanos) {
+        double millis = nanos / 1_000_000.0;
+        totals.get(route).add(success);
+        if (route != Route.RESET) {
+            attempts.computeIfAbsent(target.getId(), id -> new EnumMap<>(Route.class))
+                    .computeIfAbsent(route, r -> new Attempts())
+                    .add(success);
+        }
+        if (success) {
+            switch (route) {
+                case CURRENT_PATH:
+                    if (hops > 0) {
+                        eventCost = smooth(eventCost, millis / hops);
+                    }
+                    break;
+                case HISTORY:
+                    historyCost = smooth(historyCost, millis);
+                    break;
+                case DIRECT_URL:
+                    loadCost = smooth(loadCost, millis);
+                    break;
+                case RESET:
+                    if (hops > 0) {
+                        eventCost = smooth(eventCost, Math.max(0, millis - loadCost) / hops);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        String name = route.metricName();
+        registry.timer(MetricRegistry.name(MetricsModule.CRAWL_PREFIX, "backtrack", name))
+                .update(nanos, TimeUnit.NANOSECONDS);
+        registry.counter(MetricRegistry.name(
+                        MetricsModule.CRAWL_PREFIX, "backtrack", name, success ? "reached" : "failed"))
+                .inc();
+    }
+
+    /**
+     * @param nanos the time it took to load the URL of the crawl.
+     */
+    public synchronized void recordLoad(long nanos) {
+        loadCost = smooth(loadCost, nanos / 1_000_000.0);
+    }
+
+    private static double smooth(double average, double measured) {
+        return average + SMOOTHING * (measured - average);
+    }
+}
@@ -0,0 +1,269 @@
+package com.crawljax.core;
+
+import com.crawljax.fragmentation.FragmentManager;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The unfired {@link CandidateCrawlAction}s of one state. The actions can be taken in the order
+ * they were added or by priority. For the priority the actions are kept in a binary heap that knows
+ * the position of every action, so the best action is found and removed in logarithmic time.
+ * <p>
+ * The priority of an action is, from high to low: unexplored before explored elements, then the
+ * influence of the element times its duplication factor, then the order the actions were added.
+ * Elements that were accessed directly, that were repeated too often or that have no positive score
+ * are not eligible. Access to elements only grows, which only lowers their priority, so a changed
+ * score is found when the action reaches the top of the heap and it is moved down then. The
+ * duplication factor changes when the {@link FragmentManager} links fragments, and then all actions
+ * are scored again.
+ * <p>
+ * Not thread safe, callers lock the state.
+ */
+class CandidateActionQueue {
+
+    private static final int INELIGIBLE = 0;
+    private static final int EXPLORED = 1;
+    private static final int UNEXPLORED = 2;
+
+    private static final class Entry {
+
+        private final CandidateCrawlAction action;
+        private final long order;
+        private int tier = UNEXPLORED;
+        private double score = Double.MAX_VALUE;
+        private int index;
+        private boolean removed;
+
+        private Entry(CandidateCrawlAction action, long order) {
+            this.action = action;
+            this.order = order;
+        }
+    }
+
+    private final List<Entry> heap = new ArrayList<>();
+    private final Deque<Entry> fifo = new ArrayDeque<>();
+    private long added;
+    private FragmentManager scoredBy;
+    private long scoredGeneration = -1;
+
+    void add(CandidateCrawlAction action) {
+        Entry entry = new Entry(action, added++);
+        fifo.addLast(entry);
+        entry.index = heap.size();
+        heap.add(entry);
+        // Unscored actions go first, so they are scored before anything is chosen.
+        siftUp(entry.index);
+    }
+
+    void addAll(List<CandidateCrawlAction> actions) {
+        for (CandidateCrawlAction action : actions) {
+            add(action);
+        }
+    }
+
+    int size() {
+        return heap.size();
+    }
+
+    boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    void clear() {
+        for (Entry entry : heap) {
+            entry.removed = true;
+        }
+        heap.clear();
+        fifo.clear();
+    }
+
+    /**
+     * @return the actions in the order they were added.
+     */
+    List<CandidateCrawlAction> toList() {
+        List<CandidateCrawlAction> actions = new ArrayList<>(heap.size());
+        for (Entry entry : fifo) {
+            if (!entry.removed) {
+                actions.add(entry.action);
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * @return the action that was added first, which is removed, or <code>null</code> if there is
+     * none.
+     */
+    CandidateCrawlAction pollFirst() {
+        Entry entry;
+        while ((entry = fifo.pollFirst()) != null) {
+            if (!entry.removed) {
+                removeAt(entry.index);
+                return entry.action;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param fragmentManager the fragment manager of the crawl.
+     * @param maxRepeat       the number of equivalent accesses after which an element is no longer
+     *                        eligible.
+     * @param score           the influence times the duplication factor of an element.
+     * @return the eligible action with the highest priority, which stays in the queue, or
+     * <code>null</code> if no action is eligible.
+     */
+    CandidateCrawlAction best(
+            FragmentManager fragmentManager, int maxRepeat, ToDoubleFunction<CandidateElement> score) {
+        if (heap.isEmpty()) {
+            return null;
+        }
+        if (scoredBy != fragmentManager || scoredGeneration != fragmentManager.getGeneration()) {
+            long generation = fragmentManager.getGeneration();
+            try {
+                for (Entry entry : heap) {
+                    score(entry, maxRepeat, score);
+                }
+            } finally {
+                // Restore the order of the entries scored before a failure, the rest are scored again
+                // on the next call.
+                for (int i = heap.size() / 2 - 1; i >= 0; i--) {
+                    siftDown(i);
+                }
+            }
+            scoredBy = fragmentManager;
+            scoredGeneration = generation;
+        }
+        while (true) {
+            Entry top = heap.get(0);
+            int tier = top.tier;
+            double previous = top.score;
+            score(top, maxRepeat, score);
+            if (top.tier == tier && Double.compare(top.score, previous) == 0) {
+                return top.tier == INELIGIBLE ? null : top.action;
+            }
+            siftDown(0);
+        }
+    }
+
+    private static void score(Entry entry, int maxRepeat, ToDoubleFunction<CandidateElement> score) {
+        CandidateElement element = entry.action.getCandidateElement();
+        if (element.isDirectAccess() || element.getEquivalentAccess() >= maxRepeat) {
+            entry.tier = INELIGIBLE;
+            entry.score = 0;
+            return;
+        }
+        entry.score = score.applyAsDouble(element);
+        if (entry.score <= 0) {
+            entry.tier = INELIGIBLE;
+        } else {
+            entry.tier = element.wasExplored() ? EXPLORED : UNEXPLORED;
+        }
+    }
+
+    /**
+     * @param action the action to remove.
+     * @return whether the action was in the queue.
+     */
+    boolean remove(CandidateCrawlAction action) {
+        if (!heap.isEmpty() && heap.get(0).action == action) {
+            removeAt(0);
+            return true;
+        }
+        for (Entry entry : heap) {
+            if (entry.action == action) {
+                removeAt(entry.index);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param filter the actions to remove.
+     * @return whether any action was removed.
+     */
+    boolean removeIf(Predicate<CandidateCrawlAction> filter) {
+        List<CandidateCrawlAction> keep = new ArrayList<>(heap.size());
+        boolean removed = false;
+        for (CandidateCrawlAction action : toList()) {
+            if (filter.test(action)) {
+                removed = true;
+            } else {
+                keep.add(action);
+            }
+        }
+        if (removed) {
+            clear();
+            addAll(keep);
+        }
+        return removed;
+    }
+
+    private void removeAt(int index) {
+        Entry entry = heap.get(index);
+        entry.removed = true;
+        Entry last = heap.remove(heap.size() - 1);
+        if (last != entry) {
+            heap.set(index, last);
+            last.index = index;
+            siftDown(index);
+            siftUp(last.index);
+        }
+    }
+
+    private void siftUp(int index) {
+        Entry entry = heap.get(index);
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            Entry above = heap.get(parent);
+            if (!before(entry, above)) {
+                break;
+            }
+            place(above, index);
+            index = parent;
+        }
+        place(entry, index);
+    }
+
+    private void siftDown(int index) {
+        Entry entry = heap.get(index);
+        int size = heap.size();
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(heap.get(child + 1), heap.get(child))) {
+                child++;
+            }
+            Entry below = heap.get(child);
+            if (!before(below, entry)) {
+                break;
+            }
+            place(below, index);
+            index = child;
+        }
+        place(entry, index);
+    }
+
+    private void place(Entry entry, int index) {
+        heap.set(index, entry);
+        entry.index = index;
+    }
+
+    private static boolean before(Entry a, Entry b) {
+        if (a.tier != b.tier) {
+            return a.tier > b.tier;
+        }
+        int byScore = Double.compare(a.score, b.score);
+        if (byScore != 0) {
+            return byScore > 0;
+        }
+        return a.order < b.order;
+    }
+}
@@ -1,6 +1,7 @@
 package com.crawljax.core;
 
 import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.condition.ConditionContext;
 import com.crawljax.condition.eventablecondition.EventableCondition;
 import com.crawljax.core.state.Eventable;
 import com.crawljax.core.state.Eventable.EventType;
@@ -8,12 +9,15 @@ import com.crawljax.core.state.Identification;
 import com.crawljax.forms.FormInput;
 import com.crawljax.fragmentation.Fragment;
 import com.crawljax.util.DomUtils;
+import com.crawljax.util.FingerprintSet;
 import com.crawljax.vips_selenium.VipsUtils;
 import com.crawljax.vips_selenium.VipsUtils.AccessType;
 import com.crawljax.vips_selenium.VipsUtils.Coverage;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
 import java.util.List;
 import org.w3c.dom.Element;
 
@@ -151,6 +155,38 @@ public class CandidateElement {
         return result;
     }
 
+    /**
+     * @return the fingerprint of {@link #getGeneralString()}, computed without building the string
+     * @see FingerprintSet
+     */
+    public HashCode getGeneralFingerprint() {
+        Hasher hasher = FingerprintSet.newFingerprint();
+        if (element != null) {
+            hasher.putUnencodedChars(this.element.getNodeName()).putUnencodedChars(": ");
+        }
+        DomUtils.putElementAttributes(hasher, this.element, ImmutableSet.of("atusa")).putChar(' ');
+        return putIdentification(hasher).hash();
+    }
+
+    /**
+     * @return the fingerprint of {@link #getUniqueString()}, computed without building the string
+     * @see FingerprintSet
+     */
+    public HashCode getUniqueFingerprint() {
+        Hasher hasher = FingerprintSet.newFingerprint();
+        if (element != null) {
+            hasher.putUnencodedChars(this.element.getNodeName()).putUnencodedChars(": ");
+            DomUtils.putElementAttributes(hasher, this.element, ImmutableSet.of()).putChar(' ');
+        }
+        return putIdentification(hasher).hash();
+    }
+
+    private Hasher putIdentification(Hasher hasher) {
+        return hasher.putUnencodedChars(String.valueOf(identification))
+                .putChar(' ')
+                .putUnencodedChars(String.valueOf(relatedFrame));
+    }
+
     /**
      * @return the element
      */
@@ -195,8 +231,19 @@ public class CandidateElement {
      * @see EventableCondition#checkAllConditionsSatisfied(EmbeddedBrowser)
      */
     public boolean allConditionsSatisfied(EmbeddedBrowser browser) {
+        return allConditionsSatisfied(new ConditionContext(browser));
+    }
+
+    /**
+     * Check all eventable Condition for correctness.
+     *
+     * @param context the current state, shared with the checks of the other candidate elements
+     * @return true if all conditions are satisfied or no conditions are specified
+     * @see EventableCondition#checkAllConditionsSatisfied(ConditionContext)
+     */
+    public boolean allConditionsSatisfied(ConditionContext context) {
         if (eventableCondition != null) {
-            return eventableCondition.checkAllConditionsSatisfied(browser);
+            return eventableCondition.checkAllConditionsSatisfied(context);
         }
         // No condition specified so return true....
         return true;
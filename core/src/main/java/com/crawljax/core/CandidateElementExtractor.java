@@ -1,6 +1,7 @@
 package com.crawljax.core;
 
 import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.condition.ConditionContext;
 import com.crawljax.condition.eventablecondition.EventableCondition;
 import com.crawljax.condition.eventablecondition.EventableConditionChecker;
 import com.crawljax.core.configuration.CrawlElement;
@@ -11,19 +12,30 @@ import com.crawljax.core.state.Identification;
 import com.crawljax.core.state.StateVertex;
 import com.crawljax.forms.FormHandler;
 import com.crawljax.util.DomUtils;
+import com.crawljax.util.FingerprintSet;
 import com.crawljax.util.XPathHelper;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
 import com.google.inject.assistedinject.Assisted;
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import javax.inject.Inject;
 import javax.xml.xpath.XPathExpressionException;
@@ -33,7 +45,6 @@ import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 /**
  * This class extracts candidate elements from the DOM tree, based on the tags provided by the user.
@@ -43,6 +54,8 @@ public class CandidateElementExtractor {
 
     private static final Logger LOG = LoggerFactory.getLogger(CandidateElementExtractor.class);
 
+    private static final String ANY_TAG = "*";
+
     private final ExtractorManager checkedElements;
     private final EmbeddedBrowser browser;
 
@@ -51,6 +64,18 @@ public class CandidateElementExtractor {
     private final ImmutableMultimap<String, CrawlElement> excludeCrawlElements;
     private final ImmutableList<CrawlElement> includedCrawlElements;
 
+    /**
+     * The positions in {@link #includedCrawlElements} of the crawl elements per tag name, so an
+     * element is matched against all crawl elements at once.
+     */
+    private final ImmutableListMultimap<String, Integer> includedRulesByTag;
+
+    /**
+     * The positions in {@link #includedCrawlElements} of the crawl elements that match all elements
+     * with a detected event listener.
+     */
+    private final ImmutableList<Integer> clickableRules;
+
     private final boolean clickOnce;
     private final boolean randomizeElementsOrder;
 
@@ -85,6 +110,21 @@ public class CandidateElementExtractor {
                 .addAll(preCrawlConfig.getIncludedElements())
                 .addAll(rules.getInputSpecification().getCrawlElements())
                 .build();
+        ImmutableListMultimap.Builder<String, Integer> rulesByTag = ImmutableListMultimap.builder();
+        Builder<Integer> clickable = ImmutableList.builder();
+        for (int i = 0; i < includedCrawlElements.size(); i++) {
+            String tagName = includedCrawlElements.get(i).getTagName();
+            if (tagName == null) {
+                continue;
+            }
+            if (tagName.equalsIgnoreCase(CrawlElement.CLICKABLE_ELEMENT_TAG)) {
+                clickable.add(i);
+            } else {
+                rulesByTag.put(tagName, i);
+            }
+        }
+        this.includedRulesByTag = rulesByTag.build();
+        this.clickableRules = clickable.build();
         crawlFrames = rules.shouldCrawlFrames();
         clickOnce = rules.isClickOnce();
         randomizeElementsOrder = rules.isRandomizeCandidateElements();
@@ -110,9 +150,40 @@ public class CandidateElementExtractor {
      * @throws CrawljaxException if the method fails.
      */
     public ImmutableList<CandidateElement> extract(StateVertex currentState) throws CrawljaxException {
+        return extract(currentState, checkedElements.checkCrawlCondition(browser), browser::getFrameDom);
+    }
+
+    /**
+     * Like {@link #extract(StateVertex)}, checking the crawl conditions against the context the state
+     * was captured with instead of retrieving the DOM again.
+     *
+     * @param currentState the state in which this extract method is requested.
+     * @param conditions   the conditions of the page the state was captured from.
+     * @return a list of candidate elements that are not excluded.
+     * @throws CrawljaxException if the method fails.
+     */
+    public ImmutableList<CandidateElement> extract(StateVertex currentState, ConditionContext conditions)
+            throws CrawljaxException {
+        return extract(currentState, checkedElements.checkCrawlCondition(conditions), browser::getFrameDom);
+    }
+
+    /**
+     * Extracts the candidate elements of a state from its DOM without looking at the page in the
+     * browser, for example for a state restored from a {@link CrawlCheckpoint}.
+     *
+     * @param currentState             the state to extract the candidate elements of.
+     * @param crawlConditionsSatisfied whether the state satisfied the crawl conditions.
+     * @param frameDoms                the DOM of a frame by its identification, or <code>null</code>
+     *                                 if the frame is unknown.
+     * @return a list of candidate elements that are not excluded.
+     * @throws CrawljaxException if the method fails.
+     */
+    public ImmutableList<CandidateElement> extract(
+            StateVertex currentState, boolean crawlConditionsSatisfied, Function<String, String> frameDoms)
+            throws CrawljaxException {
         LinkedList<CandidateElement> results = new LinkedList<>();
 
-        if (!checkedElements.checkCrawlCondition(browser)) {
+        if (!crawlConditionsSatisfied) {
             LOG.info("State {} did not satisfy the CrawlConditions.", currentState.getName());
             return ImmutableList.of();
         }
@@ -121,7 +192,7 @@ public class CandidateElementExtractor {
         try {
             //			Document dom = DomUtils.asDocument(browser.getStrippedDomWithoutIframeContent());
             Document dom = currentState.getDocument();
-            extractElements(dom, results, "");
+            extractElements(dom, results, "", frameDoms);
         } catch (IOException e) {
             LOG.error(e.getMessage(), e);
             throw new CrawljaxException(e);
@@ -135,30 +206,33 @@ public class CandidateElementExtractor {
     }
 
     void extractElements(Document dom, List<CandidateElement> results, String relatedFrame) {
-        LOG.debug("Extracting elements for related frame '{}'", relatedFrame);
-        for (CrawlElement tag : includedCrawlElements) {
-            LOG.debug("Extracting TAG: {}", tag);
+        extractElements(dom, results, relatedFrame, browser::getFrameDom);
+    }
 
-            NodeList frameNodes = dom.getElementsByTagName("FRAME");
-            addFramesCandidates(dom, results, relatedFrame, frameNodes);
+    private void extractElements(
+            Document dom, List<CandidateElement> results, String relatedFrame, Function<String, String> frameDoms) {
+        LOG.debug("Extracting elements for related frame '{}'", relatedFrame);
+        if (includedCrawlElements.isEmpty()) {
+            return;
+        }
+        DocumentScan scan = new DocumentScan(dom);
 
-            NodeList iFrameNodes = dom.getElementsByTagName("IFRAME");
-            addFramesCandidates(dom, results, relatedFrame, iFrameNodes);
+        addFramesCandidates(results, relatedFrame, scan.frames, frameDoms);
+        addFramesCandidates(results, relatedFrame, scan.iFrames, frameDoms);
 
-            evaluateElements(dom, tag, results, relatedFrame);
+        for (int rule = 0; rule < includedCrawlElements.size(); rule++) {
+            CrawlElement tag = includedCrawlElements.get(rule);
+            LOG.debug("Extracting TAG: {}", tag);
+            evaluateElements(scan, tag, scan.matches.get(rule), results, relatedFrame);
         }
     }
 
     private void addFramesCandidates(
-            Document dom, List<CandidateElement> results, String relatedFrame, NodeList frameNodes) {
-
-        if (frameNodes == null) {
-            return;
-        }
-
-        for (int i = 0; i < frameNodes.getLength(); i++) {
-
-            Element frameElement = (Element) frameNodes.item(i);
+            List<CandidateElement> results,
+            String relatedFrame,
+            List<Element> frameNodes,
+            Function<String, String> frameDoms) {
+        for (Element frameElement : frameNodes) {
 
             String nameId = DomUtils.getFrameIdentification(frameElement);
 
@@ -173,9 +247,14 @@ public class CandidateElementExtractor {
 
                 LOG.debug("frame Identification: {}", frameIdentification);
 
+                String frameSource = frameDoms.apply(frameIdentification);
+                if (frameSource == null) {
+                    LOG.debug("The DOM of frame {} is unknown, skipping it", frameIdentification);
+                    continue;
+                }
                 try {
-                    Document frameDom = DomUtils.asDocument(browser.getFrameDom(frameIdentification));
-                    extractElements(frameDom, results, frameIdentification);
+                    Document frameDom = DomUtils.asDocument(frameSource);
+                    extractElements(frameDom, results, frameIdentification, frameDoms);
                 } catch (IOException e) {
                     LOG.info("Got exception while inspecting a frame: {} continuing...", frameIdentification, e);
                 }
@@ -203,12 +282,16 @@ public class CandidateElementExtractor {
     }
 
     private void evaluateElements(
-            Document dom, CrawlElement crawl, List<CandidateElement> results, String relatedFrame) {
+            DocumentScan scan,
+            CrawlElement crawl,
+            List<Element> elements,
+            List<CandidateElement> results,
+            String relatedFrame) {
         try {
-            List<Element> nodeListForCrawlElement =
-                    getNodeListForTagElement(dom, crawl, checkedElements.getEventableConditionChecker());
+            List<Element> candidates =
+                    getCandidatesForTagElement(scan, crawl, elements, checkedElements.getEventableConditionChecker());
 
-            for (Element sourceElement : nodeListForCrawlElement) {
+            for (Element sourceElement : candidates) {
                 evaluateElement(results, relatedFrame, crawl, sourceElement);
             }
         } catch (CrawljaxException e) {
@@ -217,38 +300,20 @@ public class CandidateElementExtractor {
     }
 
     /**
-     * Returns a list of Elements form the DOM tree, matching the tag element.
+     * Returns the elements matching the tag element that are not checked or excluded yet.
      */
-    private ImmutableList<Element> getNodeListForTagElement(
-            Document dom, CrawlElement crawlElement, EventableConditionChecker eventableConditionChecker) {
+    private ImmutableList<Element> getCandidatesForTagElement(
+            DocumentScan scan,
+            CrawlElement crawlElement,
+            List<Element> elements,
+            EventableConditionChecker eventableConditionChecker) {
 
         Builder<Element> result = ImmutableList.builder();
 
-        if (crawlElement.getTagName() == null) {
-            return result.build();
-        }
-
         EventableCondition eventableCondition = eventableConditionChecker.getEventableCondition(crawlElement.getId());
-        // TODO Stefan; this part of the code should be re-factored, Hack-ed it this way to prevent
-        // performance problems.
-        ImmutableList<String> expressions = getFullXpathForGivenXpath(dom, eventableCondition);
+        ImmutableList<String> expressions = getFullXpathForGivenXpath(scan.dom, eventableCondition);
 
-        NodeList nodeList;
-        if (crawlElement.getTagName().equalsIgnoreCase(CrawlElement.CLICKABLE_ELEMENT_TAG)) {
-            try {
-                nodeList = XPathHelper.evaluateXpathExpression(dom, "//*[@evlistval]");
-            } catch (XPathExpressionException e) {
-                LOG.debug(e.getMessage());
-                LOG.warn("Error extracting canddiates for {}", crawlElement);
-                return result.build();
-            }
-        } else {
-            nodeList = dom.getElementsByTagName(crawlElement.getTagName());
-        }
-
-        for (int k = 0; k < nodeList.getLength(); k++) {
-
-            Element element = (Element) nodeList.item(k);
+        for (Element element : elements) {
             boolean matchesXpath =
                     elementMatchesXpath(eventableConditionChecker, eventableCondition, expressions, element);
             LOG.debug("Element {} matches Xpath={}", DomUtils.getElementString(element), matchesXpath);
@@ -256,10 +321,8 @@ public class CandidateElementExtractor {
              * TODO Stefan This is a possible Thread-Interleaving problem, as / isChecked can return
              * false and when needed to add it can return true. / check if element is a candidate
              */
-            String id = element.getNodeName() + ": " + DomUtils.getAllElementAttributes(element);
-            if (matchesXpath
-                    && !checkedElements.isChecked(id)
-                    && !isExcluded(dom, element, eventableConditionChecker)) {
+            HashCode id = fingerprint(element);
+            if (matchesXpath && !checkedElements.isChecked(id) && !scan.excluded.contains(element)) {
                 addElement(element, result, crawlElement);
             } else {
                 LOG.debug("Element {} was not added", element);
@@ -268,6 +331,16 @@ public class CandidateElementExtractor {
         return result.build();
     }
 
+    /**
+     * @return the fingerprint of the node name and the attributes of the element.
+     */
+    private static HashCode fingerprint(Element element) {
+        Hasher hasher = FingerprintSet.newFingerprint()
+                .putUnencodedChars(element.getNodeName())
+                .putUnencodedChars(": ");
+        return DomUtils.putElementAttributes(hasher, element, ImmutableSet.of()).hash();
+    }
+
     private boolean elementMatchesXpath(
             EventableConditionChecker eventableConditionChecker,
             EventableCondition eventableCondition,
@@ -379,41 +452,96 @@ public class CandidateElementExtractor {
         }
     }
 
+    public boolean checkCrawlCondition() {
+        return checkedElements.checkCrawlCondition(browser);
+    }
+
     /**
-     * @return true if element should be excluded. Also when an ancestor of the given element is
-     * marked for exclusion, which allows for recursive exclusion of elements from candidates.
+     * @param conditions the conditions of the page in the browser.
+     * @return whether the crawl conditions hold in that page.
      */
-    private boolean isExcluded(Document dom, Element element, EventableConditionChecker eventableConditionChecker) {
-
-        Node parent = element.getParentNode();
+    public boolean checkCrawlCondition(ConditionContext conditions) {
+        return checkedElements.checkCrawlCondition(conditions);
+    }
 
-        if (parent instanceof Element && isExcluded(dom, (Element) parent, eventableConditionChecker)) {
-            return true;
+    /**
+     * Visits every element of a document once, computing the XPath expressions on the way down. It
+     * matches the elements against all included crawl elements through {@link #includedRulesByTag},
+     * collects the frames and finds the excluded elements. Elements are excluded when they or one of
+     * their ancestors match an excluded crawl element.
+     */
+    private final class DocumentScan {
+
+        private final Document dom;
+        private final List<List<Element>> matches = new ArrayList<>();
+        private final Set<Element> excluded = new HashSet<>();
+        private final List<Element> frames = new ArrayList<>();
+        private final List<Element> iFrames = new ArrayList<>();
+        private final Map<String, ImmutableList<String>> excludedXpaths = new HashMap<>();
+
+        private DocumentScan(Document dom) {
+            this.dom = dom;
+            for (int i = 0; i < includedCrawlElements.size(); i++) {
+                matches.add(new ArrayList<>());
+            }
+            Element root = dom.getDocumentElement();
+            if (root != null) {
+                visit(root, false);
+            }
         }
 
-        for (CrawlElement crawlElem :
-                excludeCrawlElements.get(element.getTagName().toUpperCase())) {
-            boolean matchesXPath = false;
-            EventableCondition eventableCondition = eventableConditionChecker.getEventableCondition(crawlElem.getId());
-            try {
-                String asXpath = XPathHelper.getXPathExpression(element);
-                matchesXPath = eventableConditionChecker.checkXpathStartsWithXpathEventableCondition(
-                        dom, eventableCondition, asXpath);
-            } catch (CrawljaxException | XPathExpressionException e) {
-                LOG.debug("Could not check exclusion by Xpath for element because {}", e.getMessage());
-                matchesXPath = false;
+        private void visit(Element element, boolean ancestorExcluded) {
+            String tagName = element.getTagName().toUpperCase();
+            for (int rule : includedRulesByTag.get(tagName)) {
+                matches.get(rule).add(element);
+            }
+            for (int rule : includedRulesByTag.get(ANY_TAG)) {
+                matches.get(rule).add(element);
+            }
+            if (!clickableRules.isEmpty() && element.hasAttribute("evlistval")) {
+                for (int rule : clickableRules) {
+                    matches.get(rule).add(element);
+                }
+            }
+            if ("FRAME".equals(tagName)) {
+                frames.add(element);
+            } else if ("IFRAME".equals(tagName)) {
+                iFrames.add(element);
             }
 
-            if (matchesXPath) {
-                LOG.info("Excluded element because of xpath: " + element);
-                return true;
+            boolean isExcluded = ancestorExcluded || matchesExcludedElement(element, tagName);
+            if (isExcluded) {
+                excluded.add(element);
             }
-        }
 
-        return false;
-    }
+            XPathHelper.cacheChildXPathExpressions(element);
+            for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (child instanceof Element) {
+                    visit((Element) child, isExcluded);
+                }
+            }
+        }
 
-    public boolean checkCrawlCondition() {
-        return checkedElements.checkCrawlCondition(browser);
+        private boolean matchesExcludedElement(Element element, String tagName) {
+            ImmutableCollection<CrawlElement> excludedElements = excludeCrawlElements.get(tagName);
+            if (excludedElements.isEmpty()) {
+                return false;
+            }
+            EventableConditionChecker eventableConditionChecker = checkedElements.getEventableConditionChecker();
+            String asXpath = XPathHelper.getXPathExpression(element);
+            for (CrawlElement crawlElem : excludedElements) {
+                EventableCondition eventableCondition = eventableConditionChecker.getEventableCondition(crawlElem.getId());
+                if (eventableCondition == null || Strings.isNullOrEmpty(eventableCondition.getInXPath())) {
+                    continue;
+                }
+                ImmutableList<String> expressions = excludedXpaths.computeIfAbsent(
+                        crawlElem.getId(), id -> getFullXpathForGivenXpath(dom, eventableCondition));
+                if (eventableConditionChecker.checkXPathUnderXPaths(asXpath, expressions)) {
+                    LOG.info("Excluded element because of xpath: " + element);
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 }
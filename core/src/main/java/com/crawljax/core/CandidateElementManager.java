@@ -1,14 +1,14 @@
 package com.crawljax.core;
 
 import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.condition.ConditionContext;
 import com.crawljax.condition.ConditionTypeChecker;
 import com.crawljax.condition.crawlcondition.CrawlCondition;
 import com.crawljax.condition.eventablecondition.EventableConditionChecker;
-import java.util.Collection;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import com.crawljax.util.FingerprintSet;
+import com.google.common.hash.HashCode;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.inject.Inject;
-import net.jcip.annotations.GuardedBy;
 
 /**
  * The class is a ExtractorManager for the CandidateElements. It basically implements the
@@ -22,10 +22,10 @@ public class CandidateElementManager implements ExtractorManager {
     private final AtomicInteger counter = new AtomicInteger();
 
     /**
-     * Use the ConcurrentLinkedQueue to prevent Thread problems when checking and storing
-     * checkedElements.
+     * The fingerprints of the general and unique strings of the checked elements. The set is striped,
+     * so browsers that mark elements concurrently rarely wait for each other.
      */
-    private final Collection<String> elements = new ConcurrentLinkedQueue<>();
+    private final FingerprintSet elements = new FingerprintSet();
 
     /**
      * The eventableConditionChecker where to load the EventableConditions from into the new
@@ -39,11 +39,6 @@ public class CandidateElementManager implements ExtractorManager {
      */
     private final ConditionTypeChecker<CrawlCondition> crawlConditionChecker;
 
-    /**
-     * Used to lock the elements when adding multiple elements.
-     */
-    private final Object elementsLock = new Object();
-
     /**
      * Create a new CandidateElementManager.
      *
@@ -70,38 +65,36 @@ public class CandidateElementManager implements ExtractorManager {
     }
 
     /**
-     * Check if a given element is already checked, preventing duplicate work. This is implemented in
-     * a ConcurrentLinkedQueue to support thread-safety
+     * Check if a given element is already checked, preventing duplicate work.
      *
      * @param element the to search for if its already checked
      * @return true if the element is already checked
      */
     @Override
     public boolean isChecked(String element) {
-        return elements.contains(element);
+        return isChecked(FingerprintSet.fingerprint(element));
+    }
+
+    @Override
+    public boolean isChecked(HashCode fingerprint) {
+        return elements.contains(fingerprint);
     }
 
     /**
      * Mark a given element as checked to prevent duplicate work. A elements is only added when it is
-     * not already in the set of checked elements.
+     * not already in the set of checked elements. Of the threads that mark the same element only
+     * one succeeds.
      *
      * @param element the element that is checked
-     * @return true if !contains(element.uniqueString)
+     * @return true if !contains(element.uniqueFingerprint)
      */
-    @GuardedBy("elementsLock")
     @Override
     public boolean markChecked(CandidateElement element) {
-        String generalString = element.getGeneralString();
-        String uniqueString = element.getUniqueString();
-        synchronized (elementsLock) {
-            if (elements.contains(uniqueString)) {
-                return false;
-            } else {
-                elements.add(generalString);
-                elements.add(uniqueString);
-                return true;
-            }
+        if (!elements.add(element.getUniqueFingerprint())) {
+            return false;
         }
+        elements.add(element.getGeneralFingerprint());
+        return true;
     }
 
     /**
@@ -132,4 +125,9 @@ public class CandidateElementManager implements ExtractorManager {
     public boolean checkCrawlCondition(EmbeddedBrowser browser) {
         return crawlConditionChecker.getFailedConditions(browser).isEmpty();
     }
+
+    @Override
+    public boolean checkCrawlCondition(ConditionContext context) {
+        return crawlConditionChecker.getFailedConditions(context).isEmpty();
+    }
 }
@@ -0,0 +1,483 @@
+package com.crawljax.core;
+
+import com.crawljax.core.configuration.CrawljaxConfiguration;
+import com.crawljax.core.state.Element;
+import com.crawljax.core.state.Eventable;
+import com.crawljax.core.state.Eventable.EventType;
+import com.crawljax.core.state.Identification;
+import com.crawljax.core.state.InMemoryStateFlowGraph;
+import com.crawljax.core.state.StateFlowGraphListener;
+import com.crawljax.core.state.StateVertex;
+import com.crawljax.core.state.StateVertexFactory;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends the progress of a crawl to <code>checkpoint.log</code> in the site output folder: the
+ * states and edges added to the {@link InMemoryStateFlowGraph}, the outcome of the crawl conditions
+ * and the frame DOMs the candidates of a state were extracted with, the actions of the
+ * {@link UnfiredFragmentCandidates} once they have fired and the states whose actions are exhausted. Every line is one
+ * JSON record. A crawl that died is resumed by restoring the graph from the log and queueing only
+ * the actions that were not fired yet.
+ * <p>
+ * Checkpoints are disabled unless {@link CrawljaxConfiguration#getCheckpointInterval()} is set, in
+ * which case all methods do nothing. Records are buffered and flushed on a timer, so the log on disk
+ * is at most one interval behind the crawl, also when the crawl does not write for a while.
+ */
+@Singleton
+public class CrawlCheckpoint implements StateFlowGraphListener, Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CrawlCheckpoint.class);
+
+    static final String FILE_NAME = "checkpoint.log";
+
+    private static final String STATE = "state";
+    private static final String EDGE = "edge";
+    private static final String EXTRACTED = "extracted";
+    private static final String FIRED = "fired";
+    private static final String EXHAUSTED = "exhausted";
+
+    /**
+     * One line of the log. Only the fields of its type are set.
+     */
+    private static final class Record {
+
+        private String type;
+        private Integer state;
+        private String name;
+        private String url;
+        private String dom;
+        private String strippedDom;
+        private Boolean onUrl;
+        private Long id;
+        private Integer source;
+        private Integer target;
+        private String eventType;
+        private String how;
+        private String value;
+        private String frame;
+        private String tag;
+        private String text;
+        private Map<String, String> attributes;
+        private String action;
+        private Boolean satisfied;
+        private Map<String, String> frames;
+    }
+
+    private final Gson gson = new Gson();
+    private final File file;
+    private final long interval;
+    private final InMemoryStateFlowGraph graph;
+    private final StateVertexFactory vertexFactory;
+
+    private final Map<Integer, Record> restoredStates = new LinkedHashMap<>();
+    private final List<Record> restoredEdges = new ArrayList<>();
+    private final Map<Integer, Record> extractions = new HashMap<>();
+    private final SetMultimap<Integer, String> firedActions = HashMultimap.create();
+    private final Set<Integer> exhaustedStates = new HashSet<>();
+    private final Map<Integer, CandidateCrawlAction> pendingExhaustion = new HashMap<>();
+
+    private Writer writer;
+    private boolean unflushed;
+    private ScheduledExecutorService flusher;
+
+    @Inject
+    public CrawlCheckpoint(
+            CrawljaxConfiguration config, InMemoryStateFlowGraph graph, StateVertexFactory vertexFactory) {
+        this.interval = config.getCheckpointInterval();
+        this.file = interval > 0 ? new File(config.getSiteDir(), FILE_NAME) : null;
+        this.graph = graph;
+        this.vertexFactory = vertexFactory;
+    }
+
+    /**
+     * @return whether checkpoints are written.
+     */
+    public boolean isEnabled() {
+        return file != null;
+    }
+
+    /**
+     * Reads the log of the crawl to resume. Records that cannot be parsed, like a truncated last
+     * record from a crawl that died while writing it, are skipped.
+     *
+     * @throws CrawljaxException when checkpoints are disabled or the log cannot be read.
+     */
+    public synchronized void load() {
+        if (!isEnabled()) {
+            throw new CrawljaxException("Checkpoints are disabled, there is nothing to resume");
+        }
+        if (!file.exists()) {
+            LOG.warn("There is no checkpoint at {}, starting a new crawl", file);
+            return;
+        }
+        try (BufferedReader reader =
+                new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            int lines = 0;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                Record record;
+                try {
+                    record = gson.fromJson(line, Record.class);
+                } catch (JsonParseException e) {
+                    LOG.warn("Skipping line {} of the checkpoint: {}", lines, e.getMessage());
+                    continue;
+                }
+                if (record != null && record.type != null) {
+                    read(record);
+                }
+            }
+        } catch (IOException e) {
+            throw new CrawljaxException("Could not read checkpoint " + file, e);
+        }
+        LOG.info(
+                "Loaded a checkpoint with {} states, {} edges and {} exhausted states",
+                restoredStates.size(),
+                restoredEdges.size(),
+                exhaustedStates.size());
+    }
+
+    private void read(Record record) {
+        switch (record.type) {
+            case STATE:
+                restoredStates.put(record.state, record);
+                break;
+            case EDGE:
+                restoredEdges.add(record);
+                break;
+            case EXTRACTED:
+                extractions.put(record.state, record);
+                break;
+            case FIRED:
+                firedActions.put(record.state, record.action);
+                break;
+            case EXHAUSTED:
+                exhaustedStates.add(record.state);
+                break;
+            default:
+                LOG.debug("Unknown checkpoint record {}", record.type);
+        }
+    }
+
+    /**
+     * Adds the loaded states and edges to the graph. The index is crawled again, so it is not
+     * restored but the edges from and to it are.
+     *
+     * @param index the index of the resumed crawl.
+     * @return the index and the restored states, in the order they were found.
+     */
+    public synchronized ImmutableList<StateVertex> restoreGraph(StateVertex index) {
+        Map<Integer, StateVertex> states = new LinkedHashMap<>();
+        states.put(index.getId(), index);
+        for (Record record : restoredStates.values()) {
+            if (record.state == index.getId()) {
+                continue;
+            }
+            StateVertex state = vertexFactory.newStateVertex(
+                    record.state, record.url, record.name, record.dom, record.strippedDom, null);
+            state.setOnURL(Boolean.TRUE.equals(record.onUrl));
+            graph.putRestored(state);
+            states.put(record.state, state);
+        }
+        for (Record record : restoredEdges) {
+            StateVertex source = states.get(record.source);
+            StateVertex target = states.get(record.target);
+            if (source == null || target == null) {
+                LOG.debug("Skipping edge {} to a state that was not restored", record.id);
+                continue;
+            }
+            Eventable edge = new Eventable(
+                    new Identification(Identification.How.valueOf(record.how), record.value),
+                    EventType.valueOf(record.eventType),
+                    record.frame);
+            edge.setId(record.id);
+            if (record.tag != null) {
+                edge.setElement(new Element(record.tag, record.text, ImmutableMap.copyOf(record.attributes)));
+            }
+            graph.addEdge(source, target, edge);
+        }
+        return ImmutableList.copyOf(states.values());
+    }
+
+    /**
+     * @param state  a state of the resumed crawl.
+     * @param action an action of that state.
+     * @return whether the action was already taken before the crawl was resumed.
+     */
+    public synchronized boolean wasFired(StateVertex state, CandidateCrawlAction action) {
+        return firedActions.containsEntry(state.getId(), key(action));
+    }
+
+    /**
+     * @param state a state of the resumed crawl.
+     * @return whether all actions of the state were taken before the crawl was resumed.
+     */
+    public synchronized boolean wasExhausted(StateVertex state) {
+        return exhaustedStates.contains(state.getId());
+    }
+
+    /**
+     * @param state a state of the resumed crawl.
+     * @return whether the state satisfied the crawl conditions when its candidates were extracted.
+     * A state that was not extracted before the crawl died is assumed to satisfy them.
+     */
+    public synchronized boolean wereCrawlConditionsSatisfied(StateVertex state) {
+        Record extraction = extractions.get(state.getId());
+        return extraction == null || !Boolean.FALSE.equals(extraction.satisfied);
+    }
+
+    /**
+     * @param state a state of the resumed crawl.
+     * @return the DOMs of the frames of the state by their identification, as they were when its
+     * candidates were extracted.
+     */
+    public synchronized ImmutableMap<String, String> getFrameDoms(StateVertex state) {
+        Record extraction = extractions.get(state.getId());
+        if (extraction == null || extraction.frames == null) {
+            return ImmutableMap.of();
+        }
+        return ImmutableMap.copyOf(extraction.frames);
+    }
+
+    /**
+     * @param seed the offset added to the id of an eventable for every repeated access.
+     * @return the highest id of the restored edges without the offset, or <code>0</code>.
+     */
+    public synchronized long getLastEventableId(long seed) {
+        long last = 0;
+        for (Record edge : restoredEdges) {
+            if (edge.id > 0) {
+                last = Math.max(last, edge.id % seed);
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Starts writing the log. A new crawl replaces the log, a resumed crawl appends to it after
+     * dropping a truncated last record, so the first new record starts on a line of its own.
+     *
+     * @param resumed whether the crawl was resumed from the log.
+     */
+    public synchronized void start(boolean resumed) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            if (resumed && file.exists()) {
+                truncateAfterLastLine();
+            }
+            writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(file, resumed), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new CrawljaxException("Could not open checkpoint " + file, e);
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("checkpoint-flusher-%d")
+                .setDaemon(true)
+                .build());
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        graph.addListener(this);
+    }
+
+    private void truncateAfterLastLine() throws IOException {
+        try (RandomAccessFile log = new RandomAccessFile(file, "rw")) {
+            long length = log.length();
+            long end = length;
+            byte[] block = new byte[8192];
+            search:
+            while (end > 0) {
+                int size = (int) Math.min(block.length, end);
+                log.seek(end - size);
+                log.readFully(block, 0, size);
+                for (int i = size - 1; i >= 0; i--) {
+                    if (block[i] == '\n') {
+                        break search;
+                    }
+                    end--;
+                }
+            }
+            if (end < length) {
+                LOG.info("Dropping a truncated record of {} bytes from checkpoint {}", length - end, file);
+                log.setLength(end);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onStateAdded(StateVertex state) {
+        Record record = newRecord(STATE, state);
+        record.name = state.getName();
+        record.url = state.getUrl();
+        record.dom = state.getDom();
+        record.strippedDom = state.getStrippedDom();
+        record.onUrl = state.isOnURL();
+        write(record);
+    }
+
+    @Override
+    public synchronized void onEdgeAdded(Eventable edge) {
+        Record record = new Record();
+        record.type = EDGE;
+        record.id = edge.getId();
+        record.source = edge.getSourceStateVertex().getId();
+        record.target = edge.getTargetStateVertex().getId();
+        record.eventType = edge.getEventType().name();
+        record.how = edge.getIdentification().getHow().name();
+        record.value = edge.getIdentification().getValue();
+        record.frame = edge.getRelatedFrame();
+        if (edge.getElement() != null) {
+            record.tag = edge.getElement().getTag();
+            record.text = edge.getElement().getText();
+            record.attributes = edge.getElement().getAttributes();
+        }
+        write(record);
+    }
+
+    /**
+     * @param state                    the state the candidates were extracted from.
+     * @param crawlConditionsSatisfied whether the state satisfied the crawl conditions.
+     * @param frameDoms                the DOMs of the frames that were inspected, by their
+     *                                 identification.
+     */
+    public synchronized void stateExtracted(
+            StateVertex state, boolean crawlConditionsSatisfied, Map<String, String> frameDoms) {
+        Record record = newRecord(EXTRACTED, state);
+        record.satisfied = crawlConditionsSatisfied;
+        if (!frameDoms.isEmpty()) {
+            record.frames = frameDoms;
+        }
+        write(record);
+    }
+
+    /**
+     * @param state  the state the action was fired from.
+     * @param action the action that was fired.
+     */
+    public synchronized void actionFired(StateVertex state, CandidateCrawlAction action) {
+        Record record = newRecord(FIRED, state);
+        record.action = key(action);
+        write(record);
+        if (pendingExhaustion.get(state.getId()) == action) {
+            pendingExhaustion.remove(state.getId());
+            write(newRecord(EXHAUSTED, state));
+        }
+    }
+
+    /**
+     * @param state the state that has no more actions to fire.
+     */
+    public synchronized void stateExhausted(StateVertex state) {
+        stateExhausted(state, null);
+    }
+
+    /**
+     * @param state    the state that has no more actions to fire.
+     * @param inFlight the last action of the state, which was taken but not fired yet, or
+     *                 <code>null</code>. The state is only recorded as exhausted once that action
+     *                 has fired, so a crawl that dies in between fires it again.
+     */
+    public synchronized void stateExhausted(StateVertex state, CandidateCrawlAction inFlight) {
+        if (inFlight == null) {
+            pendingExhaustion.remove(state.getId());
+            write(newRecord(EXHAUSTED, state));
+        } else {
+            pendingExhaustion.put(state.getId(), inFlight);
+        }
+    }
+
+    private static Record newRecord(String type, StateVertex state) {
+        Record record = new Record();
+        record.type = type;
+        record.state = state.getId();
+        return record;
+    }
+
+    private static String key(CandidateCrawlAction action) {
+        CandidateElement element = action.getCandidateElement();
+        return action.getEventType() + " " + element.getIdentification() + " " + element.getRelatedFrame();
+    }
+
+    private void write(Record record) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(gson.toJson(record));
+            writer.write('\n');
+            unflushed = true;
+        } catch (IOException e) {
+            LOG.warn("Could not write checkpoint, no more checkpoints will be written: {}", e.getMessage());
+            closeQuietly();
+        }
+    }
+
+    private synchronized void flush() {
+        if (writer == null || !unflushed) {
+            return;
+        }
+        try {
+            writer.flush();
+            unflushed = false;
+        } catch (IOException e) {
+            LOG.warn("Could not flush checkpoint, no more checkpoints will be written: {}", e.getMessage());
+            closeQuietly();
+        }
+    }
+
+    /**
+     * Flushes and closes the log.
+     */
+    @Override
+    public synchronized void close() {
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher = null;
+        }
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            LOG.warn("Could not close checkpoint {}: {}", file, e.getMessage());
+        }
+        writer = null;
+    }
+}
@@ -1,14 +1,20 @@
 package com.crawljax.core;
 
+import com.crawljax.browser.BrowserPool;
 import com.crawljax.core.ExitNotifier.ExitStatus;
 import com.crawljax.core.configuration.CrawlRules.FormFillMode;
 import com.crawljax.core.configuration.CrawljaxConfiguration;
 import com.crawljax.core.plugin.Plugins;
+import com.crawljax.core.state.InMemoryStateFlowGraph;
 import com.crawljax.core.state.StateVertex;
 import com.crawljax.di.CrawlSessionProvider;
 import com.crawljax.forms.FormInputValueHelper;
+import com.crawljax.util.ImageSink;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -49,8 +55,18 @@ public class CrawlController implements Callable<CrawlSession> {
 
     private final ExitNotifier exitNotifier;
 
+    private final CrawlCheckpoint checkpoint;
+
+    private final BrowserPool browserPool;
+
+    private final InMemoryStateFlowGraph graph;
+
     private ExitStatus exitReason;
 
+    private Future<?> timer;
+
+    private final List<Future<?>> consumers = new ArrayList<>();
+
     @Inject
     CrawlController(
             ExecutorService executor,
@@ -58,7 +74,10 @@ public class CrawlController implements Callable<CrawlSession> {
             CrawljaxConfiguration config,
             ExitNotifier exitNotifier,
             CrawlSessionProvider crawlSessionProvider,
-            Plugins plugins) {
+            Plugins plugins,
+            CrawlCheckpoint checkpoint,
+            BrowserPool browserPool,
+            InMemoryStateFlowGraph graph) {
         this.executor = executor;
         this.consumerFactory = consumerFactory;
         this.exitNotifier = exitNotifier;
@@ -66,6 +85,9 @@ public class CrawlController implements Callable<CrawlSession> {
         this.plugins = plugins;
         this.crawlSessionProvider = crawlSessionProvider;
         this.maximumCrawlTime = config.getMaximumRuntime();
+        this.checkpoint = checkpoint;
+        this.browserPool = browserPool;
+        this.graph = graph;
     }
 
     /**
@@ -75,22 +97,60 @@ public class CrawlController implements Callable<CrawlSession> {
      */
     @Override
     public CrawlSession call() {
+        return crawl(false);
+    }
+
+    /**
+     * Continue the crawl of the checkpoint in the site output folder. The states and edges of the
+     * checkpoint are restored and only the actions that were not fired yet are crawled. This method
+     * blocks until the crawl is done.
+     *
+     * @return the CrawlSession once the crawl is done.
+     * @throws CrawljaxException when checkpoints are not configured.
+     */
+    public CrawlSession resume() {
+        checkpoint.load();
+        return crawl(true);
+    }
+
+    private CrawlSession crawl(boolean resume) {
         try {
             setMaximumCrawlTimeIfNeeded();
             plugins.runPreCrawlingPlugins(config);
             CrawlTaskConsumer firstConsumer = consumerFactory.get();
             StateVertex firstState = firstConsumer.crawlIndex();
             crawlSessionProvider.setup(firstState, firstConsumer);
+            if (resume) {
+                firstConsumer.resume(checkpoint, firstState);
+            }
+            checkpoint.start(resume);
             // plugins.runOnNewStatePlugins(firstConsumer.getContext(), firstState);
             executeConsumers(firstConsumer);
             return crawlSessionProvider.get();
         } finally {
+            checkpoint.close();
+            browserPool.close();
+            awaitImages();
+            graph.close();
             if (!executor.isShutdown()) {
                 executor.shutdownNow();
             }
         }
     }
 
+    /**
+     * Waits for the screenshots and fragment images that are still queued, so they are written and
+     * stored before the JVM exits and before the state content store is closed.
+     */
+    private void awaitImages() {
+        try {
+            ImageSink.shared().awaitCompletion();
+        } catch (InterruptedException e) {
+            LOG.warn("Interrupted while waiting for the images to be written");
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * @return Same as {@link #call()}
      * @see #call()
@@ -111,7 +171,7 @@ public class CrawlController implements Callable<CrawlSession> {
         if (maximumCrawlTime == 0) {
             return;
         }
-        executor.submit(() -> {
+        timer = executor.submit(() -> {
             try {
                 LOG.debug("Waiting {} before killing the crawler", maximumCrawlTime);
                 Thread.sleep(maximumCrawlTime);
@@ -125,9 +185,9 @@ public class CrawlController implements Callable<CrawlSession> {
 
     private void executeConsumers(CrawlTaskConsumer firstConsumer) {
         LOG.debug("Starting {} consumers", config.getBrowserConfig().getNumberOfBrowsers());
-        executor.submit(firstConsumer);
+        consumers.add(executor.submit(firstConsumer));
         for (int i = 1; i < config.getBrowserConfig().getNumberOfBrowsers(); i++) {
-            executor.submit(consumerFactory.get());
+            consumers.add(executor.submit(consumerFactory.get()));
         }
         try {
             exitReason = exitNotifier.awaitTermination();
@@ -141,12 +201,22 @@ public class CrawlController implements Callable<CrawlSession> {
         }
     }
 
+    /**
+     * Stops the timer and the consumers and waits for them, so the post crawl plugins never run
+     * next to a consumer that is still crawling.
+     */
     private void shutDown() {
         LOG.info("Received shutdown notice. Reason is {}", exitReason);
+        if (timer != null) {
+            timer.cancel(true);
+        }
         executor.shutdownNow();
         try {
             LOG.debug("Waiting for task consumers to stop...");
-            executor.awaitTermination(15, TimeUnit.SECONDS);
+            if (!executor.awaitTermination(15, TimeUnit.SECONDS)) {
+                long running = consumers.stream().filter(consumer -> !consumer.isDone()).count();
+                LOG.warn("{} task consumers did not stop within 15 seconds", running);
+            }
         } catch (InterruptedException e) {
             LOG.warn("Interrupted before being able to shut down executor pool", e);
             exitReason = ExitStatus.ERROR;
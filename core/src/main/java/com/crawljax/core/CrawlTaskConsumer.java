@@ -104,6 +104,16 @@ public class CrawlTaskConsumer implements Callable<Void> {
         return crawler.crawlIndex();
     }
 
+    /**
+     * Restores the crawl of the checkpoint. It should be called once, after {@link #crawlIndex()}.
+     *
+     * @param checkpoint the loaded checkpoint.
+     * @param index      the initial state.
+     */
+    public void resume(CrawlCheckpoint checkpoint, StateVertex index) {
+        crawler.resume(checkpoint, index);
+    }
+
     public CrawlerContext getContext() {
         return crawler.getContext();
     }
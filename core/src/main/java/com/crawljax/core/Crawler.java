@@ -1,7 +1,10 @@
 package com.crawljax.core;
 
+import com.crawljax.browser.BrowserPool;
 import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.condition.ConditionContext;
 import com.crawljax.condition.browserwaiter.WaitConditionChecker;
+import com.crawljax.core.BacktrackPlanner.Route;
 import com.crawljax.core.configuration.CrawlRules;
 import com.crawljax.core.configuration.CrawlScope;
 import com.crawljax.core.configuration.CrawljaxConfiguration;
@@ -33,6 +36,7 @@ import com.crawljax.util.XPathHelper;
 import com.crawljax.vips_selenium.VipsUtils;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import java.awt.Rectangle;
 import java.io.IOException;
@@ -40,6 +44,7 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -81,6 +86,9 @@ public class Crawler {
     private final Provider<InMemoryStateFlowGraph> graphProvider;
     private final StateVertexFactory vertexFactory;
     private final FragmentManager fragmentManager;
+    private final BrowserPool browserPool;
+    private final BacktrackPlanner backtrackPlanner;
+    private final CrawlCheckpoint checkpoint;
     private CrawlPath crawlpath;
 
     @VisibleForTesting
@@ -89,7 +97,7 @@ public class Crawler {
     }
 
     private StateMachine stateMachine;
-    private long nextEventableId = 0;
+    private long nextEventableId;
     private boolean avoidUnrelatedBacktracking = false;
     private boolean UseEquivalentReset = false;
     private boolean avoidDifferentBacktracking = false;
@@ -110,7 +118,10 @@ public class Crawler {
             CandidateElementExtractorFactory elementExtractor,
             Provider<InMemoryStateFlowGraph> graphProvider,
             Plugins plugins,
-            StateVertexFactory vertexFactory) {
+            StateVertexFactory vertexFactory,
+            CrawlCheckpoint checkpoint,
+            BrowserPool browserPool,
+            BacktrackPlanner backtrackPlanner) {
         this.context = context;
         this.graphProvider = graphProvider;
         this.vertexFactory = vertexFactory;
@@ -142,6 +153,10 @@ public class Crawler {
         this.avoidUnrelatedBacktracking = crawlRules.isAvoidUnrelatedBacktracking();
         this.avoidDifferentBacktracking = crawlRules.isAvoidDifferentBacktracking();
         this.UseEquivalentReset = crawlRules.isUseEquivalentReset();
+        this.nextEventableId = checkpoint.getLastEventableId(DUPLICATE_EVENT_SEED);
+        this.browserPool = browserPool;
+        this.backtrackPlanner = backtrackPlanner;
+        this.checkpoint = checkpoint;
     }
 
     public static String printCrawlPath(List<Eventable> path, boolean print) {
@@ -264,10 +279,23 @@ public class Crawler {
      * @param nextTarget
      */
     public void reset(int nextTarget) {
+        reset(nextTarget, browserPool.maintain(browser));
+    }
 
+    /**
+     * Resets crawljax by navigating to home url, after the {@link BrowserPool} maintained the
+     * browser.
+     *
+     * @param nextTarget
+     * @param recycled whether the browser pool just replaced the driver of the browser.
+     */
+    private void reset(int nextTarget, boolean recycled) {
+        if (recycled && basicAuthUrl != null) {
+            browser.goToUrl(basicAuthUrl);
+        }
         browser.handlePopups();
         boolean equivalentResetDone = false;
-        if (UseEquivalentReset) {
+        if (UseEquivalentReset && !recycled) {
             if (stateMachine != null
                     && stateMachine
                             .getCurrentState()
@@ -309,7 +337,9 @@ public class Crawler {
         context.setCrawlPath(crawlpath);
 
         if (!UseEquivalentReset || !equivalentResetDone) {
+            long start = System.nanoTime();
             browser.goToUrl(url);
+            backtrackPlanner.recordLoad(System.nanoTime() - start);
             // Checks the landing page for URL and sets the current page accordingly
             checkOnURLState(previousState);
         }
@@ -320,15 +350,16 @@ public class Crawler {
 
     private void checkOnURLState(StateVertex previousState) {
 
-        StateVertex newState = stateMachine.newStateFor(browser);
+        ConditionContext conditions = new ConditionContext(browser);
+        StateVertex newState = stateMachine.newStateFor(conditions);
         StateVertex clone = stateMachine.getStateFlowGraph().putIfAbsent(newState);
         if (clone == null) {
             stateMachine.setCurrentState(newState);
-            stateMachine.runOnInvariantViolationPlugins(context);
+            stateMachine.runOnInvariantViolationPlugins(context, conditions);
 
             plugins.runOnNewStatePlugins(context, newState);
 
-            parseCurrentPageForCandidateElements();
+            parseCurrentPageForCandidateElements(conditions);
 
             if (newState instanceof HybridStateVertexImpl) {
                 for (StateVertex existing : stateMachine.getOnURLSet()) {
@@ -400,11 +431,20 @@ public class Crawler {
             LOG.error("StateMachine not set yet!! Resetting the browser to start again");
         }
 
-        LOG.info("Resetting the crawler and Going to state {}", crawlTask.getName());
         try {
-            reset(crawlTask.getId());
+            // A recycled browser lost its page, so only a reset can bring it to the state.
+            boolean recycled = browserPool.maintain(browser);
+            if (!recycled && backtrackPlanner.isEnabled() && takeShortcut(crawlTask)) {
+                crawlThroughActions();
+                return;
+            }
+
+            LOG.info("Resetting the crawler and Going to state {}", crawlTask.getName());
+            long start = System.nanoTime();
+            reset(crawlTask.getId(), recycled);
 
             boolean reachable = reachFromHome(crawlTask);
+            backtrackPlanner.record(crawlTask, Route.RESET, crawlpath.size(), reachable, System.nanoTime() - start);
             if (!reachable) {
                 LOG.info("state unreachable: Removing from candidate actions {}", crawlTask.getName());
                 candidateActionCache.purgeActionsForState(crawlTask);
@@ -421,6 +461,106 @@ public class Crawler {
         }
     }
 
+    /**
+     * Tries to reach the state without a reset, on the route the {@link BacktrackPlanner} expects
+     * to be the cheapest. The OnUrlLoad plugins are not run, the URL of the crawl is not loaded.
+     *
+     * @param crawlTask the state to reach.
+     * @return whether the browser is in the state. When it is not, the caller must reset.
+     */
+    private boolean takeShortcut(StateVertex crawlTask) {
+        StateVertex current = stateMachine.getCurrentState();
+        StateFlowGraph graph = stateMachine.getStateFlowGraph();
+        ImmutableList<Eventable> pathFromCurrent = null;
+        int hopsFromIndex = 0;
+        try {
+            pathFromCurrent = graph.getShortestPath(current, crawlTask);
+        } catch (RuntimeException e) {
+            LOG.debug("No path from {} to {}", current.getName(), crawlTask.getName());
+        }
+        try {
+            hopsFromIndex = graph.getShortestPath(graph.getInitialState(), crawlTask).size();
+        } catch (RuntimeException e) {
+            LOG.debug("No path from the index to {}", crawlTask.getName());
+        }
+        Eventable last = crawlpath == null ? null : crawlpath.last();
+        boolean history = last != null
+                && last.getEventType() != EventType.reload
+                && crawlTask.equals(last.getSourceStateVertex())
+                && current.equals(last.getTargetStateVertex());
+        boolean directUrl = crawlTask.getUrl() != null
+                && !crawlTask.getUrl().equals(url.toString())
+                && crawlScope.isInScope(crawlTask.getUrl());
+
+        Route route = backtrackPlanner.plan(
+                crawlTask, pathFromCurrent == null ? -1 : pathFromCurrent.size(), hopsFromIndex, history, directUrl);
+        if (route == Route.RESET) {
+            return false;
+        }
+        LOG.info("Going to state {} by {}", crawlTask.getName(), route);
+        long start = System.nanoTime();
+        boolean reached = false;
+        int hops = 0;
+        try {
+            switch (route) {
+                case CURRENT_PATH:
+                    hops = pathFromCurrent.size();
+                    crawlpath.setBacktrackTarget(crawlTask.getId());
+                    // follow only returns when it reached the target or a near-duplicate of it.
+                    follow(CrawlPath.copyOf(pathFromCurrent, crawlTask.getId()), crawlTask);
+                    reached = true;
+                    break;
+                case HISTORY:
+                    browser.goBack();
+                    reached = browserShows(crawlTask);
+                    if (reached) {
+                        startCrawlPath(crawlTask, crawlpath.immutableCopyWithoutLast());
+                    }
+                    break;
+                case DIRECT_URL:
+                    browser.goToUrl(URI.create(crawlTask.getUrl()));
+                    reached = browserShows(crawlTask);
+                    if (reached) {
+                        startCrawlPath(crawlTask, ImmutableList.of());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (RuntimeException e) {
+            LOG.info("Could not reach {} by {}: {}", crawlTask.getName(), route, e.getMessage());
+            reached = false;
+        }
+        backtrackPlanner.record(crawlTask, route, hops, reached, System.nanoTime() - start);
+        if (!reached) {
+            return false;
+        }
+        crawlDepth.set(0);
+        if (route == Route.CURRENT_PATH && !crawlTask.equals(stateMachine.getCurrentState())) {
+            LOG.info(
+                    "Tried reaching {} but Reached a near duplicate {}",
+                    crawlTask.getName(),
+                    stateMachine.getCurrentState().getName());
+            setBTStatus(false, stateMachine.getCurrentState().getId());
+            candidateActionCache.stateUpdated(crawlTask);
+        } else {
+            stateMachine.setCurrentState(crawlTask);
+            setBTStatus(true, -1);
+        }
+        return true;
+    }
+
+    private boolean browserShows(StateVertex state) {
+        String dom = browser.getStrippedDom();
+        return stateComparator.getStrippedDom(browser, dom).equals(state.getStrippedDom());
+    }
+
+    private void startCrawlPath(StateVertex target, List<Eventable> fromIndex) {
+        context.getSession().addCrawlPath(crawlpath);
+        crawlpath = CrawlPath.copyOf(fromIndex, target.getId());
+        context.setCrawlPath(crawlpath);
+    }
+
     private void setBTStatus(boolean success, int reachedNd) {
         LOG.info("backtrack status: {}, reached NearDuplicate : {} ", success, reachedNd);
         crawlpath.setBacktrackSuccess(success);
@@ -659,6 +799,7 @@ public class Crawler {
                 CandidateElement oldCandidate = clickable.getSourceStateVertex().getCandidateElement(clickable);
 
                 CandidateElement newCandidate = currState.getCandidateElement(clone);
+                CandidateCrawlAction removedAction = null;
 
                 if (newCandidate != null) {
 
@@ -688,7 +829,7 @@ public class Crawler {
                     if (!newCandidate.isDirectAccess()) {
                         // TODO: mark event as fired in candidate cache.
                         LOG.info("BackTracking exploration candidate access {}", clone.getId());
-                        candidateActionCache.removeAction(newCandidate, currState);
+                        removedAction = candidateActionCache.removeAction(newCandidate, currState);
                         fragmentManager.recordAccess(newCandidate, currState);
                     } else {
                         LOG.info(
@@ -703,7 +844,9 @@ public class Crawler {
                             clone.getIdentification().getValue());
                 }
 
-                fireEventWithInputs(clone);
+                if (fireEventWithInputs(clone) && removedAction != null) {
+                    checkpoint.actionFired(currState, removedAction);
+                }
 
             } else {
                 List<FormInput> availableInputs = new ArrayList<>();
@@ -1215,17 +1358,22 @@ public class Crawler {
     private void crawlThroughActionsOld() {
         boolean interrupted = Thread.interrupted();
         CandidateCrawlAction action = candidateActionCache.pollActionOrNull(stateMachine.getCurrentState());
+        ConditionContext conditions = new ConditionContext(browser);
         while (action != null && !interrupted) {
             boolean newStateFound = false;
             CandidateElement element = action.getCandidateElement();
-            if (element.allConditionsSatisfied(browser)) {
+            if (element.allConditionsSatisfied(conditions)) {
                 Eventable event = new Eventable(element, action.getEventType(), getEventableId());
                 //				handleInputElements(event);
                 waitForRefreshTagIfAny(event);
 
                 boolean fired = fireEventWithInputs(event);
+                // The DOM is read lazily, so the next check sees the state after this event, and
+                // shares it with the checks of the state captured from it.
+                conditions = new ConditionContext(browser);
                 if (fired) {
-                    newStateFound = inspectNewState(event);
+                    checkpoint.actionFired(stateMachine.getCurrentState(), action);
+                    newStateFound = inspectNewState(event, conditions);
                 }
             } else {
                 LOG.info("Element {} not clicked because not all crawl conditions were satisfied", element);
@@ -1277,11 +1425,12 @@ public class Crawler {
         boolean interrupted = Thread.interrupted();
         CandidateCrawlAction action =
                 candidateActionCache.pollActionOrNull(stateMachine, context.getFragmentManager(), afterBacktrack);
+        ConditionContext conditions = new ConditionContext(browser);
 
         while (action != null && !interrupted) {
             boolean newStateFound = false;
             CandidateElement element = action.getCandidateElement();
-            if (element.allConditionsSatisfied(browser)) {
+            if (element.allConditionsSatisfied(conditions)) {
                 // set eventable id (based on access)
                 long eventableId = getEventableId();
                 if (element.wasExplored()) {
@@ -1293,14 +1442,18 @@ public class Crawler {
                 }
                 Eventable event = new Eventable(element, action.getEventType(), eventableId);
                 boolean fired = fireEventWithInputs(event);
+                // The DOM is read lazily, so the next check sees the state after this event, and
+                // shares it with the checks of the state captured from it.
+                conditions = new ConditionContext(browser);
                 if (fired) {
+                    checkpoint.actionFired(stateMachine.getCurrentState(), action);
                     try {
                         fragmentManager.recordAccess(action.getCandidateElement(), stateMachine.getCurrentState());
                     } catch (Exception ex) {
                         LOG.error("Could not record access to candidate : " + action.getCandidateElement());
                     }
                     StateVertex previous = stateMachine.getCurrentState();
-                    newStateFound = inspectNewState(event);
+                    newStateFound = inspectNewState(event, conditions);
                     StateVertex now = stateMachine.getCurrentState();
                 } else {
                     LOG.info(
@@ -1369,15 +1522,25 @@ public class Crawler {
     }
 
     boolean inspectNewState(Eventable event) {
+        return inspectNewState(event, new ConditionContext(browser));
+    }
+
+    /**
+     * @param event      the event that was fired.
+     * @param conditions the conditions of the page after the event, which the invariants and crawl
+     *                   conditions of the new state are checked against.
+     * @return whether the event led to a new state.
+     */
+    boolean inspectNewState(Eventable event, ConditionContext conditions) {
         browser.handlePopups();
         if (crawlerNotInScope()) {
             LOG.debug("The browser left the domain/scope. Going back one state...");
             goBackOneState();
             return false;
         } else {
-            StateVertex newState = stateMachine.newStateFor(browser);
+            StateVertex newState = stateMachine.newStateFor(conditions);
             if (domChanged(event, newState)) {
-                return inspectNewDom(event, newState);
+                return inspectNewDom(event, newState, conditions);
             } else {
                 LOG.debug("Dom unchanged");
                 return false;
@@ -1399,21 +1562,21 @@ public class Crawler {
         return false;
     }
 
-    private boolean inspectNewDom(Eventable event, StateVertex newState) {
+    private boolean inspectNewDom(Eventable event, StateVertex newState, ConditionContext conditions) {
         LOG.debug("The DOM has changed. Event added to the crawl path");
         if (event.getId() <= 0) {
             LOG.error("Adding Eventable to Crawlpath has id less than zero {}", event);
         }
         LOG.debug("Added eventable {}", event);
         crawlpath.add(event);
-        boolean isNewState = stateMachine.switchToStateAndCheckIfClone(event, newState, context);
+        boolean isNewState = stateMachine.switchToStateAndCheckIfClone(event, newState, context, conditions);
         if (isNewState) {
             int depth = crawlDepth.incrementAndGet();
             LOG.info("New DOM is a new state! crawl depth is now {}", depth);
             if (maxDepth == depth) {
                 LOG.debug("Maximum depth achieved. Not crawling this state any further");
             } else {
-                parseCurrentPageForCandidateElements();
+                parseCurrentPageForCandidateElements(conditions);
             }
             return true;
         } else {
@@ -1447,15 +1610,35 @@ public class Crawler {
         }
     }
 
-    private void parseCurrentPageForCandidateElements() {
+    private void parseCurrentPageForCandidateElements(ConditionContext conditions) {
         StateVertex currentState = stateMachine.getCurrentState();
         LOG.info("Parsing DOM of state {} for candidate elements", currentState.getName());
-        ImmutableList<CandidateElement> extract = candidateExtractor.extract(currentState);
+        ImmutableList<CandidateElement> extract = extractCandidates(currentState, conditions);
 
         plugins.runPreStateCrawlingPlugins(context, extract, currentState);
         candidateActionCache.addActions(extract, currentState);
     }
 
+    /**
+     * Extracts the candidates of the state in the browser. With checkpoints the outcome of the crawl
+     * conditions and the frame DOMs are recorded, so the candidates can be extracted again when the
+     * state is restored and no longer shown.
+     */
+    private ImmutableList<CandidateElement> extractCandidates(StateVertex state, ConditionContext conditions) {
+        if (!checkpoint.isEnabled()) {
+            return candidateExtractor.extract(state, conditions);
+        }
+        boolean satisfied = candidateExtractor.checkCrawlCondition(conditions);
+        Map<String, String> frameDoms = new LinkedHashMap<>();
+        ImmutableList<CandidateElement> extract = candidateExtractor.extract(state, satisfied, frame -> {
+            String frameDom = browser.getFrameDom(frame);
+            frameDoms.put(frame, frameDom);
+            return frameDom;
+        });
+        checkpoint.stateExtracted(state, satisfied, frameDoms);
+        return extract;
+    }
+
     private void waitForRefreshTagIfAny(final Eventable eventable) {
         if ("meta".equalsIgnoreCase(eventable.getElement().getTag())) {
             Pattern p = Pattern.compile("(\\d+);\\s+URL=(.*)");
@@ -1519,8 +1702,9 @@ public class Crawler {
         plugins.runOnUrlFirstLoadPlugins(context);
 
         plugins.runOnUrlLoadPlugins(context);
+        ConditionContext conditions = new ConditionContext(browser);
         StateVertex index = vertexFactory.createIndex(
-                url.toString(), browser.getStrippedDom(), stateComparator.getStrippedDom(browser), browser);
+                url.toString(), conditions.getStrippedDom(), stateComparator.getStrippedDom(conditions), browser);
 
         index.setOnURL(true);
 
@@ -1530,7 +1714,7 @@ public class Crawler {
         plugins.runOnNewStatePlugins(context, index);
 
         LOG.debug("Parsing the index for candidate elements");
-        ImmutableList<CandidateElement> extract = candidateExtractor.extract(index);
+        ImmutableList<CandidateElement> extract = candidateExtractor.extract(index, conditions);
 
         plugins.runPreStateCrawlingPlugins(context, extract, index);
 
@@ -1539,6 +1723,27 @@ public class Crawler {
         return index;
     }
 
+    /**
+     * Restores the states and edges of the checkpoint in the state-flow graph and queues the actions
+     * that were not fired yet. The candidates are extracted from the restored DOMs, with the crawl
+     * conditions and frame DOMs recorded in the checkpoint, so the restored states are not visited
+     * until one of their actions is fired.
+     *
+     * @param checkpoint the loaded checkpoint.
+     * @param index      the index of the resumed crawl.
+     */
+    public void resume(CrawlCheckpoint checkpoint, StateVertex index) {
+        for (StateVertex state : checkpoint.restoreGraph(index)) {
+            if (state != index && !checkpoint.wasExhausted(state)) {
+                ImmutableMap<String, String> frameDoms = checkpoint.getFrameDoms(state);
+                ImmutableList<CandidateElement> extract = candidateExtractor.extract(
+                        state, checkpoint.wereCrawlConditionsSatisfied(state), frameDoms::get);
+                candidateActionCache.addActions(extract, state);
+            }
+            candidateActionCache.dropFiredActions(state);
+        }
+    }
+
     public CrawlerContext getContext() {
         return context;
     }
@@ -51,7 +51,9 @@ public class CrawljaxRunner implements Callable<CrawlSession> {
     }
 
     /**
-     * Runs Crawljax with the given configuration.
+     * Runs Crawljax with the given configuration. With a {@link
+     * CrawljaxConfiguration.CrawljaxConfigurationBuilder#setStateContentCacheSize(long) state content
+     * cache} the DOMs and screenshots of the states are deleted before the session is returned.
      *
      * @return The {@link CrawlSession} once the Crawl is done.
      */
@@ -64,6 +66,20 @@ public class CrawljaxRunner implements Callable<CrawlSession> {
         return session;
     }
 
+    /**
+     * Resumes the crawl of the checkpoint in the site output folder. The configuration must have a
+     * {@link CrawljaxConfiguration#getCheckpointInterval() checkpoint interval}.
+     *
+     * @return The {@link CrawlSession} once the Crawl is done.
+     */
+    public CrawlSession resume() {
+        Injector injector = Guice.createInjector(new CoreModule(config));
+        controller = injector.getInstance(CrawlController.class);
+        CrawlSession session = controller.resume();
+        reason = controller.getReason();
+        return session;
+    }
+
     /**
      * Stops Crawljax. It will try to shutdown gracefully and run the {@link PostCrawlingPlugin}s.
      */
@@ -1,7 +1,10 @@
 package com.crawljax.core;
 
 import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.condition.ConditionContext;
 import com.crawljax.condition.eventablecondition.EventableConditionChecker;
+import com.crawljax.util.FingerprintSet;
+import com.google.common.hash.HashCode;
 
 /**
  * This interface denotes all the operations a CandidateExtractor can execute.
@@ -18,12 +21,21 @@ public interface ExtractorManager {
      */
     boolean isChecked(String element);
 
+    /**
+     * Check if an element is already checked, given the {@link FingerprintSet#fingerprint} of the
+     * string that identifies it.
+     *
+     * @param fingerprint the fingerprint of the element
+     * @return true if the element is already checked
+     */
+    boolean isChecked(HashCode fingerprint);
+
     /**
      * Mark a given element as checked to prevent duplicate work. A elements is only added when it is
      * not already in the set of checked elements.
      *
      * @param candidateElement the element that is checked
-     * @return true if !contains(candidateElement.uniqueString)
+     * @return true if !contains(candidateElement.uniqueFingerprint)
      */
     boolean markChecked(CandidateElement candidateElement);
 
@@ -54,4 +66,12 @@ public interface ExtractorManager {
      * @return true if one or more CrawlConditions stratifies or non is specified.
      */
     boolean checkCrawlCondition(EmbeddedBrowser browser);
+
+    /**
+     * Check if one or more CrawlConditions matches the state in the context.
+     *
+     * @param context the state to check, shared with the other checks of that state.
+     * @return true if one or more CrawlConditions stratifies or non is specified.
+     */
+    boolean checkCrawlCondition(ConditionContext context);
 }
@@ -0,0 +1,203 @@
+package com.crawljax.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The ids of the states with unfired actions, kept in a deque per thread. A state is added to the
+ * deque of the thread that found it, which is the thread of the browser that is closest to it. A
+ * thread takes the state it added last, so its browser rarely has to go far. When its own deque is
+ * empty it steals the oldest state of another deque, choosing the one that is cheapest to reach
+ * from its browser. Every deque has its own lock, so threads only meet when they steal.
+ * <p>
+ * Deques of threads that are not crawling, like the one that crawls the index, are only stolen
+ * from.
+ */
+class StealingTaskQueue {
+
+    private final List<Deque<Integer>> deques = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Deque<Integer>> local = ThreadLocal.withInitial(this::newDeque);
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger idle = new AtomicInteger();
+    private final AtomicInteger steals = new AtomicInteger();
+    private final Lock idleLock = new ReentrantLock();
+    private final Condition added = idleLock.newCondition();
+
+    private Deque<Integer> newDeque() {
+        Deque<Integer> deque = new ArrayDeque<>();
+        deques.add(deque);
+        return deque;
+    }
+
+    /**
+     * @param id the state to add to the deque of the calling thread.
+     */
+    void add(int id) {
+        Deque<Integer> deque = local.get();
+        synchronized (deque) {
+            deque.addLast(id);
+        }
+        size.incrementAndGet();
+        if (idle.get() > 0) {
+            idleLock.lock();
+            try {
+                added.signalAll();
+            } finally {
+                idleLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Takes the last state of the deque of the calling thread, or steals the oldest state of another
+     * deque. Blocks until there is a state.
+     *
+     * @param cost the expected cost to reach a state from the browser of the calling thread.
+     * @return the id of the state.
+     * @throws InterruptedException when the thread is interrupted while it waits.
+     */
+    int take(ToDoubleFunction<Integer> cost) throws InterruptedException {
+        while (true) {
+            Integer id = poll(cost);
+            if (id != null) {
+                return id;
+            }
+            idleLock.lockInterruptibly();
+            idle.incrementAndGet();
+            try {
+                while (size.get() == 0) {
+                    added.await();
+                }
+            } finally {
+                idle.decrementAndGet();
+                idleLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @param cost the expected cost to reach a state from the browser of the calling thread.
+     * @return the id of a state or <code>null</code> if there is none.
+     */
+    Integer poll(ToDoubleFunction<Integer> cost) {
+        Deque<Integer> own = local.get();
+        Integer id;
+        synchronized (own) {
+            id = own.pollLast();
+        }
+        if (id != null) {
+            size.decrementAndGet();
+            return id;
+        }
+        while (size.get() > 0) {
+            Deque<Integer> victim = null;
+            Integer target = null;
+            double lowest = Double.MAX_VALUE;
+            for (Deque<Integer> deque : deques) {
+                if (deque == own) {
+                    continue;
+                }
+                Integer oldest;
+                synchronized (deque) {
+                    oldest = deque.peekFirst();
+                }
+                if (oldest != null) {
+                    double expected = cost.applyAsDouble(oldest);
+                    if (victim == null || expected < lowest) {
+                        victim = deque;
+                        target = oldest;
+                        lowest = expected;
+                    }
+                }
+            }
+            if (victim == null) {
+                return null;
+            }
+            synchronized (victim) {
+                if (target.equals(victim.peekFirst())) {
+                    victim.pollFirst();
+                    size.decrementAndGet();
+                    steals.incrementAndGet();
+                    return target;
+                }
+            }
+            // Another thread took it first, look again.
+        }
+        return null;
+    }
+
+    /**
+     * @param id the state to remove.
+     * @return the number of times the state was in the queue.
+     */
+    int removeAll(int id) {
+        int removed = 0;
+        for (Deque<Integer> deque : deques) {
+            synchronized (deque) {
+                Iterator<Integer> iterator = deque.iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next() == id) {
+                        iterator.remove();
+                        removed++;
+                    }
+                }
+            }
+        }
+        size.addAndGet(-removed);
+        return removed;
+    }
+
+    /**
+     * @param id the state to remove.
+     * @return whether the state was in the queue.
+     */
+    boolean removeOne(int id) {
+        for (Deque<Integer> deque : deques) {
+            synchronized (deque) {
+                if (deque.removeFirstOccurrence(id)) {
+                    size.decrementAndGet();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the states in the queue, oldest first per deque.
+     */
+    List<Integer> snapshot() {
+        List<Integer> ids = new ArrayList<>(Math.max(size.get(), 0));
+        for (Deque<Integer> deque : deques) {
+            synchronized (deque) {
+                ids.addAll(deque);
+            }
+        }
+        return ids;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * @return the number of states that were taken from the deque of another thread.
+     */
+    int getSteals() {
+        return steals.get();
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+}
@@ -1,7 +1,9 @@
 package com.crawljax.core;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.crawljax.core.configuration.BrowserConfiguration;
 import com.crawljax.core.configuration.CrawlRules;
 import com.crawljax.core.state.Eventable;
@@ -13,19 +15,18 @@ import com.crawljax.forms.FormInput;
 import com.crawljax.fragmentation.FragmentManager;
 import com.crawljax.metrics.MetricsModule;
 import com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl;
+import com.google.common.collect.ConcurrentHashMultiset;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Queues;
+import com.google.common.collect.Multiset;
 import com.google.common.util.concurrent.Striped;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
@@ -42,12 +43,19 @@ public class UnfiredFragmentCandidates {
 
     private static int MAX_REPEAT = 2;
 
-    private final Map<Integer, List<CandidateCrawlAction>> cache;
-    private final BlockingQueue<Integer> statesWithCandidates;
+    private final Map<Integer, CandidateActionQueue> cache;
+    private final StealingTaskQueue statesWithCandidates;
+
+    /**
+     * The ids in {@link #statesWithCandidates}, for constant time lookups.
+     */
+    private final Multiset<Integer> queuedStates;
     private final Striped<Lock> locks;
     private final Provider<StateFlowGraph> sfg;
+    private final CrawlCheckpoint checkpoint;
     private final Counter crawlerLostCount;
     private final Counter unfiredActionsCount;
+    private final Timer bestActionLatency;
     private final Map<Integer, List<CandidateCrawlAction>> unreachableCache;
 
     //	private StateVertex nextBestState = null;
@@ -56,11 +64,13 @@ public class UnfiredFragmentCandidates {
     private final List<Eventable> skipInputsForPath;
     private final Map<Long, List<FormInput>> inputMap = new HashMap<>();
     private final boolean applyNonSelAdvantage;
-    private final ReadWriteLock consumersStateLock;
-    private final Lock consumersWriteLock;
-    private final Lock consumersReadLock;
-    private int runningConsumers;
-    private int pendingStates;
+    private final BacktrackPlanner backtrackPlanner;
+
+    /**
+     * The number of running consumers times 2<sup>32</sup> plus the number of pending states, so
+     * both change and are read at once without a lock.
+     */
+    private final AtomicLong consumersAndPendingStates = new AtomicLong();
 
     private boolean unexploredStates = true;
 
@@ -68,79 +78,57 @@ public class UnfiredFragmentCandidates {
 
     @Inject
     UnfiredFragmentCandidates(
-            BrowserConfiguration config, Provider<StateFlowGraph> sfg, MetricRegistry registry, CrawlRules crawlRules) {
+            BrowserConfiguration config,
+            Provider<StateFlowGraph> sfg,
+            MetricRegistry registry,
+            CrawlRules crawlRules,
+            CrawlCheckpoint checkpoint,
+            BacktrackPlanner backtrackPlanner) {
         this.sfg = sfg;
+        this.checkpoint = checkpoint;
+        this.backtrackPlanner = backtrackPlanner;
         cache = Maps.newHashMap();
         unreachableCache = Maps.newHashMap();
         skipInputs = new ArrayList<>();
         skipInputsForPath = new ArrayList<>();
-        statesWithCandidates = Queues.newLinkedBlockingQueue();
+        statesWithCandidates = new StealingTaskQueue();
+        queuedStates = ConcurrentHashMultiset.create();
         // Every browser gets a lock.
         locks = Striped.lock(config.getNumberOfBrowsers());
 
         crawlerLostCount = registry.register(MetricsModule.EVENTS_PREFIX + "crawler_lost", new Counter());
         unfiredActionsCount = registry.register(MetricsModule.EVENTS_PREFIX + "unfired_actions", new Counter());
+        bestActionLatency = registry.register(MetricsModule.EVENTS_PREFIX + "best_action_latency", new Timer());
+        registry.register(MetricsModule.EVENTS_PREFIX + "stolen_tasks", (Gauge<Integer>) statesWithCandidates::getSteals);
 
         applyNonSelAdvantage = crawlRules.isApplyNonSelAdvantage();
         skipExploredActions = crawlRules.isSkipExploredActions();
         MAX_REPEAT = crawlRules.getMaxRepeatExploredActions();
         restoreConnectedEdges = crawlRules.isRestoreConnectedEdges();
-
-        consumersStateLock = new ReentrantReadWriteLock();
-        consumersWriteLock = consumersStateLock.writeLock();
-        consumersReadLock = consumersStateLock.readLock();
     }
 
     private CandidateCrawlAction getBestAction(
-            List<CandidateCrawlAction> availableActions, StateVertex state, FragmentManager fragmentManager) {
+            CandidateActionQueue queue, StateVertex state, FragmentManager fragmentManager) {
         if (state.getRootFragment() != null && !state.getRootFragment().isAccessTransferred()) {
             fragmentManager.setAccess(state);
         }
-        long start = System.currentTimeMillis();
-        boolean unexploredActionFound = false;
-        double maxInfluence = 0.0;
-        double maxExploredInfluence = 0.0;
-        CandidateCrawlAction bestExploredAction = null;
-        CandidateCrawlAction bestAction = null;
-        try {
-            for (CandidateCrawlAction action : availableActions) {
-                CandidateElement element = action.getCandidateElement();
-                if (element.isDirectAccess() || element.getEquivalentAccess() >= MAX_REPEAT) {
-                    continue;
-                }
-                if (unexploredActionFound) {
-                    if (element.wasExplored()) {
-                        continue;
-                    }
-                }
-
-                double influence = fragmentManager.calculateCandidateInfluence(element);
-                double duplicationFactor = fragmentManager.calculateDuplicationFactor(element, state);
-                if (!element.wasExplored()) {
-                    unexploredActionFound = true;
-                    if (influence * duplicationFactor > maxInfluence) {
-                        maxInfluence = influence * duplicationFactor;
-                        bestAction = action;
-                    }
-                } else {
-                    if (influence * duplicationFactor > maxExploredInfluence) {
-                        maxExploredInfluence = influence * duplicationFactor;
-                        bestExploredAction = action;
-                    }
-                }
-            }
-            if (bestAction != null) {
-                LOG.info("best {}", bestAction);
+        try (Timer.Context ignored = bestActionLatency.time()) {
+            CandidateCrawlAction bestAction = queue.best(
+                    fragmentManager,
+                    MAX_REPEAT,
+                    element -> fragmentManager.calculateCandidateInfluence(element)
+                            * fragmentManager.calculateDuplicationFactor(element, state));
+            if (bestAction == null) {
+                LOG.info("No eligible action in {}", state.getName());
+            } else if (bestAction.getCandidateElement().wasExplored()) {
+                LOG.info("already explored {}", bestAction);
             } else {
-                LOG.info("already explored {}", bestExploredAction);
+                LOG.info("best {}", bestAction);
             }
-            return (bestAction != null) ? bestAction : bestExploredAction;
+            return bestAction;
         } catch (Exception ex) {
             LOG.error("Error retrieving best action. Returning null...");
             LOG.debug(ex.getMessage());
-        } finally {
-            long end = System.currentTimeMillis();
-            LOG.info("Time taken to find Best Action : " + (end - start) + " millis");
         }
         return null;
     }
@@ -162,7 +150,7 @@ public class UnfiredFragmentCandidates {
             if (unreachableCache.get(state.getId()) != null) {
                 rediscoveredState(state);
             }
-            List<CandidateCrawlAction> queue = cache.get(state.getId());
+            CandidateActionQueue queue = cache.get(state.getId());
 
             if (queue == null) {
                 return bestAction;
@@ -183,7 +171,7 @@ public class UnfiredFragmentCandidates {
                     if (unexploredStates && !afterBacktrack) {
                         try {
                             bestState = fragmentManager.getClosestUnexploredState(
-                                    state, stateMachine.getOnURLSet(), statesWithCandidates, applyNonSelAdvantage);
+                                    state, stateMachine.getOnURLSet(), queuedStates.elementSet(), applyNonSelAdvantage);
                         } catch (Exception ex) {
                             LOG.error("Error getting closest unexplored state", ex.getMessage());
                         }
@@ -236,6 +224,7 @@ public class UnfiredFragmentCandidates {
                 LOG.debug("All actions polled for state {}", state.getName());
                 cache.remove(state.getId());
                 removeStateFromQueue(state.getId());
+                checkpoint.stateExhausted(state, bestAction);
                 LOG.debug("There are now {} states with unfinished actions", cache.size());
             }
             return bestAction;
@@ -279,16 +268,25 @@ public class UnfiredFragmentCandidates {
     }
 
     private void removeStateFromQueue(int id) {
-        consumersWriteLock.lock();
-        try {
-            while (statesWithCandidates.remove(id)) {
-                LOG.trace("Removed id {} from the queue", id);
-                pendingStates--;
-            }
-            LOG.debug("statesWithCandidates={}", statesWithCandidates);
-        } finally {
-            consumersWriteLock.unlock();
+        int removed = statesWithCandidates.removeAll(id);
+        if (removed > 0) {
+            queuedStates.remove(id, removed);
+            LOG.trace("Removed id {} {} times from the queue", id, removed);
+            count(0, -removed);
         }
+        LOG.debug("statesWithCandidates={}", statesWithCandidates);
+    }
+
+    private long count(int consumers, int pending) {
+        return consumersAndPendingStates.addAndGet(((long) consumers << 32) + pending);
+    }
+
+    private static int pendingStates(long counts) {
+        return (int) counts;
+    }
+
+    private static int runningConsumers(long counts) {
+        return (int) ((counts - pendingStates(counts)) >> 32);
     }
 
     /**
@@ -318,46 +316,38 @@ public class UnfiredFragmentCandidates {
         try {
             lock.lock();
             LOG.debug("Adding {} crawl actions for state {}", actions.size(), state.getId());
-            if (cache.containsKey(state.getId())) {
-                cache.get(state.getId()).addAll(actions);
-            } else {
-                cache.put(state.getId(), actions);
-            }
+            cache.computeIfAbsent(state.getId(), id -> new CandidateActionQueue())
+                    .addAll(actions);
         } finally {
             lock.unlock();
         }
 
-        consumersWriteLock.lock();
-        try {
-            addPendingState(state);
-        } finally {
-            consumersWriteLock.unlock();
-        }
+        addPendingState(state);
     }
 
+    /**
+     * Adds the state to the tasks of the calling thread, whose browser found it or was just in it.
+     */
     private void addPendingState(StateVertex state) {
-        pendingStates++;
+        long counts = count(0, 1);
+        queuedStates.add(state.getId());
         statesWithCandidates.add(state.getId());
-        LOG.info("There are {} states with unfired actions: {}", pendingStates, statesWithCandidates);
+        LOG.info("There are {} states with unfired actions: {}", pendingStates(counts), statesWithCandidates);
     }
 
     /**
      * @return If there are any pending actions to be crawled (and no state is being crawled).
      */
     public boolean isEmpty() {
-        consumersReadLock.lock();
-        try {
-            boolean empty = runningConsumers == 0 && pendingStates == 0;
-            LOG.debug(
-                    "isEmpty={} runningConsumers={} pendingStates={} statesWithCandidates={}",
-                    empty,
-                    runningConsumers,
-                    pendingStates,
-                    statesWithCandidates);
-            return empty;
-        } finally {
-            consumersReadLock.unlock();
-        }
+        long counts = consumersAndPendingStates.get();
+        boolean empty = counts == 0;
+        LOG.debug(
+                "isEmpty={} runningConsumers={} pendingStates={} statesWithCandidates={}",
+                empty,
+                runningConsumers(counts),
+                pendingStates(counts),
+                statesWithCandidates);
+        return empty;
     }
 
     /**
@@ -368,19 +358,16 @@ public class UnfiredFragmentCandidates {
     public StateVertex awaitNewTask(
             StateVertex currentState, List<StateVertex> onURLSet, FragmentManager fragmentManager)
             throws InterruptedException {
-        if (currentState == null) {
-            int id = consumeTask();
+        if (currentState == null || !(currentState instanceof HybridStateVertexImpl)) {
+            int id = consumeTask(currentState);
+            LOG.debug("New task polled for state {}", id);
             return sfg.get().getById(id);
         }
 
-        if (!(currentState instanceof HybridStateVertexImpl)) {
-            return awaitNewTask();
-        }
-
         StateVertex next = null;
         try {
             next = fragmentManager.getClosestUnexploredState(
-                    currentState, onURLSet, statesWithCandidates, applyNonSelAdvantage);
+                    currentState, onURLSet, queuedStates.elementSet(), applyNonSelAdvantage);
         } catch (Exception ignored) {
 
         }
@@ -390,7 +377,7 @@ public class UnfiredFragmentCandidates {
             if (fragmentManager.getAllFragments() == null) {
                 return null;
             }
-            int id = consumeTask();
+            int id = consumeTask(currentState);
             return sfg.get().getById(id);
         }
 
@@ -405,29 +392,38 @@ public class UnfiredFragmentCandidates {
     }
 
     public StateVertex awaitNewTask() throws InterruptedException {
-        int id = consumeTask();
+        int id = consumeTask(null);
         LOG.debug("New task polled for state {}", id);
         return sfg.get().getById(id);
     }
 
-    private int consumeTask() throws InterruptedException {
-        int id = statesWithCandidates.take();
+    /**
+     * @param currentState the state the browser of the calling thread is in, or <code>null</code>.
+     * @return a state of the calling thread or, when it has none, the state of another thread that
+     * is the cheapest to reach.
+     */
+    private int consumeTask(StateVertex currentState) throws InterruptedException {
+        int id = statesWithCandidates.take(target -> expectedCost(currentState, target));
+        queuedStates.remove(id);
+        long counts = count(1, -1);
+        LOG.debug(
+                "Took state {}, there are {} running consumers and {} pending states",
+                id,
+                runningConsumers(counts),
+                pendingStates(counts));
+        return id;
+    }
 
-        consumersWriteLock.lock();
-        try {
-            runningConsumers++;
-            pendingStates--;
-
-            LOG.debug(
-                    "Took state {}, there are {} running consumers and {} pending states",
-                    id,
-                    runningConsumers,
-                    pendingStates);
-        } finally {
-            consumersWriteLock.unlock();
+    private double expectedCost(StateVertex currentState, int targetId) {
+        StateFlowGraph graph = sfg.get();
+        StateVertex target = graph.getById(targetId);
+        if (target == null) {
+            return Double.MAX_VALUE;
         }
-
-        return id;
+        int hopsFromCurrent = currentState == null ? -1 : graph.getHops(currentState, target);
+        StateVertex index = graph.getInitialState();
+        int hopsFromIndex = index == null ? 0 : graph.getHops(index, target);
+        return backtrackPlanner.expectedCost(hopsFromCurrent, hopsFromIndex);
     }
 
     /**
@@ -443,37 +439,32 @@ public class UnfiredFragmentCandidates {
             return;
         }
 
-        consumersWriteLock.lock();
+        int stateId = state.getId();
+        Lock lock = locks.get(stateId);
         try {
-            runningConsumers--;
-
-            int stateId = state.getId();
-            Lock lock = locks.get(stateId);
-            try {
-                lock.lock();
-                List<CandidateCrawlAction> queue = cache.get(stateId);
-                if (queue != null && !queue.isEmpty()) {
-                    addPendingState(state);
-                }
-            } finally {
-                lock.unlock();
+            lock.lock();
+            CandidateActionQueue queue = cache.get(stateId);
+            if (queue != null && !queue.isEmpty()) {
+                // Added before the consumer stops running, so the crawl never looks done in between.
+                addPendingState(state);
             }
-
-            LOG.debug(
-                    "Task done={} runningConsumers={} pendingStates={} statesWithCandidates={}",
-                    stateId,
-                    runningConsumers,
-                    pendingStates,
-                    statesWithCandidates);
         } finally {
-            consumersWriteLock.unlock();
+            lock.unlock();
         }
+        long counts = count(-1, 0);
+
+        LOG.debug(
+                "Task done={} runningConsumers={} pendingStates={} statesWithCandidates={}",
+                stateId,
+                runningConsumers(counts),
+                pendingStates(counts),
+                statesWithCandidates);
     }
 
     public StateVertex getNextNonDuplicate() {
         StateVertex nextUnique = null;
         int nextUniqueId = -1;
-        for (int id : statesWithCandidates) {
+        for (int id : statesWithCandidates.snapshot()) {
             StateVertex forId = sfg.get().getById(id);
             if (!forId.hasNearDuplicate()) {
                 nextUnique = forId;
@@ -486,17 +477,12 @@ public class UnfiredFragmentCandidates {
             return null;
         }
 
-        while (true) {
-            try {
-                int id = consumeTask();
-                if (id == nextUniqueId) {
-                    break;
-                }
-            } catch (InterruptedException e) {
-                LOG.error("Interruped while finding next unique state");
-                LOG.debug(e.getMessage());
-            }
+        if (!statesWithCandidates.removeOne(nextUniqueId)) {
+            LOG.debug("State {} was taken by another consumer", nextUniqueId);
+            return null;
         }
+        queuedStates.remove(nextUniqueId);
+        count(1, -1);
 
         return nextUnique;
     }
@@ -507,11 +493,11 @@ public class UnfiredFragmentCandidates {
             lock.lock();
             LOG.debug("Removing tasks for target state {}", crawlTask.getName());
             removeStateFromQueue(crawlTask.getId());
-            List<CandidateCrawlAction> removed = cache.remove(crawlTask.getId());
+            CandidateActionQueue removed = cache.remove(crawlTask.getId());
             if (removed != null) {
                 unfiredActionsCount.inc(removed.size());
                 LOG.info("Placing purged actions in unreachable cache for {}", crawlTask.getName());
-                unreachableCache.put(crawlTask.getId(), removed);
+                unreachableCache.put(crawlTask.getId(), removed.toList());
             }
         } finally {
             lock.unlock();
@@ -583,14 +569,19 @@ public class UnfiredFragmentCandidates {
         purgeActionsForState(crawlTask);
     }
 
-    public void removeAction(CandidateElement candidate, StateVertex state) {
+    /**
+     * @param candidate the candidate whose action is fired from outside the queue.
+     * @param state     the state of the candidate.
+     * @return the removed action, or <code>null</code> if it was not queued.
+     */
+    public CandidateCrawlAction removeAction(CandidateElement candidate, StateVertex state) {
         if (unreachableCache.get(state.getId()) != null) {
             rediscoveredState(state);
         }
-        if (statesWithCandidates.contains(state.getId())) {
-            List<CandidateCrawlAction> availableActions = cache.get(state.getId());
+        if (queuedStates.contains(state.getId())) {
+            CandidateActionQueue availableActions = cache.get(state.getId());
             CandidateCrawlAction toRemove = null;
-            for (CandidateCrawlAction action : availableActions) {
+            for (CandidateCrawlAction action : availableActions.toList()) {
                 if (action.getCandidateElement().equals(candidate)) {
                     toRemove = action;
                     break;
@@ -603,8 +594,39 @@ public class UnfiredFragmentCandidates {
                 LOG.debug("All actions polled for state {}", state.getName());
                 cache.remove(state.getId());
                 removeStateFromQueue(state.getId());
+                checkpoint.stateExhausted(state, toRemove);
                 LOG.debug("There are now {} states with unfinished actions", cache.size());
             }
+            return toRemove;
+        }
+        return null;
+    }
+
+    /**
+     * Drops the actions of a state that were already taken before the crawl was resumed.
+     *
+     * @param state a state restored from the checkpoint.
+     */
+    void dropFiredActions(StateVertex state) {
+        Lock lock = locks.get(state.getId());
+        try {
+            lock.lock();
+            CandidateActionQueue queue = cache.get(state.getId());
+            if (queue == null) {
+                return;
+            }
+            if (checkpoint.wasExhausted(state)) {
+                queue.clear();
+            } else {
+                queue.removeIf(action -> checkpoint.wasFired(state, action));
+            }
+            if (queue.isEmpty()) {
+                LOG.debug("All actions of {} were fired before the crawl was resumed", state.getName());
+                cache.remove(state.getId());
+                removeStateFromQueue(state.getId());
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -613,15 +635,16 @@ public class UnfiredFragmentCandidates {
         Lock lock = locks.get(state.getId());
         try {
             lock.lock();
-            List<CandidateCrawlAction> queue = cache.get(state.getId());
+            CandidateActionQueue queue = cache.get(state.getId());
             if (queue == null) {
                 return null;
             } else {
-                CandidateCrawlAction action = queue.remove(0);
+                CandidateCrawlAction action = queue.pollFirst();
                 if (queue.isEmpty()) {
                     LOG.debug("All actions polled for state {}", state.getName());
                     cache.remove(state.getId());
                     removeStateFromQueue(state.getId());
+                    checkpoint.stateExhausted(state, action);
                     LOG.debug("There are now {} states with unfinished actions", cache.size());
                 }
                 return action;
@@ -12,6 +12,11 @@ public class BrowserOptions {
      */
     private boolean USE_CDP = true;
 
+    private int spareBrowsers = 0;
+    private int recycleAfterEvents = 0;
+    private long maxBrowserHeapSize = 0;
+    private long maxPingLatency = 0;
+
     public BrowserOptions() {
         this.pixelDensity = -1;
     }
@@ -66,6 +71,80 @@ public class BrowserOptions {
         this.pixelDensity = pixelDensity;
     }
 
+    /**
+     * @return the number of browsers that are started ahead to replace a recycled browser.
+     */
+    public int getSpareBrowsers() {
+        return spareBrowsers;
+    }
+
+    /**
+     * Keeps browsers started ahead, so a browser that is recycled is replaced without waiting for
+     * a new one to start. Only the default browser builder is pooled.
+     *
+     * @param spareBrowsers the number of spare browsers, <code>0</code> to start a replacement only
+     *                      when it is needed.
+     */
+    public void setSpareBrowsers(int spareBrowsers) {
+        this.spareBrowsers = spareBrowsers;
+    }
+
+    /**
+     * @return the number of events after which a browser is replaced, or <code>0</code>.
+     */
+    public int getRecycleAfterEvents() {
+        return recycleAfterEvents;
+    }
+
+    /**
+     * @param recycleAfterEvents replace the browser once it fired this many events, <code>0</code>
+     *                           to never replace it for that reason.
+     */
+    public void setRecycleAfterEvents(int recycleAfterEvents) {
+        this.recycleAfterEvents = recycleAfterEvents;
+    }
+
+    /**
+     * @return the JavaScript heap size in bytes above which a browser is replaced, or
+     * <code>0</code>.
+     */
+    public long getMaxBrowserHeapSize() {
+        return maxBrowserHeapSize;
+    }
+
+    /**
+     * Only browsers that report their heap size, like Chrome, are replaced for that reason.
+     *
+     * @param maxBrowserHeapSize replace the browser once its JavaScript heap is larger than this
+     *                           many bytes, <code>0</code> to never replace it for that reason.
+     */
+    public void setMaxBrowserHeapSize(long maxBrowserHeapSize) {
+        this.maxBrowserHeapSize = maxBrowserHeapSize;
+    }
+
+    /**
+     * @return the time in milliseconds a browser may take to answer a health check, or
+     * <code>0</code>.
+     */
+    public long getMaxPingLatency() {
+        return maxPingLatency;
+    }
+
+    /**
+     * @param maxPingLatency replace the browser when it does not answer a script within this many
+     *                       milliseconds, <code>0</code> to not check the browser.
+     */
+    public void setMaxPingLatency(long maxPingLatency) {
+        this.maxPingLatency = maxPingLatency;
+    }
+
+    /**
+     * @return whether browsers are checked and replaced during the crawl.
+     */
+    public boolean isPooled() {
+        return spareBrowsers > 0 || recycleAfterEvents > 0 || maxBrowserHeapSize > 0 || maxPingLatency > 0;
+    }
+
     @Override
     public String toString() {
         return this.getClass().getSimpleName() + "( pixelDensity: "
@@ -48,6 +48,7 @@ public class CrawlRules {
     private boolean crawlHiddenAnchors = false;
     private long waitAfterReloadUrl = DEFAULT_WAIT_AFTER_RELOAD;
     private long waitAfterEvent = DEFAULT_WAIT_AFTER_EVENT;
+    private long domQuiescencePeriod = 0;
     private boolean followExternalLinks = false;
     private CrawlPriorityMode crawlPriorityMode = CrawlPriorityMode.NORMAL;
     private boolean crawlNearDuplicates = true;
@@ -55,6 +56,7 @@ public class CrawlRules {
     private boolean applyNonSelAdvantage = false;
     private boolean avoidUnrelatedBacktracking = false;
     private boolean useEquivalentReset = false;
+    private boolean backtrackShortcuts = false;
     private boolean avoidDifferentBacktracking = false;
     private boolean skipExploredActions = true;
     private int maxRepeatExploredActions = 2;
@@ -129,6 +131,17 @@ public class CrawlRules {
         return waitAfterEvent;
     }
 
+    /**
+     * @return in milliseconds, or 0 when the full waits are used.
+     */
+    public long getDomQuiescencePeriod() {
+        return domQuiescencePeriod;
+    }
+
+    public boolean isWaitForDomQuiescence() {
+        return domQuiescencePeriod > 0;
+    }
+
     public ImmutableSortedSet<String> getIgnoredFrameIdentifiers() {
         return ignoredFrameIdentifiers;
     }
@@ -186,6 +199,10 @@ public class CrawlRules {
         return useEquivalentReset;
     }
 
+    public boolean isBacktrackShortcuts() {
+        return backtrackShortcuts;
+    }
+
     public boolean isSkipExploredActions() {
         return skipExploredActions;
     }
@@ -214,6 +231,7 @@ public class CrawlRules {
                 crawlHiddenAnchors,
                 waitAfterReloadUrl,
                 waitAfterEvent,
+                domQuiescencePeriod,
                 followExternalLinks);
     }
 
@@ -235,6 +253,7 @@ public class CrawlRules {
                     && Objects.equal(this.crawlHiddenAnchors, that.crawlHiddenAnchors)
                     && Objects.equal(this.waitAfterReloadUrl, that.waitAfterReloadUrl)
                     && Objects.equal(this.waitAfterEvent, that.waitAfterEvent)
+                    && Objects.equal(this.domQuiescencePeriod, that.domQuiescencePeriod)
                     && Objects.equal(this.followExternalLinks, that.followExternalLinks);
         }
         return false;
@@ -259,6 +278,7 @@ public class CrawlRules {
                 .add("crawlHiddenAnchors", crawlHiddenAnchors)
                 .add("waitAfterReloadUrl", waitAfterReloadUrl)
                 .add("waitAfterEvent", waitAfterEvent)
+                .add("domQuiescencePeriod", domQuiescencePeriod)
                 .add("followExternalLinks", followExternalLinks)
                 .toString();
     }
@@ -352,6 +372,19 @@ public class CrawlRules {
             crawlRules.useEquivalentReset = useEquivalentReset;
         }
 
+        /**
+         * Reach the next state to crawl without reloading the URL when that is expected to be
+         * cheaper: by following events from the current state, by going back in the browser
+         * history or by loading the URL of the state. The crawler learns which of these work for
+         * every state and falls back to the reload when they fail. Default is <code>false</code>.
+         *
+         * @param backtrackShortcuts whether to use the shortcuts.
+         */
+        public CrawlRulesBuilder setBacktrackShortcuts(boolean backtrackShortcuts) {
+            crawlRules.backtrackShortcuts = backtrackShortcuts;
+            return this;
+        }
+
         /**
          * maxRepeat default value is 2
          *
@@ -521,6 +554,21 @@ public class CrawlRules {
             return this;
         }
 
+        /**
+         * Stop waiting after an event or a reload as soon as the page has settled: no DOM mutations
+         * during the quiet period and no pending requests or animation frames. The waits set with
+         * {@link #waitAfterEvent(long, TimeUnit)} and {@link #waitAfterReloadUrl(long, TimeUnit)}
+         * become the maximum. Default is to always wait the full time.
+         *
+         * @param quietPeriod The time without any activity after which the page has settled.
+         * @param unit        The time unit.
+         */
+        public CrawlRulesBuilder waitForDomQuiescence(long quietPeriod, TimeUnit unit) {
+            checkArgument(quietPeriod > 0, "Quiet period should be larger than 0");
+            crawlRules.domQuiescencePeriod = unit.toMillis(quietPeriod);
+            return this;
+        }
+
         /**
          * Set Crawljax to click hidden anchors or not. Default is <code>false</code>.
          * <dl>
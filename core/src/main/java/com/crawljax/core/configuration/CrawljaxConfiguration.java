@@ -13,6 +13,7 @@ import com.crawljax.core.state.DefaultStateVertexFactory;
 import com.crawljax.core.state.StateVertexFactory;
 import com.crawljax.oraclecomparator.OracleComparator;
 import com.crawljax.oraclecomparator.comparators.SimpleComparator;
+import com.crawljax.util.VirtualThreads;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
@@ -53,6 +54,14 @@ public class CrawljaxConfiguration {
 
     private StateVertexFactory stateVertexFactory;
 
+    private int cloneDetectionThreads = 1;
+
+    private long stateContentCacheSize = 0;
+
+    private long checkpointInterval = 0;
+
+    private boolean virtualThreads = false;
+
     private CrawljaxConfiguration() {}
 
     /**
@@ -173,6 +182,38 @@ public class CrawljaxConfiguration {
         return stateVertexFactory;
     }
 
+    /**
+     * @return the number of threads that compare a new state with the states in the state-flow
+     * graph. <code>1</code> means the comparison happens on the crawling thread.
+     */
+    public int getCloneDetectionThreads() {
+        return cloneDetectionThreads;
+    }
+
+    /**
+     * @return the number of bytes of state DOMs and screenshots kept in the heap, or <code>0</code>
+     * if the states keep their content in the heap.
+     */
+    public long getStateContentCacheSize() {
+        return stateContentCacheSize;
+    }
+
+    /**
+     * @return the maximum time in milliseconds between two flushes of the checkpoint log, or
+     * <code>0</code> if no checkpoints are written.
+     */
+    public long getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * @return whether the crawl tasks run on virtual threads instead of a pool of platform
+     * threads.
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hashCode(
@@ -385,6 +426,80 @@ public class CrawljaxConfiguration {
             return this;
         }
 
+        /**
+         * Compare new states with the states in the state-flow graph on a pool of threads instead of
+         * on the crawling thread. This pays off for expensive comparisons like those of the
+         * {@link com.crawljax.stateabstractions.hybrid.FragGenStateVertexFactory}. The comparisons are
+         * done against a snapshot of the graph, so other crawlers are only blocked while the new
+         * state is inserted. Note that the {@link com.crawljax.core.state.StateVertexIndex} of the
+         * {@link StateVertexFactory} is not used in this mode.
+         *
+         * @param threads the number of threads, <code>0</code> for one per available processor. The
+         *                default is <code>1</code>.
+         * @return The builder for method chaining.
+         */
+        public CrawljaxConfigurationBuilder setCloneDetectionThreads(int threads) {
+            checkArgument(threads >= 0, "The number of threads should be positive, or 0 for one per processor");
+            config.cloneDetectionThreads = threads == 0 ? Runtime.getRuntime().availableProcessors() : threads;
+            return this;
+        }
+
+        /**
+         * Move the DOMs and screenshots of the states in the state-flow graph to compressed files
+         * outside of the heap, so the heap used per state stays about constant on long crawls. The
+         * content is read back on demand through a cache of the given size. The store is deleted
+         * when the crawl ends, after the {@link com.crawljax.core.plugin.PostCrawlingPlugin}s ran, so
+         * plugins that need the DOMs or screenshots of the states should read them there. The states
+         * of the {@link com.crawljax.core.CrawlSession} returned by {@link
+         * com.crawljax.core.CrawljaxRunner#call()} no longer have their DOMs and screenshots, reading
+         * them throws a {@link com.crawljax.core.CrawljaxException}.
+         *
+         * @param bytes the size of the cache in bytes, <code>0</code> to keep all content in the
+         *              heap. The default is <code>0</code>.
+         * @return The builder for method chaining.
+         */
+        public CrawljaxConfigurationBuilder setStateContentCacheSize(long bytes) {
+            checkArgument(bytes >= 0, "The cache size should be positive, or 0 to keep the content in the heap");
+            config.stateContentCacheSize = bytes;
+            return this;
+        }
+
+        /**
+         * Write the states, edges and fired actions of the crawl to a log in the site output
+         * folder, so a crawl that died can be continued with {@link
+         * com.crawljax.core.CrawljaxRunner#resume()}. Records are appended as they happen and
+         * flushed at least every interval.
+         *
+         * @param interval the maximum time between two flushes, <code>0</code> to write no
+         *                 checkpoints. The default is <code>0</code>.
+         * @param unit     the unit of the interval.
+         * @return The builder for method chaining.
+         */
+        public CrawljaxConfigurationBuilder setCheckpointInterval(long interval, TimeUnit unit) {
+            checkArgument(interval >= 0, "The checkpoint interval should be positive, or 0 to disable checkpoints");
+            config.checkpointInterval = unit.toMillis(interval);
+            return this;
+        }
+
+        /**
+         * Run the crawl tasks, the maximum runtime timer and the plugins they call on virtual
+         * threads. A crawler spends most of its time waiting for the browser, and a waiting virtual
+         * thread does not hold a platform thread, so many more (remote) browsers can be driven from
+         * one JVM. Needs JDK 21 or later.
+         *
+         * @param virtualThreads whether to use virtual threads. The default is <code>false</code>.
+         * @return The builder for method chaining.
+         * @throws IllegalArgumentException when the JVM does not support virtual threads.
+         */
+        public CrawljaxConfigurationBuilder setVirtualThreads(boolean virtualThreads) {
+            checkArgument(
+                    !virtualThreads || VirtualThreads.isAvailable(),
+                    "Virtual threads need JDK 21 or later, this is JDK %s",
+                    System.getProperty("java.specification.version"));
+            config.virtualThreads = virtualThreads;
+            return this;
+        }
+
         /**
          * Set the output folder for any {@link Plugin} you might configure. Crawljax itself doesn't
          * need an output folder but many plug-ins do.
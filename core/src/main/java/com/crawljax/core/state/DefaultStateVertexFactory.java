@@ -13,4 +13,12 @@ public class DefaultStateVertexFactory extends StateVertexFactory {
             int id, String url, String name, String dom, String strippedDom, EmbeddedBrowser browser) {
         return new StateVertexImpl(id, url, name, dom, strippedDom);
     }
+
+    /**
+     * Equal {@link StateVertexImpl}s have equal stripped DOMs, so clones share the same hash bucket.
+     */
+    @Override
+    public StateVertexIndex newStateVertexIndex() {
+        return new HashBucketStateVertexIndex();
+    }
 }
@@ -0,0 +1,39 @@
+package com.crawljax.core.state;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A {@link StateVertexIndex} for states whose {@link StateVertex#equals(Object)} is consistent with
+ * {@link StateVertex#hashCode()}, like the {@link StateVertexImpl}. Clones can only be in the bucket
+ * with the same hash code. The nearest state is still found by comparing all states.
+ */
+public class HashBucketStateVertexIndex implements StateVertexIndex {
+
+    private final ListMultimap<Integer, StateVertex> buckets = ArrayListMultimap.create();
+    private final List<StateVertex> vertices = new ArrayList<>();
+
+    @Override
+    public void add(StateVertex vertex) {
+        buckets.put(vertex.hashCode(), vertex);
+        vertices.add(vertex);
+    }
+
+    @Override
+    public Collection<StateVertex> getCloneCandidates(StateVertex vertex) {
+        return buckets.get(vertex.hashCode());
+    }
+
+    @Override
+    public Neighbour getNearest(StateVertex vertex) {
+        return LinearStateVertexIndex.nearestOf(vertex, vertices);
+    }
+
+    @Override
+    public int size() {
+        return vertices.size();
+    }
+}
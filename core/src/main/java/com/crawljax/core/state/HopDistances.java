@@ -0,0 +1,104 @@
+package com.crawljax.core.state;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jgrapht.Graph;
+
+/**
+ * The number of edges on the shortest path from a source state to every other state in the graph.
+ * A source is added on its first lookup with a breadth first search. From then on adding an edge
+ * only updates the distances that got shorter. Removing an edge that is part of a shortest path
+ * marks the source as stale, after which the next lookup searches again.
+ *
+ * <p>Lookups may run concurrently while the {@link InMemoryStateFlowGraph} holds its read lock, two
+ * lookups of the same new source then both search. The graph holds its write lock while an edge is
+ * added or removed, so no lookup sees the distances change. States are identified by their id, because {@link StateVertex#equals(Object)} may be a
+ * similarity instead of an identity.
+ */
+class HopDistances {
+
+    private final Graph<StateVertex, Eventable> graph;
+    private final Map<Integer, Map<Integer, Integer>> distances = new ConcurrentHashMap<>();
+    private final Set<Integer> stale = ConcurrentHashMap.newKeySet();
+
+    HopDistances(Graph<StateVertex, Eventable> graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * @param source the start of the path.
+     * @param target the end of the path.
+     * @return the number of edges on the shortest path or <code>-1</code> if there is no path.
+     */
+    int getHops(StateVertex source, StateVertex target) {
+        Map<Integer, Integer> fromSource = distances.get(source.getId());
+        if (fromSource == null || stale.contains(source.getId())) {
+            fromSource = new HashMap<>();
+            fromSource.put(source.getId(), 0);
+            search(fromSource, source);
+            distances.put(source.getId(), fromSource);
+            stale.remove(source.getId());
+        }
+        return fromSource.getOrDefault(target.getId(), -1);
+    }
+
+    /**
+     * Should be called after an edge was added to the graph.
+     */
+    void edgeAdded(StateVertex from, StateVertex to) {
+        for (Map.Entry<Integer, Map<Integer, Integer>> entry : distances.entrySet()) {
+            if (stale.contains(entry.getKey())) {
+                continue;
+            }
+            Map<Integer, Integer> fromSource = entry.getValue();
+            Integer fromDistance = fromSource.get(from.getId());
+            Integer toDistance = fromSource.get(to.getId());
+            if (fromDistance != null && (toDistance == null || fromDistance + 1 < toDistance)) {
+                fromSource.put(to.getId(), fromDistance + 1);
+                search(fromSource, to);
+            }
+        }
+    }
+
+    /**
+     * Should be called after an edge was removed from the graph.
+     */
+    void edgeRemoved(StateVertex from, StateVertex to) {
+        if (graph.containsEdge(from, to)) {
+            // Another edge between the same states remains.
+            return;
+        }
+        for (Map.Entry<Integer, Map<Integer, Integer>> entry : distances.entrySet()) {
+            Integer fromDistance = entry.getValue().get(from.getId());
+            Integer toDistance = entry.getValue().get(to.getId());
+            if (fromDistance != null && toDistance != null && toDistance == fromDistance + 1) {
+                stale.add(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Lowers the distances of all states reachable from the given state, of which the distance is
+     * already correct.
+     */
+    private void search(Map<Integer, Integer> fromSource, StateVertex start) {
+        Queue<StateVertex> toVisit = new ArrayDeque<>();
+        toVisit.add(start);
+        while (!toVisit.isEmpty()) {
+            StateVertex vertex = toVisit.poll();
+            int next = fromSource.get(vertex.getId()) + 1;
+            for (Eventable edge : graph.outgoingEdgesOf(vertex)) {
+                StateVertex target = graph.getEdgeTarget(edge);
+                Integer known = fromSource.get(target.getId());
+                if (known == null || next < known) {
+                    fromSource.put(target.getId(), next);
+                    toVisit.add(target);
+                }
+            }
+        }
+    }
+}
@@ -1,27 +1,38 @@
 package com.crawljax.core.state;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
 import com.crawljax.browser.EmbeddedBrowser;
 import com.crawljax.core.ExitNotifier;
+import com.crawljax.core.configuration.CrawljaxConfiguration;
+import com.crawljax.core.state.StateVertexIndex.Neighbour;
+import com.crawljax.metrics.MetricsModule;
 import com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl;
+import com.crawljax.util.AppendOnlyList;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import java.io.Closeable;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import org.apache.commons.math3.stat.descriptive.moment.Mean;
 import org.jgrapht.GraphPath;
 import org.jgrapht.alg.shortestpath.DijkstraShortestPath;
 import org.jgrapht.alg.shortestpath.KShortestSimplePaths;
@@ -33,10 +44,14 @@ import org.slf4j.LoggerFactory;
 /**
  * The State-Flow Graph is a multi-edge directed graph with states (StateVertex) on the vertices and
  * clickables (Eventable) on the edges.
+ *
+ * <p>Writers publish immutable copies of the states and of the edges per state, so the frequent
+ * reads like {@link #getById(int)}, {@link #getAllStates()} and {@link #getOutgoingClickables} do
+ * not need a lock. Comparing a new state with the existing ones only blocks other insertions.
  */
 @Singleton
 @SuppressWarnings("serial")
-public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
+public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph, Closeable {
 
     private static final Logger LOG = LoggerFactory.getLogger(InMemoryStateFlowGraph.class.getName());
 
@@ -44,6 +59,12 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
     private final Lock readLock;
     private final Lock writeLock;
 
+    /**
+     * Serializes the insertion of states, so the write lock is only held while the graph is actually
+     * changed and not while a new state is compared with the existing ones.
+     */
+    private final Lock insertLock = new ReentrantLock();
+
     /**
      * Intermediate counter for the number of states, not relaying on getAllStates.size() because of
      * Thread-safety.
@@ -53,9 +74,60 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
     private final AtomicInteger nextStateNameCounter = new AtomicInteger();
     private final Map<Integer, StateVertex> stateById;
 
+    /**
+     * Immutable copies of the edges per state id, replaced while holding the write lock so they can
+     * be read without any lock.
+     */
+    private final Map<Integer, ImmutableSet<Eventable>> outgoingById = new ConcurrentHashMap<>();
+
+    private final Map<Integer, ImmutableSet<Eventable>> incomingById = new ConcurrentHashMap<>();
+
+    private final AtomicLong totalStateStringSize = new AtomicLong();
+
     private final ExitNotifier exitNotifier;
     private final StateVertexFactory vertexFactory;
 
+    /**
+     * Narrows down the states a new state is compared with. Only accessed while holding the insert
+     * lock.
+     */
+    private final StateVertexIndex vertexIndex;
+
+    /**
+     * Compares new states with the states in the graph on multiple threads, or <code>null</code> if
+     * the {@link #vertexIndex} is used instead.
+     */
+    private final ParallelCloneDetector cloneDetector;
+
+    /**
+     * Where the content of the states is moved once they are added, or <code>null</code> to keep it
+     * in the heap.
+     */
+    private final StateContentStore contentStore;
+
+    private final List<StateFlowGraphListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * All states in the order they were added. Appended to while holding the write lock so it can be
+     * read without any lock.
+     */
+    private final AppendOnlyList<StateVertex> states = new AppendOnlyList<>();
+
+    /**
+     * The last result of {@link #getAllStates()}, copied again when states were added since.
+     */
+    private volatile ImmutableSet<StateVertex> allStates = ImmutableSet.of();
+
+    private final Histogram cloneCandidates;
+    private final Counter nearestComparisons;
+    private final Counter prunedComparisons;
+
+    /**
+     * Shortest path lengths from the states they were requested for. Read while holding the read
+     * lock, updated while holding the write lock.
+     */
+    private final HopDistances hopDistances;
+
     private final List<Eventable> expiredEdges = new ArrayList<>();
 
     private final List<StateVertex> expiredStates = new ArrayList<>();
@@ -65,18 +137,108 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
      *
      * @param exitNotifier used for triggering an exit.
      */
-    @Inject
     public InMemoryStateFlowGraph(ExitNotifier exitNotifier, StateVertexFactory vertexFactory) {
+        this(exitNotifier, vertexFactory, new MetricRegistry());
+    }
+
+    /**
+     * The constructor.
+     *
+     * @param exitNotifier  used for triggering an exit.
+     * @param vertexFactory creates the states and the {@link StateVertexIndex} over them.
+     * @param registry      the registry the clone detection statistics are reported to.
+     */
+    public InMemoryStateFlowGraph(
+            ExitNotifier exitNotifier, StateVertexFactory vertexFactory, MetricRegistry registry) {
+        this(exitNotifier, vertexFactory, registry, (ParallelCloneDetector) null);
+    }
+
+    /**
+     * The constructor.
+     *
+     * @param exitNotifier  used for triggering an exit.
+     * @param vertexFactory creates the states and the {@link StateVertexIndex} over them.
+     * @param registry      the registry the clone detection statistics are reported to.
+     * @param config        the configuration that determines how clones are detected.
+     */
+    @Inject
+    public InMemoryStateFlowGraph(
+            ExitNotifier exitNotifier,
+            StateVertexFactory vertexFactory,
+            MetricRegistry registry,
+            CrawljaxConfiguration config)
+            throws IOException {
+        this(
+                exitNotifier,
+                vertexFactory,
+                registry,
+                config.getCloneDetectionThreads() > 1
+                        ? new ParallelCloneDetector(config.getCloneDetectionThreads())
+                        : null,
+                config.getStateContentCacheSize() > 0
+                        ? new StateContentStore(config.getStateContentCacheSize(), registry)
+                        : null);
+    }
+
+    /**
+     * The constructor.
+     *
+     * @param exitNotifier  used for triggering an exit.
+     * @param vertexFactory creates the states and the {@link StateVertexIndex} over them.
+     * @param registry      the registry the clone detection statistics are reported to.
+     * @param cloneDetector compares new states with all states outside of the write lock, or
+     *                      <code>null</code> to use the {@link StateVertexIndex} of the factory.
+     */
+    public InMemoryStateFlowGraph(
+            ExitNotifier exitNotifier,
+            StateVertexFactory vertexFactory,
+            MetricRegistry registry,
+            ParallelCloneDetector cloneDetector) {
+        this(exitNotifier, vertexFactory, registry, cloneDetector, null);
+    }
+
+    /**
+     * The constructor.
+     *
+     * @param exitNotifier  used for triggering an exit.
+     * @param vertexFactory creates the states and the {@link StateVertexIndex} over them.
+     * @param registry      the registry the clone detection statistics are reported to.
+     * @param cloneDetector compares new states with all states outside of the write lock, or
+     *                      <code>null</code> to use the {@link StateVertexIndex} of the factory.
+     * @param contentStore  where the DOMs of the added states are moved to, or <code>null</code> to
+     *                      keep them in the heap.
+     */
+    public InMemoryStateFlowGraph(
+            ExitNotifier exitNotifier,
+            StateVertexFactory vertexFactory,
+            MetricRegistry registry,
+            ParallelCloneDetector cloneDetector,
+            StateContentStore contentStore) {
         this.exitNotifier = exitNotifier;
         this.vertexFactory = vertexFactory;
+        this.cloneDetector = cloneDetector;
+        this.contentStore = contentStore;
+        this.vertexIndex = vertexFactory.newStateVertexIndex();
+        vertexFactory.registerMetrics(registry);
+        this.cloneCandidates = registry.histogram(MetricsModule.STATES_PREFIX + "index.clone_candidates");
+        this.nearestComparisons = registry.counter(MetricsModule.STATES_PREFIX + "index.nearest_comparisons");
+        this.prunedComparisons = registry.counter(MetricsModule.STATES_PREFIX + "index.pruned_comparisons");
         sfg = new DirectedPseudograph<>(Eventable.class);
-        stateById = Collections.synchronizedMap(new HashMap<>());
+        hopDistances = new HopDistances(sfg);
+        stateById = new ConcurrentHashMap<>();
         LOG.debug("Initialized the state-flow graph");
         ReadWriteLock lock = new ReentrantReadWriteLock();
         readLock = lock.readLock();
         writeLock = lock.writeLock();
     }
 
+    /**
+     * @param listener is told about every state and edge added from now on.
+     */
+    public void addListener(StateFlowGraphListener listener) {
+        listeners.add(listener);
+    }
+
     public List<Eventable> getExpiredEdges() {
         return expiredEdges;
     }
@@ -123,43 +285,126 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
     // rahulyk: Modifying the original function to accommodate threshold based clone
     // detection <near duplicates?>
     private StateVertex putIfAbsent(StateVertex stateVertex, boolean correctName) {
-        writeLock.lock();
+        StateVertex clone =
+                cloneDetector != null ? putIfAbsentInParallel(stateVertex) : putIfAbsentSequentially(stateVertex);
+        if (clone == null) {
+            added(stateVertex);
+        }
+        return clone;
+    }
+
+    /**
+     * Adds a state of an earlier crawl, restored from a checkpoint, without looking for clones. The
+     * states created afterwards get higher ids.
+     *
+     * @param stateVertex the restored state, with the id it had in the earlier crawl.
+     */
+    public void putRestored(StateVertex stateVertex) {
+        insertLock.lock();
         try {
-            boolean clone = this.hasClone(stateVertex);
-            if (!clone) {
-                setNearDuplicate(stateVertex);
+            nextStateNameCounter.accumulateAndGet(stateVertex.getId(), Math::max);
+            if (cloneDetector == null) {
+                vertexIndex.add(stateVertex);
+            }
+            addVertex(stateVertex);
+        } finally {
+            insertLock.unlock();
+        }
+        added(stateVertex);
+    }
 
-                boolean added = sfg.addVertex(stateVertex);
-                if (!added) {
-                    LOG.info("Vertex should be added !!" + stateVertex);
-                }
-                stateById.put(stateVertex.getId(), stateVertex);
-                int count = stateCounter.incrementAndGet();
-                exitNotifier.incrementNumberOfStates();
-                LOG.info("Number of states in the graph is now {}", count);
+    /**
+     * Outside of the insert lock, compressing a large DOM takes a while.
+     */
+    private void added(StateVertex stateVertex) {
+        if (contentStore != null && stateVertex instanceof StateVertexImpl) {
+            ((StateVertexImpl) stateVertex).moveContentTo(contentStore);
+        }
+        for (StateFlowGraphListener listener : listeners) {
+            listener.onStateAdded(stateVertex);
+        }
+    }
+
+    private StateVertex putIfAbsentSequentially(StateVertex stateVertex) {
+        insertLock.lock();
+        try {
+            StateVertex clone = findClone(stateVertex);
+            if (clone == null) {
+                setNearDuplicate(stateVertex, vertexIndex.getNearest(stateVertex));
+                vertexIndex.add(stateVertex);
+                addVertex(stateVertex);
                 return null;
             } else {
                 // Graph already contained the vertex
                 LOG.debug("Graph already contains vertex {}", stateVertex);
-                return this.getStateInGraph(stateVertex);
+                return clone;
             }
         } finally {
-            writeLock.unlock();
+            insertLock.unlock();
         }
     }
 
-    private void setNearDuplicate(StateVertex vertex) {
-        double minDistance = -1.0;
-        StateVertex closestVertex = null;
-        for (StateVertex vertexOfGraph : sfg.vertexSet()) {
-            double dist = vertex.getDist(vertexOfGraph);
+    /**
+     * Compares the new state with a snapshot of the graph without holding a lock. Only the states
+     * that were added in the meantime are compared while holding the insert lock.
+     */
+    private StateVertex putIfAbsentInParallel(StateVertex stateVertex) {
+        List<StateVertex> snapshot = states.snapshot();
+        StateVertex clone = cloneDetector.findClone(stateVertex, snapshot);
+        Neighbour nearest = clone == null ? cloneDetector.findNearest(stateVertex, snapshot) : null;
+        cloneCandidates.update(snapshot.size());
 
-            if (minDistance == -1 || dist < minDistance) {
-                minDistance = dist;
-                closestVertex = vertexOfGraph;
+        insertLock.lock();
+        try {
+            List<StateVertex> current = states.snapshot();
+            List<StateVertex> added = current.subList(snapshot.size(), current.size());
+            if (clone == null && !added.isEmpty()) {
+                clone = cloneDetector.findClone(stateVertex, added);
+                if (clone == null) {
+                    nearest = ParallelCloneDetector.closest(nearest, cloneDetector.findNearest(stateVertex, added));
+                }
             }
+            if (clone == null) {
+                setNearDuplicate(stateVertex, nearest);
+                addVertex(stateVertex);
+                return null;
+            }
+            LOG.debug("Graph already contains vertex {}", stateVertex);
+            assignDynamicFragments(clone, stateVertex);
+            return clone;
+        } finally {
+            insertLock.unlock();
         }
-        if (closestVertex != null) {
+    }
+
+    /**
+     * Should only be called while holding the insert lock.
+     */
+    private void addVertex(StateVertex stateVertex) {
+        writeLock.lock();
+        try {
+            boolean added = sfg.addVertex(stateVertex);
+            if (added) {
+                states.add(stateVertex);
+                totalStateStringSize.addAndGet(stateVertex.getDom().getBytes().length);
+            } else {
+                LOG.info("Vertex should be added !!" + stateVertex);
+            }
+            stateById.put(stateVertex.getId(), stateVertex);
+        } finally {
+            writeLock.unlock();
+        }
+        int count = stateCounter.incrementAndGet();
+        exitNotifier.incrementNumberOfStates();
+        LOG.info("Number of states in the graph is now {}", count);
+    }
+
+    private void setNearDuplicate(StateVertex vertex, Neighbour nearest) {
+        if (nearest != null) {
+            nearestComparisons.inc(nearest.getComparisons());
+            prunedComparisons.inc(states.size() - nearest.getComparisons());
+            StateVertex closestVertex = nearest.getVertex();
+            double minDistance = nearest.getDistance();
             vertex.setDistToNearestState(minDistance);
             vertex.setNearestState(closestVertex.getId());
 
@@ -178,15 +423,54 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
      */
     @Override
     public boolean hasClone(StateVertex vertex) {
-        for (StateVertex vertexOfGraph : sfg.vertexSet()) {
-            if (vertex.equals(vertexOfGraph)) {
-                if (vertexOfGraph instanceof HybridStateVertexImpl) {
-                    ((HybridStateVertexImpl) vertexOfGraph).assignDynamicFragments(vertex);
+        if (cloneDetector != null) {
+            List<StateVertex> snapshot = states.snapshot();
+            StateVertex clone = cloneDetector.findClone(vertex, snapshot);
+            insertLock.lock();
+            try {
+                if (clone == null) {
+                    List<StateVertex> current = states.snapshot();
+                    clone = cloneDetector.findClone(vertex, current.subList(snapshot.size(), current.size()));
                 }
-                return true;
+                if (clone != null) {
+                    assignDynamicFragments(clone, vertex);
+                }
+                return clone != null;
+            } finally {
+                insertLock.unlock();
             }
         }
-        return false;
+        insertLock.lock();
+        try {
+            return findClone(vertex) != null;
+        } finally {
+            insertLock.unlock();
+        }
+    }
+
+    /**
+     * Only compares the new state with the candidates of the {@link StateVertexIndex}.
+     *
+     * @param vertex the new state.
+     * @return the state in the graph that equals the given state or <code>null</code>.
+     */
+    private StateVertex findClone(StateVertex vertex) {
+        Collection<StateVertex> candidates = vertexIndex.getCloneCandidates(vertex);
+        cloneCandidates.update(candidates.size());
+        prunedComparisons.inc(vertexIndex.size() - candidates.size());
+        for (StateVertex vertexOfGraph : candidates) {
+            if (vertex.equals(vertexOfGraph)) {
+                assignDynamicFragments(vertexOfGraph, vertex);
+                return vertexOfGraph;
+            }
+        }
+        return null;
+    }
+
+    private static void assignDynamicFragments(StateVertex vertexOfGraph, StateVertex vertex) {
+        if (vertexOfGraph instanceof HybridStateVertexImpl) {
+            ((HybridStateVertexImpl) vertexOfGraph).assignDynamicFragments(vertex);
+        }
     }
 
     @Override
@@ -221,7 +505,13 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
         writeLock.lock();
         try {
             boolean added = sfg.addEdge(sourceVertex, targetVertex, clickable);
-            if (!added) {
+            if (added) {
+                publishEdges(sourceVertex, targetVertex);
+                hopDistances.edgeAdded(sourceVertex, targetVertex);
+                for (StateFlowGraphListener listener : listeners) {
+                    listener.onEdgeAdded(clickable);
+                }
+            } else {
                 Set<Eventable> allEdges = sfg.getAllEdges(sourceVertex, targetVertex);
                 for (Eventable edge : allEdges) {
                     if (edge.equals(clickable)) {
@@ -249,8 +539,27 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
         }
     }
 
+    /**
+     * Should only be called while holding the write lock.
+     */
+    private void publishEdges(StateVertex source, StateVertex target) {
+        outgoingById.put(source.getId(), ImmutableSet.copyOf(sfg.outgoingEdgesOf(source)));
+        incomingById.put(target.getId(), ImmutableSet.copyOf(sfg.incomingEdgesOf(target)));
+    }
+
+    /**
+     * @return whether the given state is the state in the graph with its id, in which case its edges
+     * can be read from the published copies.
+     */
+    private boolean isPublished(StateVertex stateVertex) {
+        return stateById.get(stateVertex.getId()) == stateVertex;
+    }
+
     @Override
     public ImmutableSet<Eventable> getOutgoingClickables(StateVertex stateVertex) {
+        if (isPublished(stateVertex)) {
+            return outgoingById.getOrDefault(stateVertex.getId(), ImmutableSet.of());
+        }
         readLock.lock();
         try {
             return ImmutableSet.copyOf(sfg.outgoingEdgesOf(stateVertex));
@@ -261,6 +570,9 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
 
     @Override
     public ImmutableSet<Eventable> getIncomingClickable(StateVertex stateVertex) {
+        if (isPublished(stateVertex)) {
+            return incomingById.getOrDefault(stateVertex.getId(), ImmutableSet.of());
+        }
         readLock.lock();
         try {
             return ImmutableSet.copyOf(sfg.incomingEdgesOf(stateVertex));
@@ -271,6 +583,9 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
 
     @Override
     public boolean canGoTo(StateVertex source, StateVertex target) {
+        if (isPublished(source) && isPublished(target)) {
+            return hasEdgeTo(source, target) || hasEdgeTo(target, source);
+        }
         readLock.lock();
         try {
             return sfg.containsEdge(source, target) || sfg.containsEdge(target, source);
@@ -279,46 +594,60 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
         }
     }
 
+    private boolean hasEdgeTo(StateVertex source, StateVertex target) {
+        for (Eventable edge : getOutgoingClickables(source)) {
+            if (edge.getTargetStateVertex().getId() == target.getId()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A cheaper alternative to <code>getShortestPath(start, end).size()</code> when called for many
+     * end states. The distances from the start state are kept up to date as the graph changes.
+     *
+     * @param start the start state.
+     * @param end   the end state.
+     * @return the number of edges on the shortest path or <code>-1</code> if there is none.
+     */
     @Override
-    public ImmutableList<Eventable> getShortestPath(StateVertex start, StateVertex end) {
+    public int getHops(StateVertex start, StateVertex end) {
         readLock.lock();
         try {
-            return ImmutableList.copyOf(
-                    DijkstraShortestPath.findPathBetween(sfg, start, end).getEdgeList());
+            return hopDistances.getHops(start, end);
         } finally {
             readLock.unlock();
         }
     }
 
     @Override
-    public ImmutableSet<StateVertex> getAllStates() {
+    public ImmutableList<Eventable> getShortestPath(StateVertex start, StateVertex end) {
         readLock.lock();
         try {
-            return ImmutableSet.copyOf(sfg.vertexSet());
+            return ImmutableList.copyOf(
+                    DijkstraShortestPath.findPathBetween(sfg, start, end).getEdgeList());
         } finally {
             readLock.unlock();
         }
     }
 
     @Override
-    public ImmutableSet<Eventable> getAllEdges() {
-        readLock.lock();
-        try {
-            return ImmutableSet.copyOf(sfg.edgeSet());
-        } finally {
-            readLock.unlock();
+    public ImmutableSet<StateVertex> getAllStates() {
+        List<StateVertex> snapshot = states.snapshot();
+        ImmutableSet<StateVertex> copy = allStates;
+        if (copy.size() != snapshot.size()) {
+            copy = ImmutableSet.copyOf(snapshot);
+            allStates = copy;
         }
+        return copy;
     }
 
-    private StateVertex getStateInGraph(StateVertex state) {
+    @Override
+    public ImmutableSet<Eventable> getAllEdges() {
         readLock.lock();
         try {
-            for (StateVertex st : sfg.vertexSet()) {
-                if (state.equals(st)) {
-                    return st;
-                }
-            }
-            return null;
+            return ImmutableSet.copyOf(sfg.edgeSet());
         } finally {
             readLock.unlock();
         }
@@ -328,13 +657,8 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
     public int getMeanStateStringSize() {
         readLock.lock();
         try {
-            final Mean mean = new Mean();
-
-            for (StateVertex state : sfg.vertexSet()) {
-                mean.increment(state.getDom().getBytes().length);
-            }
-
-            return (int) mean.getResult();
+            int count = states.size();
+            return count == 0 ? 0 : (int) (totalStateStringSize.get() / (double) count);
         } finally {
             readLock.unlock();
         }
@@ -347,7 +671,11 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
 
     public StateVertex newStateFor(String url, String dom, String strippedDom, EmbeddedBrowser browser) {
         int id = nextStateNameCounter.incrementAndGet();
-        return vertexFactory.newStateVertex(id, url, getNewStateName(id), dom, strippedDom, browser);
+        StateVertex state = vertexFactory.newStateVertex(id, url, getNewStateName(id), dom, strippedDom, browser);
+        if (browser != null && state instanceof StateVertexImpl) {
+            ((StateVertexImpl) state).cacheDocument(browser.takeStrippedDocument(strippedDom));
+        }
+        return state;
     }
 
     private String getNewStateName(int id) {
@@ -426,8 +754,19 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
 
     @Override
     public boolean removeEdge(Eventable event) {
-        this.expiredEdges.add(event);
-        sfg.removeEdge(event);
+        writeLock.lock();
+        try {
+            this.expiredEdges.add(event);
+            if (sfg.containsEdge(event)) {
+                StateVertex source = sfg.getEdgeSource(event);
+                StateVertex target = sfg.getEdgeTarget(event);
+                sfg.removeEdge(event);
+                publishEdges(source, target);
+                hopDistances.edgeRemoved(source, target);
+            }
+        } finally {
+            writeLock.unlock();
+        }
         return true;
     }
 
@@ -476,4 +815,19 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
         }
         return true;
     }
+
+    /**
+     * Stops the threads that detect clones and deletes the {@link StateContentStore}. The graph can
+     * still be read but no more states can be added, and states whose content was moved to the
+     * store can no longer return it.
+     */
+    @Override
+    public void close() {
+        if (cloneDetector != null) {
+            cloneDetector.close();
+        }
+        if (contentStore != null) {
+            contentStore.close();
+        }
+    }
 }
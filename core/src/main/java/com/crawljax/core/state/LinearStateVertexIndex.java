@@ -0,0 +1,60 @@
+package com.crawljax.core.state;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link StateVertexIndex} that does not prune anything: every new state is compared with every
+ * state in the graph. This is the only safe choice for states of which nothing is known about
+ * {@link StateVertex#equals(Object)} or {@link StateVertex#getDist(StateVertex)}.
+ */
+public class LinearStateVertexIndex implements StateVertexIndex {
+
+    private final List<StateVertex> vertices = new ArrayList<>();
+
+    @Override
+    public void add(StateVertex vertex) {
+        vertices.add(vertex);
+    }
+
+    @Override
+    public Collection<StateVertex> getCloneCandidates(StateVertex vertex) {
+        return Collections.unmodifiableList(vertices);
+    }
+
+    @Override
+    public Neighbour getNearest(StateVertex vertex) {
+        return nearestOf(vertex, vertices);
+    }
+
+    @Override
+    public int size() {
+        return vertices.size();
+    }
+
+    /**
+     * Scans all given states for the one closest to the given state. A distance of <code>-1</code>
+     * means the distance is unknown, in which case the last state wins.
+     *
+     * @param vertex     the new state.
+     * @param candidates the states to compare with.
+     * @return the closest state or <code>null</code> if there are no candidates.
+     */
+    static Neighbour nearestOf(StateVertex vertex, Collection<StateVertex> candidates) {
+        double minDistance = -1.0;
+        StateVertex closestVertex = null;
+        for (StateVertex candidate : candidates) {
+            double dist = vertex.getDist(candidate);
+            if (minDistance == -1 || dist < minDistance) {
+                minDistance = dist;
+                closestVertex = candidate;
+            }
+        }
+        if (closestVertex == null) {
+            return null;
+        }
+        return new Neighbour(closestVertex, minDistance, candidates.size());
+    }
+}
@@ -0,0 +1,197 @@
+package com.crawljax.core.state;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A {@link StateVertexIndex} that organises the states in a BK-tree over
+ * {@link StateVertex#getDist(StateVertex)}. The triangle inequality is used to skip whole subtrees,
+ * so this index is only correct when the distance is a metric and a state equals another state if
+ * and only if their distance is at most the given threshold. This holds for the unit cost tree edit
+ * distance used by {@link com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl}.
+ *
+ * <p>Children are keyed on their exact distance to the parent, so distances do not have to be
+ * integers.
+ *
+ * <p>An optional {@link LowerBound} of the distance is checked before the exact distance to a tree
+ * node is computed. When the bound rules out the node and all of its children, the exact distance
+ * is skipped. This holds for most leaves, which are about half of the nodes. Otherwise the exact
+ * distance is still computed, because only the exact distance narrows down the children to visit.
+ */
+public class MetricTreeStateVertexIndex implements StateVertexIndex {
+
+    /**
+     * A cheap lower bound of {@link StateVertex#getDist(StateVertex)}.
+     */
+    @FunctionalInterface
+    public interface LowerBound {
+
+        /**
+         * @param query       the state that is looked up.
+         * @param indexed     a state in the index.
+         * @param maxDistance the largest distance the caller is interested in. The bound may stop
+         *                    improving once it exceeds this distance.
+         * @return a lower bound of <code>query.getDist(indexed)</code>.
+         */
+        double of(StateVertex query, StateVertex indexed, double maxDistance);
+    }
+
+    private final double threshold;
+    private final LowerBound lowerBound;
+
+    private TreeNode root;
+    private int size;
+
+    /**
+     * Distances computed for the last queried state. A new state is usually queried for clones and
+     * then for its nearest state, which visit mostly the same tree nodes.
+     */
+    private StateVertex lastQuery;
+
+    private final Map<StateVertex, Double> lastDistances = new IdentityHashMap<>();
+
+    /**
+     * @param threshold the maximum distance at which two states are considered equal.
+     */
+    public MetricTreeStateVertexIndex(double threshold) {
+        this(threshold, (query, indexed, maxDistance) -> 0);
+    }
+
+    /**
+     * @param threshold  the maximum distance at which two states are considered equal.
+     * @param lowerBound a cheap lower bound of the distance between two states.
+     */
+    public MetricTreeStateVertexIndex(double threshold, LowerBound lowerBound) {
+        this.threshold = threshold;
+        this.lowerBound = lowerBound;
+    }
+
+    @Override
+    public void add(StateVertex vertex) {
+        size++;
+        if (root == null) {
+            root = new TreeNode(vertex);
+            return;
+        }
+        TreeNode node = root;
+        while (true) {
+            double dist = distance(vertex, node.vertex);
+            TreeNode child = node.children.get(dist);
+            if (child == null) {
+                node.children.put(dist, new TreeNode(vertex));
+                return;
+            }
+            node = child;
+        }
+    }
+
+    @Override
+    public List<StateVertex> getCloneCandidates(StateVertex vertex) {
+        List<StateVertex> candidates = new ArrayList<>();
+        if (root == null) {
+            return candidates;
+        }
+        Deque<TreeNode> toVisit = new ArrayDeque<>();
+        toVisit.push(root);
+        while (!toVisit.isEmpty()) {
+            TreeNode node = toVisit.pop();
+            if (isRuledOut(vertex, node, threshold)) {
+                continue;
+            }
+            double dist = distance(vertex, node.vertex);
+            if (dist <= threshold) {
+                candidates.add(node.vertex);
+            }
+            toVisit.addAll(node.children
+                    .subMap(dist - threshold, true, dist + threshold, true)
+                    .values());
+        }
+        return candidates;
+    }
+
+    @Override
+    public Neighbour getNearest(StateVertex vertex) {
+        if (root == null) {
+            return null;
+        }
+        StateVertex closest = null;
+        double minDistance = Double.MAX_VALUE;
+        int comparisons = 0;
+
+        Deque<TreeNode> toVisit = new ArrayDeque<>();
+        Deque<Double> lowerBounds = new ArrayDeque<>();
+        toVisit.push(root);
+        lowerBounds.push(0.0);
+        while (!toVisit.isEmpty()) {
+            TreeNode node = toVisit.pop();
+            double lowerBound = lowerBounds.pop();
+            if (lowerBound > minDistance) {
+                continue;
+            }
+            if (closest != null && isRuledOut(vertex, node, minDistance)) {
+                continue;
+            }
+            double dist = distance(vertex, node.vertex);
+            comparisons++;
+            if (closest == null || dist < minDistance) {
+                minDistance = dist;
+                closest = node.vertex;
+            }
+            for (Map.Entry<Double, TreeNode> child : node.children
+                    .subMap(dist - minDistance, true, dist + minDistance, true)
+                    .entrySet()) {
+                toVisit.push(child.getValue());
+                lowerBounds.push(Math.abs(dist - child.getKey()));
+            }
+        }
+        return new Neighbour(closest, minDistance, comparisons);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return whether the lower bound shows that neither the node nor any of its children is within
+     * the given distance of the query.
+     */
+    private boolean isRuledOut(StateVertex query, TreeNode node, double maxDistance) {
+        if (query == lastQuery && lastDistances.containsKey(node.vertex)) {
+            return false;
+        }
+        double bound = lowerBound.of(query, node.vertex, maxDistance);
+        // A child at distance k from the node is at least bound - k away from the query.
+        return bound > maxDistance
+                && (node.children.isEmpty() || node.children.lastKey() < bound - maxDistance);
+    }
+
+    private double distance(StateVertex query, StateVertex indexed) {
+        if (query != lastQuery) {
+            lastQuery = query;
+            lastDistances.clear();
+        }
+        Double dist = lastDistances.get(indexed);
+        if (dist == null) {
+            dist = query.getDist(indexed);
+            lastDistances.put(indexed, dist);
+        }
+        return dist;
+    }
+
+    private static final class TreeNode {
+
+        private final StateVertex vertex;
+        private final NavigableMap<Double, TreeNode> children = new TreeMap<>();
+
+        private TreeNode(StateVertex vertex) {
+            this.vertex = vertex;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.crawljax.core.state;
+
+import com.crawljax.core.state.StateVertexIndex.Neighbour;
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares a new state with a list of states on a {@link ForkJoinPool}. This is only worth it when
+ * comparing two states is expensive, like the tree edit distance of the
+ * {@link com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl}.
+ *
+ * <p>The given lists must not change while they are scanned. The {@link InMemoryStateFlowGraph}
+ * passes an immutable snapshot of its states, so the comparisons do not need its lock. The threads of
+ * the pool are stopped when the detector is closed.
+ */
+public class ParallelCloneDetector implements Closeable {
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+
+    /**
+     * @param parallelism the number of threads comparing states.
+     */
+    public ParallelCloneDetector(int parallelism) {
+        this.parallelism = parallelism;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Stops scanning as soon as a clone is found. If there are several clones the first one in the
+     * list is returned, just like a sequential scan would.
+     *
+     * @param vertex the new state.
+     * @param states the states to compare with.
+     * @return the first state in the list that equals the given state or <code>null</code>.
+     */
+    public StateVertex findClone(StateVertex vertex, List<StateVertex> states) {
+        if (states.isEmpty()) {
+            return null;
+        }
+        AtomicInteger firstClone = new AtomicInteger(states.size());
+        pool.invoke(new CloneTask(vertex, states, 0, states.size(), granularity(states), firstClone));
+        int index = firstClone.get();
+        return index < states.size() ? states.get(index) : null;
+    }
+
+    /**
+     * @param vertex the new state.
+     * @param states the states to compare with.
+     * @return the closest state, or <code>null</code> if there are no states. Ties are won by the
+     * first state in the list.
+     */
+    public Neighbour findNearest(StateVertex vertex, List<StateVertex> states) {
+        if (states.isEmpty()) {
+            return null;
+        }
+        return pool.invoke(new NearestTask(vertex, states, 0, states.size(), granularity(states)));
+    }
+
+    /**
+     * Combines the nearest state in an earlier part of a list with the one in a later part. A distance
+     * of <code>-1</code> means the distance is unknown, in which case the later state wins, like in
+     * {@link LinearStateVertexIndex}.
+     */
+    static Neighbour closest(Neighbour first, Neighbour second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        int comparisons = first.getComparisons() + second.getComparisons();
+        Neighbour closest =
+                first.getDistance() == -1 || second.getDistance() < first.getDistance() ? second : first;
+        return new Neighbour(closest.getVertex(), closest.getDistance(), comparisons);
+    }
+
+    /**
+     * Stops the threads of the pool. States can no longer be compared afterwards.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private int granularity(List<StateVertex> states) {
+        return Math.max(1, states.size() / (parallelism * 4));
+    }
+
+    @SuppressWarnings("serial")
+    private static final class CloneTask extends RecursiveAction {
+
+        private final StateVertex vertex;
+        private final List<StateVertex> states;
+        private final int from;
+        private final int to;
+        private final int granularity;
+        private final AtomicInteger firstClone;
+
+        private CloneTask(
+                StateVertex vertex,
+                List<StateVertex> states,
+                int from,
+                int to,
+                int granularity,
+                AtomicInteger firstClone) {
+            this.vertex = vertex;
+            this.states = states;
+            this.from = from;
+            this.to = to;
+            this.granularity = granularity;
+            this.firstClone = firstClone;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > granularity) {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new CloneTask(vertex, states, from, middle, granularity, firstClone),
+                        new CloneTask(vertex, states, middle, to, granularity, firstClone));
+                return;
+            }
+            // Clones after an already found clone are not interesting.
+            for (int i = from; i < to && i < firstClone.get(); i++) {
+                if (vertex.equals(states.get(i))) {
+                    firstClone.accumulateAndGet(i, Math::min);
+                    return;
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class NearestTask extends RecursiveTask<Neighbour> {
+
+        private final StateVertex vertex;
+        private final List<StateVertex> states;
+        private final int from;
+        private final int to;
+        private final int granularity;
+
+        private NearestTask(StateVertex vertex, List<StateVertex> states, int from, int to, int granularity) {
+            this.vertex = vertex;
+            this.states = states;
+            this.from = from;
+            this.to = to;
+            this.granularity = granularity;
+        }
+
+        @Override
+        protected Neighbour compute() {
+            if (to - from > granularity) {
+                int middle = (from + to) >>> 1;
+                NearestTask second = new NearestTask(vertex, states, middle, to, granularity);
+                second.fork();
+                Neighbour first = new NearestTask(vertex, states, from, middle, granularity).compute();
+                return closest(first, second.join());
+            }
+            return LinearStateVertexIndex.nearestOf(vertex, states.subList(from, to));
+        }
+    }
+}
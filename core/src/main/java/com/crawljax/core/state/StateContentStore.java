@@ -0,0 +1,279 @@
+package com.crawljax.core.state;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.crawljax.core.CrawljaxException;
+import com.crawljax.metrics.MetricsModule;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.imageio.ImageIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the DOMs and screenshots of the states outside of the heap. The content is compressed and
+ * appended to segment files; a segment is memory mapped once it is full. The states only keep a
+ * {@link Handle} and read their content back through a cache of bounded size.
+ * <p>
+ * The files are scratch space, they are deleted when the store is closed or when the JVM exits.
+ */
+public class StateContentStore implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StateContentStore.class);
+
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Where a piece of content is stored. Handles are compared by identity.
+     */
+    public static final class Handle {
+
+        private final int segment;
+        private final int offset;
+        private final int length;
+        private final int rawLength;
+
+        private Handle(int segment, int offset, int length, int rawLength) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.rawLength = rawLength;
+        }
+    }
+
+    private static final class Segment {
+
+        private final File file;
+        private final RandomAccessFile raf;
+        private final FileChannel channel;
+        private int size;
+        private volatile MappedByteBuffer mapped;
+
+        private Segment(File file) throws IOException {
+            this.file = file;
+            this.raf = new RandomAccessFile(file, "rw");
+            this.channel = raf.getChannel();
+            file.deleteOnExit();
+        }
+
+        private void seal() throws IOException {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        private byte[] read(int offset, int length) throws IOException {
+            byte[] bytes = new byte[length];
+            MappedByteBuffer sealed = mapped;
+            if (sealed != null) {
+                ByteBuffer view = sealed.duplicate();
+                view.position(offset);
+                view.get(bytes);
+                return bytes;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+            }
+            return bytes;
+        }
+    }
+
+    private final File directory;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final Cache<Handle, Object> cache;
+    private final AtomicLong storedBytes = new AtomicLong();
+    private final Counter loads;
+    private volatile boolean closed;
+
+    /**
+     * @param cacheSize the maximum size in bytes of the content that is kept in the heap.
+     * @param registry  the registry the size of the store is reported to.
+     * @throws IOException when the scratch directory cannot be created.
+     */
+    public StateContentStore(long cacheSize, MetricRegistry registry) throws IOException {
+        this.directory = Files.createTempDirectory("crawljax-states").toFile();
+        this.directory.deleteOnExit();
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(cacheSize)
+                .weigher(StateContentStore::weigh)
+                .build();
+        this.loads = registry.counter(MetricRegistry.name(MetricsModule.STATES_PREFIX + "content", "loads"));
+        Gauge<Long> stored = storedBytes::get;
+        registry.gauge(MetricRegistry.name(MetricsModule.STATES_PREFIX + "content", "stored_bytes"), () -> stored);
+    }
+
+    private static int weigh(Handle handle, Object content) {
+        if (content instanceof BufferedImage) {
+            BufferedImage image = (BufferedImage) content;
+            return (int) Math.min(Integer.MAX_VALUE, 4L * image.getWidth() * image.getHeight());
+        }
+        return ((String) content).length();
+    }
+
+    /**
+     * Stores the string deflated.
+     *
+     * @param content the string.
+     * @return the handle to read the string back.
+     * @throws IOException when it could not be written.
+     */
+    public Handle putString(String content) throws IOException {
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+        } finally {
+            deflater.end();
+        }
+        Handle handle = append(out.toByteArray(), raw.length);
+        cache.put(handle, content);
+        return handle;
+    }
+
+    /**
+     * @param handle a handle returned by {@link #putString(String)}.
+     * @return the string.
+     */
+    public String getString(Handle handle) {
+        return (String) load(handle, () -> {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(read(handle));
+                byte[] raw = new byte[handle.rawLength];
+                int inflated = 0;
+                while (inflated < raw.length && !inflater.finished()) {
+                    inflated += inflater.inflate(raw, inflated, raw.length - inflated);
+                }
+                return new String(raw, 0, inflated, StandardCharsets.UTF_8);
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt state content", e);
+            } finally {
+                inflater.end();
+            }
+        });
+    }
+
+    /**
+     * Stores the image as PNG. The image must not be changed afterwards.
+     *
+     * @param image the image.
+     * @return the handle to read the image back.
+     * @throws IOException when it could not be encoded or written.
+     */
+    public Handle putImage(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, "PNG", out)) {
+            throw new IOException("No PNG writer for image type " + image.getType());
+        }
+        Handle handle = append(out.toByteArray(), 0);
+        cache.put(handle, image);
+        return handle;
+    }
+
+    /**
+     * @param handle a handle returned by {@link #putImage(BufferedImage)}.
+     * @return the image. Callers must not change it, other callers may get the same instance.
+     */
+    public BufferedImage getImage(Handle handle) {
+        return (BufferedImage) load(handle, () -> ImageIO.read(new ByteArrayInputStream(read(handle))));
+    }
+
+    /**
+     * @return the number of bytes written to the segment files.
+     */
+    public long getStoredBytes() {
+        return storedBytes.get();
+    }
+
+    @FunctionalInterface
+    private interface Loader {
+        Object load() throws IOException;
+    }
+
+    private Object load(Handle handle, Loader loader) {
+        try {
+            return cache.get(handle, () -> {
+                loads.inc();
+                return loader.load();
+            });
+        } catch (ExecutionException e) {
+            throw new CrawljaxException("Could not read state content", e.getCause());
+        }
+    }
+
+    private synchronized Handle append(byte[] bytes, int rawLength) throws IOException {
+        if (closed) {
+            throw new IOException("The store was closed when the crawl ended");
+        }
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || (segment.size > 0 && segment.size + (long) bytes.length > SEGMENT_SIZE)) {
+            if (segment != null) {
+                segment.seal();
+            }
+            segment = new Segment(new File(directory, "segment-" + segments.size() + ".bin"));
+            segments.add(segment);
+        }
+        int offset = segment.size;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            segment.channel.write(buffer, offset + buffer.position());
+        }
+        segment.size += bytes.length;
+        storedBytes.addAndGet(bytes.length);
+        return new Handle(segments.size() - 1, offset, bytes.length, rawLength);
+    }
+
+    private byte[] read(Handle handle) throws IOException {
+        if (closed) {
+            throw new IOException("The store was closed when the crawl ended");
+        }
+        return segments.get(handle.segment).read(handle.offset, handle.length);
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        cache.invalidateAll();
+        for (Segment segment : segments) {
+            try {
+                segment.raf.close();
+            } catch (IOException e) {
+                LOG.debug("Could not close {}: {}", segment.file, e.getMessage());
+            }
+            if (!segment.file.delete()) {
+                LOG.debug("Could not delete {}", segment.file);
+            }
+        }
+        segments.clear();
+        if (!directory.delete()) {
+            LOG.debug("Could not delete {}", directory);
+        }
+    }
+}
@@ -56,6 +56,16 @@ public interface StateFlowGraph {
      */
     ImmutableList<Eventable> getShortestPath(StateVertex start, StateVertex end);
 
+    /**
+     * A cheaper alternative to <code>getShortestPath(start, end).size()</code> when called for many
+     * end states.
+     *
+     * @param start the start state.
+     * @param end   the end state.
+     * @return the number of edges on the shortest path or <code>-1</code> if there is none.
+     */
+    int getHops(StateVertex start, StateVertex end);
+
     /**
      * Return all the states in the StateFlowGraph.
      *
@@ -0,0 +1,18 @@
+package com.crawljax.core.state;
+
+/**
+ * Is told about the states and edges added to an {@link InMemoryStateFlowGraph}. Called on the
+ * crawling thread that added them, so implementations should be quick and thread safe.
+ */
+public interface StateFlowGraphListener {
+
+    /**
+     * @param state the state that was added to the graph.
+     */
+    void onStateAdded(StateVertex state);
+
+    /**
+     * @param edge the edge that was added to the graph, with its source and target set.
+     */
+    void onEdgeAdded(Eventable edge);
+}
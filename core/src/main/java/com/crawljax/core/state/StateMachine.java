@@ -1,6 +1,7 @@
 package com.crawljax.core.state;
 
 import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.condition.ConditionContext;
 import com.crawljax.condition.ConditionTypeChecker;
 import com.crawljax.condition.invariant.Invariant;
 import com.crawljax.core.CrawlerContext;
@@ -54,8 +55,24 @@ public class StateMachine {
     }
 
     public StateVertex newStateFor(EmbeddedBrowser browser) {
+        return newStateFor(new ConditionContext(browser));
+    }
+
+    /**
+     * Creates a state of the page in the browser of the context from its stripped DOM, which the
+     * context retrieves once, so the conditions of the state can be checked without retrieving it
+     * again.
+     *
+     * @param conditions the conditions of the page in the browser.
+     * @return the new state.
+     */
+    public StateVertex newStateFor(ConditionContext conditions) {
+        EmbeddedBrowser browser = conditions.getBrowser();
         return stateFlowGraph.newStateFor(
-                browser.getCurrentUrl(), browser.getStrippedDom(), stateComparator.getStrippedDom(browser), browser);
+                browser.getCurrentUrl(),
+                conditions.getStrippedDom(),
+                stateComparator.getStrippedDom(conditions),
+                browser);
     }
 
     /**
@@ -142,9 +159,20 @@ public class StateMachine {
      * @return true if the new state is not found in the state machine.
      */
     public boolean switchToStateAndCheckIfClone(final Eventable event, StateVertex newState, CrawlerContext context) {
+        return switchToStateAndCheckIfClone(event, newState, context, new ConditionContext(context.getBrowser()));
+    }
+
+    /**
+     * Adds an edge between the current and new state, checking the invariants against the
+     * conditions the new state was captured with.
+     *
+     * @return true if the new state is not found in the state machine.
+     */
+    public boolean switchToStateAndCheckIfClone(
+            final Eventable event, StateVertex newState, CrawlerContext context, ConditionContext conditions) {
         StateVertex cloneState = this.addStateToCurrentState(newState, event);
 
-        runOnInvariantViolationPlugins(context);
+        runOnInvariantViolationPlugins(context, conditions);
 
         if (cloneState == null) {
             changeState(newState);
@@ -158,7 +186,16 @@ public class StateMachine {
     }
 
     public void runOnInvariantViolationPlugins(CrawlerContext context) {
-        for (Invariant failedInvariant : invariantChecker.getFailedConditions(context.getBrowser())) {
+        runOnInvariantViolationPlugins(context, new ConditionContext(context.getBrowser()));
+    }
+
+    /**
+     * @param context    the context of the crawler.
+     * @param conditions the conditions of the page in the browser, shared with the other checks of
+     *                   the same state.
+     */
+    public void runOnInvariantViolationPlugins(CrawlerContext context, ConditionContext conditions) {
+        for (Invariant failedInvariant : invariantChecker.getFailedConditions(conditions)) {
             plugins.runOnInvariantViolationPlugins(failedInvariant, context);
         }
     }
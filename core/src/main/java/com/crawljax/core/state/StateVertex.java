@@ -53,7 +53,8 @@ public interface StateVertex extends Serializable {
     int getId();
 
     /**
-     * @return a Document instance of the dom string.
+     * @return a Document instance of the dom string. It may be shared with other callers, so
+     * callers that change it must work on a copy.
      * @throws IOException if an exception is thrown.
      */
     Document getDocument() throws IOException;
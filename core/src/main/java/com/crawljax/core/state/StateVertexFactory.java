@@ -1,5 +1,6 @@
 package com.crawljax.core.state;
 
+import com.codahale.metrics.MetricRegistry;
 import com.crawljax.browser.EmbeddedBrowser;
 
 /**
@@ -26,4 +27,23 @@ public abstract class StateVertexFactory {
     public StateVertex createIndex(String url, String dom, String strippedDom, EmbeddedBrowser browser) {
         return newStateVertex(StateVertex.INDEX_ID, url, "index", dom, strippedDom, browser);
     }
+
+    /**
+     * Override this method when the states of this factory allow the {@link StateFlowGraph} to skip
+     * comparisons, for example because equal states always have the same hash code.
+     *
+     * @return A new {@link StateVertexIndex} for the states created by this factory. The default
+     * compares every new state with all states in the graph.
+     */
+    public StateVertexIndex newStateVertexIndex() {
+        return new LinearStateVertexIndex();
+    }
+
+    /**
+     * Override this method to report statistics about the comparison of the states created by this
+     * factory. Called once by the {@link StateFlowGraph} that uses this factory.
+     *
+     * @param registry the registry of the crawl.
+     */
+    public void registerMetrics(MetricRegistry registry) {}
 }
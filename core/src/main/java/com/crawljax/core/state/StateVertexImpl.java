@@ -9,6 +9,8 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 import java.io.IOException;
+import java.io.Serializable;
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -29,13 +31,18 @@ public class StateVertexImpl implements StateVertex {
 
     protected static final Logger LOG = LoggerFactory.getLogger(StateVertexImpl.class);
 
-    private static final long serialVersionUID = 123400017983488L;
+    /**
+     * Changed when the DOMs moved into {@link Content}, so states serialized before cannot be read
+     * as states without content.
+     */
+    private static final long serialVersionUID = 123400017983489L;
 
     private final int id;
-    private final String dom;
-    private final String strippedDom;
+    private volatile Content content;
+    private final int strippedDomHash;
     private final String url;
     private transient Document document;
+    private transient SoftReference<Document> parsedDocument;
     private final String name;
 
     private final transient HashMap<Node, List<CandidateElement>> nodeCandidateMapping = new HashMap<>();
@@ -76,8 +83,8 @@ public class StateVertexImpl implements StateVertex {
         this.id = id;
         this.url = url;
         this.name = name;
-        this.dom = dom;
-        this.strippedDom = strippedDom;
+        this.content = new InlineContent(dom, strippedDom);
+        this.strippedDomHash = Objects.hashCode(strippedDom);
         this.distToNearestState = -1;
         this.cluster = id;
         this.document = null;
@@ -94,12 +101,32 @@ public class StateVertexImpl implements StateVertex {
 
     @Override
     public String getDom() {
-        return dom;
+        return content.getDom();
     }
 
     @Override
     public String getStrippedDom() {
-        return strippedDom;
+        return content.getStrippedDom();
+    }
+
+    /**
+     * Moves the DOMs of this state to the store, after which they are read back on demand. Called by
+     * the {@link InMemoryStateFlowGraph} once the state has been added. When the store cannot be
+     * written the DOMs stay in the heap.
+     *
+     * @param store the store.
+     */
+    public void moveContentTo(StateContentStore store) {
+        Content inline = content;
+        if (!(inline instanceof InlineContent)) {
+            return;
+        }
+        try {
+            content = new StoredContent(
+                    store, store.putString(inline.getDom()), store.putString(inline.getStrippedDom()));
+        } catch (IOException e) {
+            LOG.warn("Could not store the DOM of state {}: {}", id, e.getMessage());
+        }
     }
 
     @Override
@@ -109,14 +136,17 @@ public class StateVertexImpl implements StateVertex {
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(strippedDom);
+        return strippedDomHash;
     }
 
     @Override
     public boolean equals(Object object) {
+        if (object instanceof StateVertexImpl && ((StateVertexImpl) object).strippedDomHash != strippedDomHash) {
+            return false;
+        }
         if (object instanceof StateVertex) {
             StateVertex that = (StateVertex) object;
-            return Objects.equal(this.strippedDom, that.getStrippedDom());
+            return Objects.equal(this.getStrippedDom(), that.getStrippedDom());
         }
         return false;
     }
@@ -131,12 +161,37 @@ public class StateVertexImpl implements StateVertex {
         return id;
     }
 
+    /**
+     * The stripped DOM is parsed at most once while the parsed tree is reachable. The garbage
+     * collector may reclaim it on large graphs, in which case it is parsed again. The tree is shared
+     * by all callers.
+     */
     @Override
     public Document getDocument() throws IOException {
         if (document != null) {
             return this.document;
         }
-        return DomUtils.asDocument(this.strippedDom);
+        synchronized (this) {
+            Document parsed = parsedDocument == null ? null : parsedDocument.get();
+            if (parsed == null) {
+                parsed = DomUtils.asDocument(getStrippedDom());
+                parsedDocument = new SoftReference<>(parsed);
+            }
+            return parsed;
+        }
+    }
+
+    /**
+     * Keeps the tree the stripped DOM was serialized from, so {@link #getDocument()} does not parse
+     * it again.
+     *
+     * @param parsed the tree of {@link #getStrippedDom()}, which is not changed afterwards, or
+     *               <code>null</code>.
+     */
+    public synchronized void cacheDocument(Document parsed) {
+        if (parsed != null) {
+            parsedDocument = new SoftReference<>(parsed);
+        }
     }
 
     @Override
@@ -307,4 +362,68 @@ public class StateVertexImpl implements StateVertex {
     public void setOnURL(boolean onURL) {
         this.onURL = onURL;
     }
+
+    private interface Content extends Serializable {
+
+        String getDom();
+
+        String getStrippedDom();
+    }
+
+    private static final class InlineContent implements Content {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String dom;
+        private final String strippedDom;
+
+        private InlineContent(String dom, String strippedDom) {
+            this.dom = dom;
+            this.strippedDom = strippedDom;
+        }
+
+        @Override
+        public String getDom() {
+            return dom;
+        }
+
+        @Override
+        public String getStrippedDom() {
+            return strippedDom;
+        }
+    }
+
+    /**
+     * Content in a {@link StateContentStore}. It is serialized as {@link InlineContent} because the
+     * store is not.
+     */
+    private static final class StoredContent implements Content {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient StateContentStore store;
+        private final transient StateContentStore.Handle dom;
+        private final transient StateContentStore.Handle strippedDom;
+
+        private StoredContent(
+                StateContentStore store, StateContentStore.Handle dom, StateContentStore.Handle strippedDom) {
+            this.store = store;
+            this.dom = dom;
+            this.strippedDom = strippedDom;
+        }
+
+        @Override
+        public String getDom() {
+            return store.getString(dom);
+        }
+
+        @Override
+        public String getStrippedDom() {
+            return store.getString(strippedDom);
+        }
+
+        private Object writeReplace() {
+            return new InlineContent(getDom(), getStrippedDom());
+        }
+    }
 }
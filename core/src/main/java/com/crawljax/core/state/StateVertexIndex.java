@@ -0,0 +1,86 @@
+package com.crawljax.core.state;
+
+import com.google.common.base.MoreObjects;
+import java.util.Collection;
+
+/**
+ * An index over the states of a {@link StateFlowGraph} that limits the number of states a new state
+ * has to be compared with. Only the {@link StateVertexFactory} knows how its states implement
+ * {@link StateVertex#equals(Object)} and {@link StateVertex#getDist(StateVertex)}, so the index is
+ * supplied by the factory through {@link StateVertexFactory#newStateVertexIndex()}.
+ *
+ * <p>Implementations are not thread-safe. The {@link InMemoryStateFlowGraph} only accesses the index
+ * while holding its insert lock.
+ */
+public interface StateVertexIndex {
+
+    /**
+     * @param vertex the state that was just added to the graph.
+     */
+    void add(StateVertex vertex);
+
+    /**
+     * @param vertex the new state.
+     * @return all indexed states that might be equal to the given state. Every indexed state {@code u}
+     * for which {@code vertex.equals(u)} holds must be part of the result.
+     */
+    Collection<StateVertex> getCloneCandidates(StateVertex vertex);
+
+    /**
+     * @param vertex the new state.
+     * @return the indexed state with the smallest {@link StateVertex#getDist(StateVertex)} to the given
+     * state or <code>null</code> if the index is empty.
+     */
+    Neighbour getNearest(StateVertex vertex);
+
+    /**
+     * @return the number of indexed states.
+     */
+    int size();
+
+    /**
+     * The result of a nearest neighbour lookup.
+     */
+    final class Neighbour {
+
+        private final StateVertex vertex;
+        private final double distance;
+        private final int comparisons;
+
+        public Neighbour(StateVertex vertex, double distance, int comparisons) {
+            this.vertex = vertex;
+            this.distance = distance;
+            this.comparisons = comparisons;
+        }
+
+        /**
+         * @return the closest state.
+         */
+        public StateVertex getVertex() {
+            return vertex;
+        }
+
+        /**
+         * @return the distance to the closest state.
+         */
+        public double getDistance() {
+            return distance;
+        }
+
+        /**
+         * @return the number of distance computations it took to find the closest state.
+         */
+        public int getComparisons() {
+            return comparisons;
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("vertex", vertex)
+                    .add("distance", distance)
+                    .add("comparisons", comparisons)
+                    .toString();
+        }
+    }
+}
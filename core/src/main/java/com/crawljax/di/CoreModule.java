@@ -16,6 +16,7 @@ import com.crawljax.core.state.StateVertexFactory;
 import com.crawljax.forms.FormHandler;
 import com.crawljax.forms.TrainingFormHandler;
 import com.crawljax.metrics.MetricsModule;
+import com.crawljax.util.VirtualThreads;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
@@ -44,7 +45,12 @@ public class CoreModule extends AbstractModule {
 
         bind(ExitNotifier.class).toInstance(new ExitNotifier(configuration.getMaximumStates()));
 
-        bind(ExecutorService.class).toInstance(Executors.newCachedThreadPool());
+        if (configuration.isVirtualThreads()) {
+            LOG.info("Running the crawl tasks on virtual threads");
+            bind(ExecutorService.class).toInstance(VirtualThreads.newThreadPerTaskExecutor("crawljax-"));
+        } else {
+            bind(ExecutorService.class).toInstance(Executors.newCachedThreadPool());
+        }
 
         bind(CrawlSession.class).toProvider(CrawlSessionProvider.class);
 
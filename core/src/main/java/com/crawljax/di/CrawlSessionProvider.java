@@ -8,6 +8,8 @@ import com.crawljax.core.CrawlerContext;
 import com.crawljax.core.configuration.CrawljaxConfiguration;
 import com.crawljax.core.state.InMemoryStateFlowGraph;
 import com.crawljax.core.state.StateVertex;
+import com.crawljax.util.ImageSink;
+import com.crawljax.util.XPathHelper;
 import com.google.common.base.Preconditions;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.inject.Inject;
@@ -37,6 +39,8 @@ public class CrawlSessionProvider implements Provider<CrawlSession> {
         this.stateFlowGraph = stateFlowGraph;
         this.config = config;
         this.registry = registry;
+        XPathHelper.registerMetrics(registry);
+        ImageSink.shared().registerMetrics(registry);
     }
 
     /**
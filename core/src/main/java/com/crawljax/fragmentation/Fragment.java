@@ -2,10 +2,6 @@ package com.crawljax.fragmentation;
 
 import com.crawljax.core.CandidateElement;
 import com.crawljax.core.state.StateVertex;
-import com.crawljax.stateabstractions.dom.apted.costmodel.StringUnitCostModel;
-import com.crawljax.stateabstractions.dom.apted.distance.APTED;
-import com.crawljax.stateabstractions.dom.apted.node.AptedNode;
-import com.crawljax.stateabstractions.dom.apted.node.StringNodeData;
 import com.crawljax.stateabstractions.dom.apted.util.AptedUtils;
 import com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl;
 import com.crawljax.stateabstractions.visual.ColorHistogram;
@@ -53,6 +49,8 @@ public class Fragment {
     private boolean isDynamic;
     private Double candidateInfluence = null;
     private final List<Fragment> domChildren = new ArrayList<>();
+    private Long structuralHash = null;
+    private Long visualStructuralHash = null;
 
     public Fragment(int id, List<Node> nestedBlocks, Rectangle rect, StateVertex referenceState) {
         this.id = id;
@@ -200,10 +198,31 @@ public class Fragment {
     }
 
     /**
-     * Uses APTED for DOM Tree comparison and Histogram for Visual Comparison Does not check if the
-     * other fragment being compared is Near-duplicate of category ND_struct Returns EQUAL if both DOM
-     * and Histogram are exactly the same Return EQUIVALENT if DOM is the same but Histogram is not.
-     * Returns DIFFERENT if DOM is different
+     * The hash of the APTED tree of this fragment, see {@link AptedUtils#getStructuralHash}. It is
+     * computed once, because the DOM of a fragment does not change.
+     *
+     * @param visualData whether the node labels include visibility.
+     * @return the structural hash.
+     */
+    public long getStructuralHash(boolean visualData) {
+        if (visualData) {
+            if (visualStructuralHash == null) {
+                visualStructuralHash = AptedUtils.getStructuralHash(AptedUtils.getAptedTree(this, true));
+            }
+            return visualStructuralHash;
+        }
+        if (structuralHash == null) {
+            structuralHash = AptedUtils.getStructuralHash(AptedUtils.getAptedTree(this, false));
+        }
+        return structuralHash;
+    }
+
+    /**
+     * Uses DOM Tree comparison and Histogram for Visual Comparison Does not check if the other
+     * fragment being compared is Near-duplicate of category ND_struct Returns EQUAL if both DOM and
+     * Histogram are exactly the same Return EQUIVALENT if DOM is the same but Histogram is not.
+     * Returns DIFFERENT if DOM is different. The DOM trees are the same when their APTED edit distance
+     * is zero, which is checked with the structural hashes and confirmed node by node.
      *
      * @param other
      * @return
@@ -211,12 +230,9 @@ public class Fragment {
     public FragmentComparision compare(Fragment other) {
         boolean visualData = ((HybridStateVertexImpl) this.referenceState).isVisualData()
                 && ((HybridStateVertexImpl) other.referenceState).isVisualData();
-        AptedNode thisTree = AptedUtils.getAptedTree(this, visualData);
-        AptedNode thatTree = AptedUtils.getAptedTree(other, visualData);
-        APTED<StringUnitCostModel, StringNodeData> apted = new APTED<>(new StringUnitCostModel());
-
-        double structuralDistance = apted.computeEditDistance(thisTree, thatTree);
-        if (structuralDistance != 0) {
+        if (this.getStructuralHash(visualData) != other.getStructuralHash(visualData)
+                || !AptedUtils.isIsomorphic(
+                        AptedUtils.getAptedTree(this, visualData), AptedUtils.getAptedTree(other, visualData))) {
             return FragmentComparision.DIFFERENT;
         }
         try {
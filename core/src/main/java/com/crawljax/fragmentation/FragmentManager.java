@@ -18,9 +18,10 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.inject.Provider;
 import javax.xml.xpath.XPathExpressionException;
 import org.opencv.core.Mat;
@@ -38,6 +39,12 @@ public class FragmentManager {
      */
     ArrayList<Fragment> fragments = new ArrayList<>();
 
+    /**
+     * The global fragments by their structural hash without visual data, in the order they were
+     * added. Only fragments with the same hash can have a tree edit distance of zero.
+     */
+    private final Map<Long, List<Fragment>> fragmentsByStructure = new HashMap<>();
+
     /**
      * Global map that maintains clusters of states. Each entry in the list is a set of states that
      * are near-duplicates to each other
@@ -45,10 +52,15 @@ public class FragmentManager {
     List<Set<StateVertex>> nearDuplicates = new ArrayList<>();
 
     HashMap<StatePair, StatePair> stateComparisionCache = new HashMap<>();
-    HashMap<Integer, Double> hops = new HashMap<>();
     private Provider<InMemoryStateFlowGraph> sfg;
     private final HashMap<Integer, Double> numNonSelections = new HashMap<>();
 
+    /**
+     * Counts the times a fragment was linked to existing duplicate or equivalent fragments, which
+     * changes {@link #calculateDuplicationFactor(CandidateElement, StateVertex)}.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
     public FragmentManager(Provider<InMemoryStateFlowGraph> graphProvider) {
         this.sfg = graphProvider;
     }
@@ -268,7 +280,8 @@ public class FragmentManager {
 
     /**
      * Every fragment that is discovered during the crawl will be compared with the global map of
-     * unique fragments
+     * unique fragments. Only the unique fragments with the same structural hash are compared, because
+     * all others are {@link FragmentComparision#DIFFERENT}.
      *
      * @param fragment the fragment to be added
      * @param fast     if true, the comparison will be done using the fast comparison algorithm
@@ -276,7 +289,16 @@ public class FragmentManager {
     public void addFragment(Fragment fragment, boolean fast) {
         ArrayList<Fragment> equivalentFragments = new ArrayList<>();
         ArrayList<Fragment> nd2Fragments = new ArrayList<>();
-        for (Fragment existingFragment : fragments) {
+        Long structuralHash = null;
+        try {
+            structuralHash = fragment.getStructuralHash(false);
+        } catch (Exception ex) {
+            LOG.warn("Error hashing Fragment {} in {}", fragment.getId(), fragment.getReferenceState());
+            LOG.debug(ex.getMessage());
+        }
+        List<Fragment> sameStructure =
+                structuralHash == null ? List.of() : fragmentsByStructure.getOrDefault(structuralHash, List.of());
+        for (Fragment existingFragment : sameStructure) {
             try {
 
                 FragmentComparision comp =
@@ -286,6 +308,7 @@ public class FragmentManager {
                         existingFragment.addDuplicateFragment(fragment);
                         fragment.addDuplicateFragment(existingFragment);
                         fragment.setIsGlobal(false);
+                        generation.incrementAndGet();
                         usefulFragment(fragment);
                         return;
                     case EQUIVALENT:
@@ -310,11 +333,19 @@ public class FragmentManager {
 
         fragment.setIsGlobal(true);
         fragments.add(fragment);
+        if (structuralHash != null) {
+            fragmentsByStructure
+                    .computeIfAbsent(structuralHash, hash -> new ArrayList<>())
+                    .add(fragment);
+        }
 
         for (Fragment existingFragment : equivalentFragments) {
             existingFragment.addEquivalentFragment(fragment);
             fragment.addEquivalentFragment(existingFragment);
         }
+        if (!equivalentFragments.isEmpty()) {
+            generation.incrementAndGet();
+        }
 
         for (Fragment existingFragment : nd2Fragments) {
             existingFragment.addND2Fragment(fragment);
@@ -656,11 +687,10 @@ public class FragmentManager {
     public StateVertex getClosestUnexploredState(
             StateVertex currentState,
             List<StateVertex> onURLSet,
-            BlockingQueue<Integer> statesWithCandidates,
+            Set<Integer> statesWithCandidates,
             boolean applyNonSelAdvantage) {
         // Selector = Influence - Hops
         long start = System.currentTimeMillis();
-        HashMap<StateVertex, Double> hops = new HashMap<>();
 
         double maxInfluence = -1000000;
         StateVertex maxState = null;
@@ -747,20 +777,15 @@ public class FragmentManager {
             return 0;
         }
 
-        if (hops.containsKey(currentState.getId())) {
-            return hops.get(currentState.getId());
-        }
-
         double averageHopsFromURLLoad = 0;
         int size = onURLSet.size();
 
         for (StateVertex onURL : onURLSet) {
-            try {
-                averageHopsFromURLLoad += sfg.get()
-                        .getShortestPath(onURL, fragment.getReferenceState())
-                        .size();
-            } catch (Exception ex) {
+            int hopsFromURL = sfg.get().getHops(onURL, fragment.getReferenceState());
+            if (hopsFromURL < 0) {
                 size = size - 1;
+            } else {
+                averageHopsFromURLLoad += hopsFromURL;
             }
         }
 
@@ -770,12 +795,7 @@ public class FragmentManager {
         }
 
         // 1 Hop to load the URL
-        averageHopsFromURLLoad = averageHopsFromURLLoad / size + 1;
-
-        if (!hops.containsKey(currentState.getId())) {
-            hops.put(currentState.getId(), averageHopsFromURLLoad);
-        }
-        return averageHopsFromURLLoad;
+        return averageHopsFromURLLoad / size + 1;
     }
 
     public double calculateCandidateInfluence(CandidateElement candidate) {
@@ -816,6 +836,14 @@ public class FragmentManager {
         return fragmentInfluence;
     }
 
+    /**
+     * @return a number that changes whenever the duplication factor of existing candidates may have
+     * changed.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
     public double calculateDuplicationFactor(CandidateElement element, StateVertex state) {
         Fragment closest = null;
         try {
@@ -1249,7 +1277,7 @@ public class FragmentManager {
 
     public void stopCrawling() {
         this.fragments = null;
-        this.hops = null;
+        this.fragmentsByStructure.clear();
         this.nearDuplicates = null;
         this.stateComparisionCache = null;
         this.sfg = null;
@@ -25,6 +25,11 @@ public class MetricsModule extends AbstractModule implements Module {
      */
     public static final String PLUGINS_PREFIX = CRAWL_PREFIX + "plugins.";
 
+    /**
+     * The prefix for a {@link Metric} concerning the states in the state-flow graph.
+     */
+    public static final String STATES_PREFIX = CRAWL_PREFIX + "states.";
+
     @Override
     protected void configure() {
         bind(MetricRegistry.class).asEagerSingleton();
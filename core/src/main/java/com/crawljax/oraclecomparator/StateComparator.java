@@ -2,6 +2,7 @@ package com.crawljax.oraclecomparator;
 
 import com.crawljax.browser.EmbeddedBrowser;
 import com.crawljax.condition.Condition;
+import com.crawljax.condition.ConditionContext;
 import com.crawljax.core.configuration.CrawlRules;
 import com.google.common.collect.ImmutableList;
 import javax.inject.Inject;
@@ -35,10 +36,29 @@ public class StateComparator {
      * @return the stripped dom using {@link OracleComparator}s.
      */
     public String getStrippedDom(EmbeddedBrowser browser) {
-        String newDom = browser.getStrippedDom();
+        return getStrippedDom(browser, browser.getStrippedDom());
+    }
+
+    /**
+     * @param browser the current browser instance
+     * @param dom     the result of {@link EmbeddedBrowser#getStrippedDom()}, to avoid retrieving and
+     *                parsing the DOM of the browser again.
+     * @return the stripped dom using {@link OracleComparator}s.
+     */
+    public String getStrippedDom(EmbeddedBrowser browser, String dom) {
+        return getStrippedDom(new ConditionContext(browser, dom));
+    }
+
+    /**
+     * @param conditions the conditions of the page in the browser, so the preconditions share the
+     *                   DOM and results of the other checks of the same state.
+     * @return the stripped dom using {@link OracleComparator}s.
+     */
+    public String getStrippedDom(ConditionContext conditions) {
+        String newDom = conditions.getStrippedDom();
         for (OracleComparator oraclePreCondition : oracleComparator) {
             // use oracle if preconditions succeeds
-            if (allPreConditionsSucceed(oraclePreCondition, browser)) {
+            if (allPreConditionsSucceed(oraclePreCondition, conditions)) {
 
                 Comparator oracle = oraclePreCondition.getOracle();
                 LOGGER.debug("Using {} : {}", oracle.getClass().getSimpleName(), oraclePreCondition.getId());
@@ -55,10 +75,10 @@ public class StateComparator {
         return newDom;
     }
 
-    private boolean allPreConditionsSucceed(OracleComparator oraclePreCondition, EmbeddedBrowser browser) {
+    private boolean allPreConditionsSucceed(OracleComparator oraclePreCondition, ConditionContext conditions) {
         for (Condition preCondition : oraclePreCondition.getPreConditions()) {
             LOGGER.debug("Check precondition: {}", preCondition);
-            if (!preCondition.check(browser)) {
+            if (!conditions.check(preCondition)) {
                 return false;
             }
         }
@@ -1,5 +1,6 @@
 package com.crawljax.stateabstractions.dom.RTED;
 
+import com.crawljax.stateabstractions.dom.TreeSignature;
 import com.crawljax.util.DomUtils;
 import java.io.IOException;
 import org.slf4j.Logger;
@@ -50,6 +51,21 @@ public class RTEDUtils {
         return DD;
     }
 
+    /**
+     * @param dom the DOM string.
+     * @return the {@link TreeSignature} of the tree used by
+     * {@link #getRobustTreeEditDistance(String, String)} or <code>null</code> if the DOM could not be
+     * parsed.
+     */
+    public static TreeSignature getTreeSignature(String dom) {
+        try {
+            return TreeSignature.of(getDomTree(dom));
+        } catch (IOException e) {
+            LOG.error("IO Exception creating the tree signature of the given dom");
+            return null;
+        }
+    }
+
     private static LblTree getDomTree(String dom1) throws IOException {
 
         org.w3c.dom.Document doc1 = DomUtils.asDocument(dom1);
@@ -1,5 +1,6 @@
 package com.crawljax.stateabstractions.dom;
 
+import com.codahale.metrics.MetricRegistry;
 import com.crawljax.browser.EmbeddedBrowser;
 import com.crawljax.core.state.StateVertex;
 import com.crawljax.core.state.StateVertexFactory;
@@ -12,6 +13,8 @@ public class RTEDStateVertexFactory extends StateVertexFactory {
 
     private static double threshold = 0.0;
 
+    private final TreeDistancePrefilter prefilter = new TreeDistancePrefilter();
+
     public RTEDStateVertexFactory() {}
 
     public RTEDStateVertexFactory(double threshold) {
@@ -21,7 +24,12 @@ public class RTEDStateVertexFactory extends StateVertexFactory {
     @Override
     public StateVertex newStateVertex(
             int id, String url, String name, String dom, String strippedDom, EmbeddedBrowser browser) {
-        return new RTEDStateVertexImpl(id, url, name, dom, strippedDom, threshold);
+        return new RTEDStateVertexImpl(id, url, name, dom, strippedDom, threshold, prefilter);
+    }
+
+    @Override
+    public void registerMetrics(MetricRegistry registry) {
+        prefilter.registerMetrics(registry);
     }
 
     @Override
@@ -17,6 +17,10 @@ public class RTEDStateVertexImpl extends StateVertexImpl {
 
     private double threshold = 0.0;
 
+    private final transient TreeDistancePrefilter prefilter;
+
+    private transient TreeSignature signature;
+
     /**
      * Defines a State.
      *
@@ -28,8 +32,31 @@ public class RTEDStateVertexImpl extends StateVertexImpl {
      * @param threshold   the threshold to be used
      */
     public RTEDStateVertexImpl(int id, String url, String name, String dom, String strippedDom, double threshold) {
+        this(id, url, name, dom, strippedDom, threshold, new TreeDistancePrefilter());
+    }
+
+    /**
+     * Defines a State.
+     *
+     * @param id          id of the state in the SFG
+     * @param url         the current url of the state
+     * @param name        the name of the state
+     * @param dom         the current DOM tree of the browser
+     * @param strippedDom the stripped dom by the OracleComparators
+     * @param threshold   the threshold to be used
+     * @param prefilter   rejects comparisons that certainly exceed the threshold
+     */
+    public RTEDStateVertexImpl(
+            int id,
+            String url,
+            String name,
+            String dom,
+            String strippedDom,
+            double threshold,
+            TreeDistancePrefilter prefilter) {
         super(id, url, name, dom, strippedDom);
         this.threshold = threshold;
+        this.prefilter = prefilter;
     }
 
     @Override
@@ -42,9 +69,33 @@ public class RTEDStateVertexImpl extends StateVertexImpl {
         return RTEDUtils.getRobustTreeEditDistance(dom1, dom2);
     }
 
+    private synchronized TreeSignature getTreeSignature() {
+        if (signature == null) {
+            signature = RTEDUtils.getTreeSignature(this.getDom());
+        }
+        return signature;
+    }
+
+    /**
+     * The distance is normalized by the size of the largest tree, so the threshold is scaled back
+     * before it is checked against the lower bounds.
+     */
+    private boolean exceedsThreshold(RTEDStateVertexImpl that) {
+        TreeSignature thisSignature = this.getTreeSignature();
+        TreeSignature thatSignature = that.getTreeSignature();
+        if (prefilter == null || thisSignature == null || thatSignature == null) {
+            return false;
+        }
+        int maxSize = Math.max(thisSignature.getSize(), thatSignature.getSize());
+        return prefilter.exceeds(thisSignature, thatSignature, threshold * maxSize);
+    }
+
     @Override
     public boolean equals(Object object) {
         RTEDStateVertexImpl that = (RTEDStateVertexImpl) object;
+        if (exceedsThreshold(that)) {
+            return false;
+        }
         double distance = computeDistance(this.getDom(), that.getDom());
         return distance <= threshold;
     }
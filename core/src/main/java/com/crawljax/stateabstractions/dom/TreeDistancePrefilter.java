@@ -0,0 +1,74 @@
+package com.crawljax.stateabstractions.dom;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.crawljax.metrics.MetricsModule;
+
+/**
+ * Rejects state comparisons of which the unit cost tree edit distance provably exceeds the
+ * threshold, using a cascade of increasingly expensive lower bounds from {@link TreeSignature}. Only
+ * comparisons that pass all stages need the full tree edit distance.
+ *
+ * <p>The number of comparisons rejected by every stage is counted so the cascade can be tuned.
+ */
+public class TreeDistancePrefilter {
+
+    private final Counter sizeRejects = new Counter();
+    private final Counter labelRejects = new Counter();
+    private final Counter degreeRejects = new Counter();
+    private final Counter passed = new Counter();
+
+    /**
+     * @param first       the signature of the first tree or <code>null</code> if unknown.
+     * @param second      the signature of the second tree or <code>null</code> if unknown.
+     * @param maxDistance the largest tree edit distance that is still acceptable.
+     * @return <code>true</code> if the tree edit distance is certainly larger than maxDistance.
+     */
+    public boolean exceeds(TreeSignature first, TreeSignature second, double maxDistance) {
+        return lowerBound(first, second, maxDistance) > maxDistance;
+    }
+
+    /**
+     * Runs the cascade until a stage exceeds maxDistance, so the cheaper stages decide most
+     * comparisons.
+     *
+     * @param first       the signature of the first tree or <code>null</code> if unknown.
+     * @param second      the signature of the second tree or <code>null</code> if unknown.
+     * @param maxDistance the largest tree edit distance that is still acceptable.
+     * @return a lower bound of the tree edit distance, which is larger than maxDistance if a stage
+     * rejected the comparison.
+     */
+    public int lowerBound(TreeSignature first, TreeSignature second, double maxDistance) {
+        if (first == null || second == null) {
+            return 0;
+        }
+        int size = first.sizeLowerBound(second);
+        if (size > maxDistance) {
+            sizeRejects.inc();
+            return size;
+        }
+        int label = first.labelLowerBound(second);
+        if (label > maxDistance) {
+            labelRejects.inc();
+            return label;
+        }
+        int degree = first.degreeLowerBound(second);
+        if (degree > maxDistance) {
+            degreeRejects.inc();
+            return degree;
+        }
+        passed.inc();
+        return Math.max(size, Math.max(label, degree));
+    }
+
+    /**
+     * @param registry the registry to report the reject counts of every stage to.
+     */
+    public void registerMetrics(MetricRegistry registry) {
+        String prefix = MetricsModule.STATES_PREFIX + "prefilter.";
+        registry.register(prefix + "size_rejects", sizeRejects);
+        registry.register(prefix + "label_rejects", labelRejects);
+        registry.register(prefix + "degree_rejects", degreeRejects);
+        registry.register(prefix + "passed", passed);
+    }
+}
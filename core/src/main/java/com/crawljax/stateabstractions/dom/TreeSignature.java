@@ -0,0 +1,117 @@
+package com.crawljax.stateabstractions.dom;
+
+import com.crawljax.stateabstractions.dom.RTED.LblTree;
+import com.crawljax.stateabstractions.dom.apted.node.NodeIndexer;
+import com.crawljax.stateabstractions.dom.apted.node.StringNodeData;
+import com.google.common.base.MoreObjects;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.swing.tree.TreeNode;
+
+/**
+ * A small summary of a labelled tree from which lower bounds on the unit cost tree edit distance to
+ * another tree can be computed in time linear in the number of distinct labels and degrees, instead
+ * of running a full tree edit distance algorithm.
+ *
+ * <p>With unit costs every edit operation changes the size by at most one, the label histogram by
+ * at most two (rename) and the degree histogram by at most three (insert or delete of a node that
+ * adopts children) [Kailing et al., EDBT 2004].
+ */
+public class TreeSignature {
+
+    private final int size;
+    private final Map<String, Integer> labelCounts;
+    private final Map<Integer, Integer> degreeCounts;
+
+    private TreeSignature(int size, Map<String, Integer> labelCounts, Map<Integer, Integer> degreeCounts) {
+        this.size = size;
+        this.labelCounts = labelCounts;
+        this.degreeCounts = degreeCounts;
+    }
+
+    /**
+     * @param indexedTree an indexed APTED tree.
+     * @return the signature of the tree.
+     */
+    public static TreeSignature of(NodeIndexer<StringNodeData, ?> indexedTree) {
+        Map<String, Integer> labels = new HashMap<>();
+        Map<Integer, Integer> degrees = new HashMap<>();
+        int size = indexedTree.getSize();
+        for (int i = 0; i < size; i++) {
+            labels.merge(indexedTree.preL_to_node[i].getNodeData().getLabel(), 1, Integer::sum);
+            degrees.merge(indexedTree.children[i].length, 1, Integer::sum);
+        }
+        return new TreeSignature(size, labels, degrees);
+    }
+
+    /**
+     * @param tree an RTED tree.
+     * @return the signature of the tree.
+     */
+    public static TreeSignature of(LblTree tree) {
+        Map<String, Integer> labels = new HashMap<>();
+        Map<Integer, Integer> degrees = new HashMap<>();
+        int size = 0;
+        Enumeration<TreeNode> nodes = tree.preorderEnumeration();
+        while (nodes.hasMoreElements()) {
+            LblTree node = (LblTree) nodes.nextElement();
+            labels.merge(node.getLabel(), 1, Integer::sum);
+            degrees.merge(node.getChildCount(), 1, Integer::sum);
+            size++;
+        }
+        return new TreeSignature(size, labels, degrees);
+    }
+
+    /**
+     * @return the number of nodes in the tree.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @param other the signature of the other tree.
+     * @return a lower bound based on the difference in the number of nodes.
+     */
+    public int sizeLowerBound(TreeSignature other) {
+        return Math.abs(size - other.size);
+    }
+
+    /**
+     * @param other the signature of the other tree.
+     * @return a lower bound based on the L1 distance between the label histograms.
+     */
+    public int labelLowerBound(TreeSignature other) {
+        return (l1Distance(labelCounts, other.labelCounts) + 1) / 2;
+    }
+
+    /**
+     * @param other the signature of the other tree.
+     * @return a lower bound based on the L1 distance between the degree histograms.
+     */
+    public int degreeLowerBound(TreeSignature other) {
+        return (l1Distance(degreeCounts, other.degreeCounts) + 2) / 3;
+    }
+
+    private static <K> int l1Distance(Map<K, Integer> first, Map<K, Integer> second) {
+        Set<K> keys = new HashSet<>(first.keySet());
+        keys.addAll(second.keySet());
+        int distance = 0;
+        for (K key : keys) {
+            distance += Math.abs(first.getOrDefault(key, 0) - second.getOrDefault(key, 0));
+        }
+        return distance;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("size", size)
+                .add("labels", labelCounts.size())
+                .add("degrees", degreeCounts.size())
+                .toString();
+    }
+}
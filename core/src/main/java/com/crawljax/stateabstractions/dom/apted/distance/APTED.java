@@ -163,6 +163,26 @@ public class APTED<C extends CostModel, D> {
         return gted(it1, it2);
     }
 
+    /**
+     * Compute tree edit distance between two trees that are already indexed. The indices are shared
+     * and not modified, so the same indexed tree can be compared with many other trees.
+     *
+     * @param indexed1 indexer of the source tree.
+     * @param indexed2 indexer of the destination tree.
+     * @return tree edit distance.
+     * @see NodeIndexer#NodeIndexer(NodeIndexer)
+     */
+    public float computeEditDistance(NodeIndexer<D, C> indexed1, NodeIndexer<D, C> indexed2) {
+        init(indexed1, indexed2);
+        if (it1.lchl < it1.rchl) {
+            delta = computeOptStrategy_postL(it1, it2);
+        } else {
+            delta = computeOptStrategy_postR(it1, it2);
+        }
+        tedInit();
+        return gted(it1, it2);
+    }
+
     /**
      * This method is only for testing purspose. It computes TED with a fixed path type in the
      * strategy to trigger execution of a specific single-path function.
@@ -207,6 +227,19 @@ public class APTED<C extends CostModel, D> {
         size2 = it2.getSize();
     }
 
+    /**
+     * Initialises node indexers from already indexed trees and stores input tree sizes.
+     *
+     * @param indexed1 indexer of the source input tree.
+     * @param indexed2 indexer of the destination input tree.
+     */
+    public void init(NodeIndexer<D, C> indexed1, NodeIndexer<D, C> indexed2) {
+        it1 = new NodeIndexer<>(indexed1);
+        it2 = new NodeIndexer<>(indexed2);
+        size1 = it1.getSize();
+        size2 = it2.getSize();
+    }
+
     /**
      * After the optimal strategy is computed, initialises distances of deleting and inserting
      * subtrees without their root nodes.
@@ -297,6 +297,42 @@ public class NodeIndexer<D, C extends CostModel> {
         postTraversalIndexing();
     }
 
+    /**
+     * Creates an indexer that shares all indices with an already indexed tree. Only the state that
+     * APTED modifies while computing a distance is not shared, so the same indexed tree can be used
+     * in many (concurrent) distance computations without indexing it again.
+     *
+     * @param indexed an indexer of an input tree.
+     */
+    public NodeIndexer(NodeIndexer<D, C> indexed) {
+        preL_to_node = indexed.preL_to_node;
+        sizes = indexed.sizes;
+        parents = indexed.parents;
+        children = indexed.children;
+        postL_to_lld = indexed.postL_to_lld;
+        postR_to_rld = indexed.postR_to_rld;
+        preL_to_ln = indexed.preL_to_ln;
+        preR_to_ln = indexed.preR_to_ln;
+        nodeType_L = indexed.nodeType_L;
+        nodeType_R = indexed.nodeType_R;
+        preL_to_preR = indexed.preL_to_preR;
+        preR_to_preL = indexed.preR_to_preL;
+        preL_to_postL = indexed.preL_to_postL;
+        postL_to_preL = indexed.postL_to_preL;
+        preL_to_postR = indexed.preL_to_postR;
+        postR_to_preL = indexed.postR_to_preL;
+        preL_to_kr_sum = indexed.preL_to_kr_sum;
+        preL_to_rev_kr_sum = indexed.preL_to_rev_kr_sum;
+        preL_to_desc_sum = indexed.preL_to_desc_sum;
+        preL_to_sumDelCost = indexed.preL_to_sumDelCost;
+        preL_to_sumInsCost = indexed.preL_to_sumInsCost;
+        lchl = indexed.lchl;
+        rchl = indexed.rchl;
+        treeSize = indexed.treeSize;
+        costModel = indexed.costModel;
+        currentNode = 0;
+    }
+
     /**
      * Indexes the nodes of the input tree. Stores information about each tree node in index arrays.
      * It computes the following indices: {@link #parents}, {@link #children}, {@link #nodeType_L},
@@ -1,7 +1,9 @@
 package com.crawljax.stateabstractions.dom.apted.util;
 
 import com.crawljax.fragmentation.Fragment;
+import com.crawljax.stateabstractions.dom.apted.costmodel.StringUnitCostModel;
 import com.crawljax.stateabstractions.dom.apted.node.AptedNode;
+import com.crawljax.stateabstractions.dom.apted.node.NodeIndexer;
 import com.crawljax.stateabstractions.dom.apted.node.StringNodeData;
 import com.crawljax.vips_selenium.VipsUtils;
 import org.w3c.dom.Document;
@@ -15,6 +17,24 @@ public class AptedUtils {
         return getAptedTree(doc.getElementsByTagName("body").item(0), visualData);
     }
 
+    /**
+     * Builds the APTED tree of the document body and indexes it, so it can be compared many times
+     * using {@link com.crawljax.stateabstractions.dom.apted.distance.APTED#computeEditDistance(NodeIndexer,
+     * NodeIndexer)}.
+     *
+     * @param doc        the document.
+     * @param visualData whether the node labels include visibility.
+     * @return the indexed tree or <code>null</code> if the document has no body.
+     */
+    public static NodeIndexer<StringNodeData, StringUnitCostModel> getIndexedTree(
+            Document doc, boolean visualData) {
+        AptedNode<StringNodeData> tree = getAptedTree(doc, visualData);
+        if (tree == null) {
+            return null;
+        }
+        return new NodeIndexer<>(tree, new StringUnitCostModel());
+    }
+
     /**
      * Recursively construct a LblTree from DOM tree
      *
@@ -96,6 +116,48 @@ public class AptedUtils {
         return root;
     }
 
+    /**
+     * Hashes a tree bottom-up from the label of every node and the hashes of its ordered children,
+     * like a Merkle tree. Trees with a unit cost tree edit distance of zero have the same hash, so
+     * different hashes prove the trees differ. Equal hashes should be confirmed with
+     * {@link #isIsomorphic(AptedNode, AptedNode)}.
+     *
+     * @param tree the tree.
+     * @return the structural hash of the tree.
+     */
+    public static long getStructuralHash(AptedNode<StringNodeData> tree) {
+        long hash = mix(tree.getNodeData().getLabel().hashCode());
+        for (AptedNode<StringNodeData> child : tree.getChildren()) {
+            hash = mix(hash * 31 + getStructuralHash(child));
+        }
+        return mix(hash + tree.getChildren().size());
+    }
+
+    /**
+     * @param first  the first tree.
+     * @param second the second tree.
+     * @return <code>true</code> if both trees have the same shape and labels, which means their unit
+     * cost tree edit distance is zero.
+     */
+    public static boolean isIsomorphic(AptedNode<StringNodeData> first, AptedNode<StringNodeData> second) {
+        if (!first.getNodeData().getLabel().equals(second.getNodeData().getLabel())
+                || first.getChildren().size() != second.getChildren().size()) {
+            return false;
+        }
+        for (int i = 0; i < first.getChildren().size(); i++) {
+            if (!isIsomorphic(first.getChildren().get(i), second.getChildren().get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
     public static AptedNode getAptedTree(Fragment fragment, boolean visualData) {
 
         if (fragment.getFragmentParentNode() != null) {
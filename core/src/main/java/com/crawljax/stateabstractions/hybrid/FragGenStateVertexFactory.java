@@ -1,13 +1,18 @@
 package com.crawljax.stateabstractions.hybrid;
 
+import com.codahale.metrics.MetricRegistry;
 import com.crawljax.browser.EmbeddedBrowser;
 import com.crawljax.browser.WebDriverBackedEmbeddedBrowser;
 import com.crawljax.core.configuration.CrawljaxConfiguration.CrawljaxConfigurationBuilder;
 import com.crawljax.core.state.StateVertex;
+import com.crawljax.core.state.MetricTreeStateVertexIndex;
 import com.crawljax.core.state.StateVertexFactory;
+import com.crawljax.core.state.StateVertexIndex;
 import com.crawljax.fragmentation.FragmentationPlugin;
+import com.crawljax.stateabstractions.dom.TreeDistancePrefilter;
 import com.crawljax.vips_selenium.VipsUtils;
 import java.awt.image.BufferedImage;
+import org.w3c.dom.Document;
 
 /**
  * The default factory that creates State vertexes with a {@link Object#hashCode()} and
@@ -17,6 +22,7 @@ public class FragGenStateVertexFactory extends StateVertexFactory {
 
     private static double threshold = 0.0;
     private boolean visualData = false;
+    private final TreeDistancePrefilter prefilter = new TreeDistancePrefilter();
 
     public FragGenStateVertexFactory(double threshold, CrawljaxConfigurationBuilder builder, boolean visualData) {
         builder.addPlugin(new FragmentationPlugin());
@@ -27,8 +33,10 @@ public class FragGenStateVertexFactory extends StateVertexFactory {
     @Override
     public StateVertex newStateVertex(
             int id, String url, String name, String dom, String strippedDom, EmbeddedBrowser browser) {
-        HybridStateVertexImpl newVertex =
-                new HybridStateVertexImpl(id, url, name, dom, strippedDom, threshold, visualData);
+        // The state fragments the tree of the browser, instead of parsing the stripped DOM again.
+        Document strippedParsed = browser == null ? null : browser.takeStrippedDocument(strippedDom);
+        HybridStateVertexImpl newVertex = new HybridStateVertexImpl(
+                id, url, name, dom, strippedDom, strippedParsed, threshold, visualData, prefilter);
         if (visualData && browser != null) {
             BufferedImage screenshot = browser.getScreenShotAsBufferedImage(500);
             newVertex.setImage(screenshot);
@@ -40,6 +48,27 @@ public class FragGenStateVertexFactory extends StateVertexFactory {
         return newVertex;
     }
 
+    /**
+     * {@link HybridStateVertexImpl}s are equal when their tree edit distance is within the threshold.
+     * The unit cost tree edit distance is a metric, so the states can be kept in a metric tree. The
+     * tree signatures bound the distance, so most tree nodes are skipped without the tree edit
+     * distance.
+     */
+    @Override
+    public StateVertexIndex newStateVertexIndex() {
+        return new MetricTreeStateVertexIndex(
+                threshold,
+                (query, indexed, maxDistance) -> prefilter.lowerBound(
+                        ((HybridStateVertexImpl) query).getTreeSignature(),
+                        ((HybridStateVertexImpl) indexed).getTreeSignature(),
+                        maxDistance));
+    }
+
+    @Override
+    public void registerMetrics(MetricRegistry registry) {
+        prefilter.registerMetrics(registry);
+    }
+
     @Override
     public String toString() {
         return "Hybrid" + threshold;
@@ -3,28 +3,34 @@ package com.crawljax.stateabstractions.hybrid;
 import com.crawljax.browser.EmbeddedBrowser;
 import com.crawljax.browser.WebDriverBackedEmbeddedBrowser;
 import com.crawljax.core.CandidateElement;
+import com.crawljax.core.state.StateContentStore;
 import com.crawljax.core.state.StateVertex;
 import com.crawljax.core.state.StateVertexImpl;
 import com.crawljax.fragmentation.Fragment;
 import com.crawljax.fragmentation.FragmentManager;
+import com.crawljax.stateabstractions.dom.TreeDistancePrefilter;
+import com.crawljax.stateabstractions.dom.TreeSignature;
 import com.crawljax.stateabstractions.dom.apted.costmodel.StringUnitCostModel;
 import com.crawljax.stateabstractions.dom.apted.distance.APTED;
 import com.crawljax.stateabstractions.dom.apted.node.AptedNode;
+import com.crawljax.stateabstractions.dom.apted.node.NodeIndexer;
 import com.crawljax.stateabstractions.dom.apted.node.StringNodeData;
 import com.crawljax.stateabstractions.dom.apted.util.AptedUtils;
 import com.crawljax.stateabstractions.visual.OpenCVLoad;
 import com.crawljax.util.DomUtils;
+import com.crawljax.util.ImageSink;
 import com.crawljax.util.XPathHelper;
 import com.crawljax.vips_selenium.VipsRectangle;
 import com.crawljax.vips_selenium.VipsSelenium;
 import com.crawljax.vips_selenium.VipsUtils;
 import com.google.common.base.MoreObjects;
-import com.google.common.base.Objects;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -44,7 +50,6 @@ import org.w3c.dom.Node;
 public class HybridStateVertexImpl extends StateVertexImpl {
 
     private static final long serialVersionUID = 123400017983489L;
-    public static final boolean FAST_COMPARE = false;
 
     static {
         OpenCVLoad.load();
@@ -58,12 +63,31 @@ public class HybridStateVertexImpl extends StateVertexImpl {
 
     private transient BufferedImage image = null;
 
+    /**
+     * Where the screenshot is kept once the state has been moved to a {@link StateContentStore}.
+     */
+    private transient StateContentStore contentStore;
+
+    private transient StateContentStore.Handle imageHandle;
+
+    /**
+     * The indexed APTED tree of {@link #fragmentedDom}. Kept softly so the garbage collector can
+     * reclaim it on large graphs, in which case it is rebuilt on the next comparison.
+     */
+    private transient SoftReference<NodeIndexer<StringNodeData, StringUnitCostModel>> indexedTree;
+
+    /**
+     * Summary of the indexed tree used to reject comparisons without computing the distance. Unlike
+     * the tree itself it is small enough to keep.
+     */
+    private transient TreeSignature signature;
+
+    private final transient TreeDistancePrefilter prefilter;
+
     private boolean fragmented = false;
 
     private boolean visualData = false;
 
-    private int size = -1;
-
     /**
      * Defines a State.
      *
@@ -77,13 +101,65 @@ public class HybridStateVertexImpl extends StateVertexImpl {
      */
     public HybridStateVertexImpl(
             int id, String url, String name, String dom, String strippedDom, double threshold, boolean visualData) {
+        this(id, url, name, dom, strippedDom, threshold, visualData, new TreeDistancePrefilter());
+    }
+
+    /**
+     * Defines a State.
+     *
+     * @param id          id of the state in the SFG
+     * @param url         the current url of the state
+     * @param name        the name of the state
+     * @param dom         the current DOM tree of the browser
+     * @param strippedDom the stripped dom by the OracleComparators
+     * @param threshold   the threshold to be used
+     * @param visualData
+     * @param prefilter   rejects comparisons that certainly exceed the threshold
+     */
+    public HybridStateVertexImpl(
+            int id,
+            String url,
+            String name,
+            String dom,
+            String strippedDom,
+            double threshold,
+            boolean visualData,
+            TreeDistancePrefilter prefilter) {
+        this(id, url, name, dom, strippedDom, null, threshold, visualData, prefilter);
+    }
+
+    /**
+     * Defines a State.
+     *
+     * @param id             id of the state in the SFG
+     * @param url            the current url of the state
+     * @param name           the name of the state
+     * @param dom            the current DOM tree of the browser
+     * @param strippedDom    the stripped dom by the OracleComparators
+     * @param strippedParsed the tree <code>strippedDom</code> was serialized from, which the state
+     *                       takes over, or <code>null</code> to parse it
+     * @param threshold      the threshold to be used
+     * @param visualData
+     * @param prefilter      rejects comparisons that certainly exceed the threshold
+     */
+    public HybridStateVertexImpl(
+            int id,
+            String url,
+            String name,
+            String dom,
+            String strippedDom,
+            Document strippedParsed,
+            double threshold,
+            boolean visualData,
+            TreeDistancePrefilter prefilter) {
         super(id, url, name, dom, strippedDom);
+        this.prefilter = prefilter;
         this.fragments = null;
         long start = System.currentTimeMillis();
         this.threshold = threshold;
         this.visualData = visualData;
         try {
-            this.fragmentedDom = DomUtils.asDocument(strippedDom);
+            this.fragmentedDom = strippedParsed != null ? strippedParsed : DomUtils.asDocument(strippedDom);
             boolean offline = false;
             VipsUtils.cleanDom(fragmentedDom, offline);
         } catch (IOException e) {
@@ -284,6 +360,7 @@ public class HybridStateVertexImpl extends StateVertexImpl {
 
     public void setVisualData(boolean visualData) {
         this.visualData = visualData;
+        clearIndexedTree();
     }
 
     public boolean isFragmented() {
@@ -292,6 +369,7 @@ public class HybridStateVertexImpl extends StateVertexImpl {
 
     public Document loadFragmentDom(Document dom, BufferedImage screenshot) {
         this.fragmentedDom = dom;
+        clearIndexedTree();
         boolean offline = true;
         VipsUtils.cleanDom(fragmentedDom, offline);
         VipsSelenium vips =
@@ -299,7 +377,7 @@ public class HybridStateVertexImpl extends StateVertexImpl {
         //		VipsSeleniumParser parser = new VipsSeleniumParser(vips);
         List<VipsRectangle> rectangles = vips.startSegmentation();
         fragmented = true;
-        this.image = screenshot;
+        setImage(screenshot);
         this.addFragments(rectangles, null);
         return fragmentedDom;
     }
@@ -318,7 +396,8 @@ public class HybridStateVertexImpl extends StateVertexImpl {
             //			VipsSeleniumParser parser = new VipsSeleniumParser(vips);
             List<VipsRectangle> rectangles = vips.startSegmentation();
             fragmented = true;
-            this.image = screenshot;
+            clearIndexedTree();
+            setImage(screenshot);
             this.addFragments(rectangles, browser.getWebDriver());
         }
 
@@ -333,19 +412,110 @@ public class HybridStateVertexImpl extends StateVertexImpl {
     @Override
     public void setDocument(Document dom) {
         this.fragmentedDom = dom;
+        clearIndexedTree();
+    }
+
+    /**
+     * The DOM of a state does not change once it is in the graph, so its APTED tree is built and
+     * indexed only once instead of for every comparison.
+     *
+     * @return the indexed APTED tree of this state or <code>null</code> if the DOM has no body.
+     */
+    synchronized NodeIndexer<StringNodeData, StringUnitCostModel> getIndexedTree() {
+        NodeIndexer<StringNodeData, StringUnitCostModel> indexer = indexedTree == null ? null : indexedTree.get();
+        if (indexer == null) {
+            indexer = AptedUtils.getIndexedTree(getDocument(), visualData);
+            indexedTree = new SoftReference<>(indexer);
+        }
+        return indexer;
+    }
+
+    private synchronized void clearIndexedTree() {
+        indexedTree = null;
+        signature = null;
+    }
+
+    synchronized TreeSignature getTreeSignature() {
+        if (signature == null) {
+            NodeIndexer<StringNodeData, StringUnitCostModel> indexer = getIndexedTree();
+            if (indexer != null) {
+                signature = TreeSignature.of(indexer);
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Same as {@link #computeDistance(Document, Document, boolean)} but reuses the indexed trees of
+     * both states.
+     */
+    private double computeDistance(HybridStateVertexImpl that) {
+        APTED<StringUnitCostModel, StringNodeData> apted = new APTED<>(new StringUnitCostModel());
+        return apted.computeEditDistance(this.getIndexedTree(), that.getIndexedTree());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(this.getStrippedDom());
+        return super.hashCode();
     }
 
-    public BufferedImage getImage() {
+    public synchronized BufferedImage getImage() {
+        if (image == null && imageHandle != null) {
+            return contentStore.getImage(imageHandle);
+        }
         return image;
     }
 
     public void setImage(BufferedImage image) {
-        this.image = image;
+        StateContentStore store;
+        synchronized (this) {
+            this.image = image;
+            this.imageHandle = null;
+            store = contentStore;
+        }
+        if (store != null) {
+            storeImage(store, image);
+        }
+    }
+
+    /**
+     * Also moves the screenshot to the store, and any screenshot set afterwards.
+     */
+    @Override
+    public void moveContentTo(StateContentStore store) {
+        BufferedImage pending;
+        synchronized (this) {
+            super.moveContentTo(store);
+            this.contentStore = store;
+            pending = image;
+        }
+        storeImage(store, pending);
+    }
+
+    /**
+     * Encodes the screenshot on the {@link ImageSink}, so the crawler does not wait for it. The
+     * screenshot stays in the heap until it is stored, and is only dropped if it was not replaced
+     * in the meantime. The lock of the state is not held while submitting, so a full sink cannot
+     * block the job that needs it.
+     */
+    private void storeImage(StateContentStore store, BufferedImage pending) {
+        if (pending == null) {
+            return;
+        }
+        try {
+            ImageSink.shared().submit("the screenshot of state " + getId(), () -> {
+                StateContentStore.Handle handle = store.putImage(pending);
+                synchronized (this) {
+                    if (image == pending) {
+                        imageHandle = handle;
+                        image = null;
+                    }
+                }
+            });
+        } catch (InterruptedException e) {
+            LOG.warn("Interrupted, keeping the screenshot of state {} in the heap", getId());
+            Thread.currentThread().interrupt();
+        }
     }
 
     public List<List<Node>> getDifference(StateVertex other) {
@@ -400,38 +570,17 @@ public class HybridStateVertexImpl extends StateVertexImpl {
         return dynamicFragments;
     }
 
-    private int getSize() {
-        if (size == -2) {
-            return size;
-        }
-        if (size == -1) {
-            try {
-                size = DomUtils.getAllSubtreeNodes(
-                                getDocument().getElementsByTagName("body").item(0))
-                        .getLength();
-            } catch (XPathExpressionException e) {
-                LOG.error("Error finding DOM size for {}", getName());
-                size = -2;
-            }
-        }
-        return size;
-    }
-
     @Override
     public boolean equals(Object object) {
         HybridStateVertexImpl that = (HybridStateVertexImpl) object;
         if (this.getId() == that.getId()) {
             return true;
         }
-        if (FAST_COMPARE) {
-            if (this.getSize() < 0 || that.getSize() < 0) {
-                LOG.error("Cant do fast compare: unable to get state size {} {}", this, that);
-            } else if (this.getSize() != that.getSize()) {
+        try {
+            if (prefilter != null && prefilter.exceeds(this.getTreeSignature(), that.getTreeSignature(), threshold)) {
                 return false;
             }
-        }
-        try {
-            double distance = computeDistance(this.getDocument(), that.getDocument(), visualData);
+            double distance = computeDistance(that);
             //			LOG.info("Distance  between {} {} is {}", this.getName(), that.getName(), distance);
             return distance <= threshold;
         } catch (Exception ex) {
@@ -453,7 +602,7 @@ public class HybridStateVertexImpl extends StateVertexImpl {
     public double getDist(StateVertex vertexOfGraph) {
         if (vertexOfGraph instanceof HybridStateVertexImpl) {
             HybridStateVertexImpl vertex = (HybridStateVertexImpl) vertexOfGraph;
-            return computeDistance(this.getDocument(), vertex.getDocument(), visualData);
+            return computeDistance(vertex);
         }
         return -1;
     }
@@ -542,7 +691,16 @@ public class HybridStateVertexImpl extends StateVertexImpl {
                     continue;
                 }
                 File subImageTarget = new File(fragFolder, "" + fragment.getId() + ".png");
-                VipsUtils.exportFragment(pageViewport, subImageTarget, fragment.getRect());
+                Rectangle rect = new Rectangle(fragment.getRect());
+                try {
+                    ImageSink.shared()
+                            .submit(subImageTarget.getName(), () ->
+                                    VipsUtils.exportFragment(pageViewport, subImageTarget, rect));
+                } catch (InterruptedException e) {
+                    LOG.debug("Interrupted while exporting the fragments of {}", getName());
+                    Thread.currentThread().interrupt();
+                    return;
+                }
             }
         }
     }
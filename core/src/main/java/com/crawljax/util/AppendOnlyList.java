@@ -0,0 +1,84 @@
+package com.crawljax.util;
+
+import com.google.common.base.Preconditions;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A list that one thread at a time appends to and any thread reads without a lock. The elements are
+ * kept in an array that is only copied when it is full, into one of twice the size, so an append
+ * takes amortized constant time. A {@link #snapshot()} shares the array instead of copying it, and
+ * does not see the elements that are appended afterwards.
+ *
+ * @param <E> the type of the elements.
+ */
+@ThreadSafe
+public final class AppendOnlyList<E> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Written before {@link #size}, so a reader that sees a size also sees an array that holds that
+     * many elements.
+     */
+    private volatile Object[] elements = new Object[INITIAL_CAPACITY];
+
+    private volatile int size;
+
+    /**
+     * Appends an element. Callers must not append concurrently.
+     *
+     * @param element the element.
+     */
+    public void add(E element) {
+        Preconditions.checkNotNull(element);
+        Object[] current = elements;
+        int index = size;
+        if (index == current.length) {
+            current = Arrays.copyOf(current, index * 2);
+            current[index] = element;
+            elements = current;
+        } else {
+            current[index] = element;
+        }
+        size = index + 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the elements appended so far, in the order they were appended.
+     */
+    public List<E> snapshot() {
+        int length = size;
+        return new Snapshot<>(elements, length);
+    }
+
+    private static final class Snapshot<E> extends AbstractList<E> implements RandomAccess {
+
+        private final Object[] elements;
+        private final int size;
+
+        private Snapshot(Object[] elements, int size) {
+            this.elements = elements;
+            this.size = size;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public E get(int index) {
+            Preconditions.checkElementIndex(index, size);
+            return (E) elements[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
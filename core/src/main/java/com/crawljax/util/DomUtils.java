@@ -4,6 +4,7 @@ import com.crawljax.core.CrawljaxException;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
 import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -14,7 +15,10 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -29,11 +33,9 @@ import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
-import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import org.apache.commons.lang3.StringUtils;
 import org.custommonkey.xmlunit.DetailedDiff;
 import org.custommonkey.xmlunit.Diff;
@@ -47,6 +49,7 @@ import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import org.w3c.dom.ProcessingInstruction;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
@@ -59,6 +62,13 @@ public final class DomUtils {
     private static final Logger LOGGER = LoggerFactory.getLogger(DomUtils.class.getName());
     private static final int TEXT_CUTOFF = 50;
 
+    /**
+     * Looking up the {@link TransformerFactory} implementation is expensive, and factories are not
+     * guaranteed to be thread-safe.
+     */
+    private static final ThreadLocal<TransformerFactory> TRANSFORMER_FACTORY =
+            ThreadLocal.withInitial(TransformerFactory::newInstance);
+
     private DomUtils() {}
 
     /**
@@ -132,6 +142,54 @@ public final class DomUtils {
         }
     }
 
+    /**
+     * Adds the characters of {@link #getElementAttributes(Element, ImmutableSet)} to a hasher without
+     * building the string.
+     *
+     * @param hasher  the hasher.
+     * @param element The DOM Element.
+     * @param exclude the list of exclude strings.
+     * @return the hasher.
+     */
+    public static Hasher putElementAttributes(Hasher hasher, Element element, ImmutableSet<String> exclude) {
+        NamedNodeMap attributes = element == null ? null : element.getAttributes();
+        if (attributes == null) {
+            return hasher;
+        }
+        int last = -1;
+        for (int i = 0; i < attributes.getLength(); i++) {
+            if (!exclude.contains(attributes.item(i).getNodeName())) {
+                last = i;
+            }
+        }
+        boolean first = true;
+        for (int i = 0; i <= last; i++) {
+            Attr attr = (Attr) attributes.item(i);
+            if (exclude.contains(attr.getNodeName())) {
+                continue;
+            }
+            if (!first) {
+                hasher.putChar(' ');
+            }
+            first = false;
+            hasher.putUnencodedChars(attr.getNodeName()).putChar('=');
+            String value = attr.getNodeValue();
+            if (i < last) {
+                hasher.putUnencodedChars(value);
+            } else {
+                // the string is trimmed after the last value
+                int end = value.length();
+                while (end > 0 && value.charAt(end - 1) <= ' ') {
+                    end--;
+                }
+                for (int c = 0; c < end; c++) {
+                    hasher.putChar(value.charAt(c));
+                }
+            }
+        }
+        return hasher;
+    }
+
     /**
      * @param element the element.
      * @return a string representation of the element including its attributes.
@@ -158,10 +216,7 @@ public final class DomUtils {
      * @throws XPathExpressionException if the xpath fails.
      */
     public static Element getElementByXpath(Document dom, String xpath) throws XPathExpressionException {
-        XPath xp = XPathFactory.newInstance().newXPath();
-        xp.setNamespaceContext(new HtmlNamespace());
-
-        return (Element) xp.evaluate(xpath, dom, XPathConstants.NODE);
+        return (Element) XPathHelper.HTML_EXPRESSION_CACHE.get(xpath).evaluate(dom, XPathConstants.NODE);
     }
 
     /**
@@ -247,8 +302,7 @@ public final class DomUtils {
             Source source = new DOMSource(dom);
             StringWriter stringWriter = new StringWriter();
             Result result = new StreamResult(stringWriter);
-            TransformerFactory factory = TransformerFactory.newInstance();
-            Transformer transformer = factory.newTransformer();
+            Transformer transformer = TRANSFORMER_FACTORY.get().newTransformer();
             transformer.setOutputProperty(OutputKeys.INDENT, "no");
             transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
             transformer.setOutputProperty(OutputKeys.METHOD, "html");
@@ -480,7 +534,7 @@ public final class DomUtils {
     }
 
     public static NodeList getAllLeafNodes(Document document) throws XPathExpressionException {
-        XPathExpression xpath = XPathFactory.newInstance().newXPath().compile("//*[count(./*) = 0]");
+        XPathExpression xpath = XPathHelper.EXPRESSION_CACHE.get("//*[count(./*) = 0]");
         NodeList nodes = (NodeList) xpath.evaluate(document, XPathConstants.NODESET);
         return nodes;
     }
@@ -545,11 +599,10 @@ public final class DomUtils {
 
     public static List<String> getTextTokens(Document document) {
         List<String> tokens = new ArrayList<>();
-        XPathFactory xpathFactory = XPathFactory.newInstance();
         // XPath to find empty text nodes.
         XPathExpression xpathExp;
         try {
-            xpathExp = xpathFactory.newXPath().compile("//text()");
+            xpathExp = XPathHelper.EXPRESSION_CACHE.get("//text()");
             NodeList textNodes = (NodeList) xpathExp.evaluate(document, XPathConstants.NODESET);
             for (int i = 0; i < textNodes.getLength(); i++) {
                 Node textNode = textNodes.item(i);
@@ -585,9 +638,8 @@ public final class DomUtils {
     }
 
     public static String getDOMWithoutContent(Document document) throws XPathExpressionException {
-        XPathFactory xpathFactory = XPathFactory.newInstance();
         // XPath to find empty text nodes.
-        XPathExpression xpathExp = xpathFactory.newXPath().compile("//text()");
+        XPathExpression xpathExp = XPathHelper.EXPRESSION_CACHE.get("//text()");
         NodeList textNodes = (NodeList) xpathExp.evaluate(document, XPathConstants.NODESET);
         for (int i = 0; i < textNodes.getLength(); i++) {
             Node textNode = textNodes.item(i);
@@ -655,10 +707,9 @@ public final class DomUtils {
     }
 
     public static Document removeComments(Document document) {
-        XPathFactory xpathFactory = XPathFactory.newInstance();
         XPathExpression xpathExp;
         try {
-            xpathExp = xpathFactory.newXPath().compile("//comment()");
+            xpathExp = XPathHelper.EXPRESSION_CACHE.get("//comment()");
             NodeList comments = (NodeList) xpathExp.evaluate(document, XPathConstants.NODESET);
             for (int i = 0; i < comments.getLength(); i++) {
                 Node comment = comments.item(i);
@@ -674,7 +725,7 @@ public final class DomUtils {
 
     public static int getNumLeafNodes(Node node) throws XPathExpressionException {
         String startingxpath = XPathHelper.getXPathExpression(node);
-        XPathExpression xpath = XPathFactory.newInstance().newXPath().compile(startingxpath + "//*[count(./*) = 0]");
+        XPathExpression xpath = XPathHelper.EXPRESSION_CACHE.get(startingxpath + "//*[count(./*) = 0]");
         NodeList leafNodes = (NodeList) xpath.evaluate(node, XPathConstants.NODESET);
         //        System.out.println(leafNodes.item(0));
         return leafNodes.getLength();
@@ -682,12 +733,65 @@ public final class DomUtils {
 
     public static NodeList getAllSubtreeNodes(Node node) throws XPathExpressionException {
         String startingxpath = XPathHelper.getXPathExpression(node);
-        XPathExpression xpath = XPathFactory.newInstance().newXPath().compile(startingxpath + "//*");
+        XPathExpression xpath = XPathHelper.EXPRESSION_CACHE.get(startingxpath + "//*");
         NodeList leafNodes = (NodeList) xpath.evaluate(node, XPathConstants.NODESET);
         //        System.out.println(leafNodes.item(0));
         return leafNodes;
     }
 
+    /**
+     * Removes the <code>SCRIPT</code> elements and <code>&lt;?xml:...&gt;</code> processing
+     * instructions, and the given attributes of all elements. This is the equivalent of the regular
+     * expressions of {@link #getStrippedDom(String)} on an already parsed document, so the document
+     * does not have to be serialized and parsed again.
+     *
+     * @param document         the document to strip. It is modified in place.
+     * @param filterAttributes the names of the attributes to remove, case insensitive.
+     * @return the given document.
+     */
+    public static Document stripDocument(Document document, Collection<String> filterAttributes) {
+        Deque<Node> toVisit = new ArrayDeque<>();
+        toVisit.push(document);
+        while (!toVisit.isEmpty()) {
+            Node node = toVisit.pop();
+            Node child = node.getFirstChild();
+            while (child != null) {
+                Node next = child.getNextSibling();
+                if (isStripped(child)) {
+                    node.removeChild(child);
+                } else {
+                    if (child.getNodeType() == Node.ELEMENT_NODE && !filterAttributes.isEmpty()) {
+                        removeAttributes((Element) child, filterAttributes);
+                    }
+                    toVisit.push(child);
+                }
+                child = next;
+            }
+        }
+        return document;
+    }
+
+    private static boolean isStripped(Node node) {
+        if (node.getNodeType() == Node.ELEMENT_NODE) {
+            return node.getNodeName().equalsIgnoreCase("SCRIPT");
+        }
+        return node.getNodeType() == Node.PROCESSING_INSTRUCTION_NODE
+                && ((ProcessingInstruction) node).getTarget().startsWith("xml:");
+    }
+
+    private static void removeAttributes(Element element, Collection<String> filterAttributes) {
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = attributes.getLength() - 1; i >= 0; i--) {
+            String name = attributes.item(i).getNodeName();
+            for (String filtered : filterAttributes) {
+                if (filtered.equalsIgnoreCase(name)) {
+                    element.removeAttribute(name);
+                    break;
+                }
+            }
+        }
+    }
+
     public static String getStrippedDom(String fullDom) {
 
         try {
@@ -761,7 +865,7 @@ public final class DomUtils {
         XPathExpression xpath;
 
         try {
-            xpath = XPathFactory.newInstance().newXPath().compile("//@*");
+            xpath = XPathHelper.EXPRESSION_CACHE.get("//@*");
 
             NodeList leafNodes = (NodeList) xpath.evaluate(dom.getDocumentElement(), XPathConstants.NODESET);
             for (int i = 0; i < leafNodes.getLength(); i++) {
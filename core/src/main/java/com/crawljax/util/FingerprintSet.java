@@ -0,0 +1,171 @@
+package com.crawljax.util;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A set of 128-bit fingerprints of strings. The fingerprints are kept in open addressing tables of
+ * primitive longs, so a fingerprint costs 16 bytes or a little more instead of the string it
+ * represents. The set is split into stripes that are locked separately, so threads that add
+ * different fingerprints rarely wait for each other.
+ * <p>
+ * A fingerprint that is built with {@link #newFingerprint()} from the parts of a string equals the
+ * {@link #fingerprint(CharSequence)} of the whole string, so callers do not have to build the
+ * string.
+ */
+@ThreadSafe
+public final class FingerprintSet {
+
+    private static final HashFunction FUNCTION = Hashing.murmur3_128();
+
+    private static final int STRIPES = 16;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public FingerprintSet() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * @return a hasher for a fingerprint that is built from the parts of a string with
+     * {@link Hasher#putUnencodedChars(CharSequence)} and {@link Hasher#putChar(char)}.
+     */
+    public static Hasher newFingerprint() {
+        return FUNCTION.newHasher();
+    }
+
+    /**
+     * @param chars the string.
+     * @return the fingerprint of the string.
+     */
+    public static HashCode fingerprint(CharSequence chars) {
+        return FUNCTION.hashUnencodedChars(chars);
+    }
+
+    /**
+     * @param fingerprint the fingerprint.
+     * @return whether the fingerprint was added before.
+     */
+    public boolean contains(HashCode fingerprint) {
+        ByteBuffer bytes = asLongs(fingerprint);
+        long high = bytes.getLong();
+        long low = bytes.getLong();
+        return stripe(high).contains(high, low);
+    }
+
+    /**
+     * @param fingerprint the fingerprint.
+     * @return <code>true</code> if the fingerprint was not in the set yet.
+     */
+    public boolean add(HashCode fingerprint) {
+        ByteBuffer bytes = asLongs(fingerprint);
+        long high = bytes.getLong();
+        long low = bytes.getLong();
+        return stripe(high).add(high, low);
+    }
+
+    /**
+     * @return the number of fingerprints in the set.
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private static ByteBuffer asLongs(HashCode fingerprint) {
+        Preconditions.checkArgument(fingerprint.bits() == 128, "Fingerprints have 128 bits");
+        return ByteBuffer.wrap(fingerprint.asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private Stripe stripe(long high) {
+        return stripes[(int) (high >>> 60) & (STRIPES - 1)];
+    }
+
+    /**
+     * A table with linear probing that stores a fingerprint in two consecutive longs. The fingerprint
+     * that is all zeros marks an empty slot, so it is remembered separately.
+     */
+    private static final class Stripe {
+
+        @GuardedBy("this")
+        private long[] table = new long[2 * INITIAL_CAPACITY];
+
+        @GuardedBy("this")
+        private int size;
+
+        @GuardedBy("this")
+        private boolean containsZero;
+
+        synchronized boolean contains(long high, long low) {
+            if (high == 0 && low == 0) {
+                return containsZero;
+            }
+            int slot = slot(table, high, low);
+            return table[slot] != 0 || table[slot + 1] != 0;
+        }
+
+        synchronized boolean add(long high, long low) {
+            if (high == 0 && low == 0) {
+                boolean added = !containsZero;
+                containsZero = true;
+                return added;
+            }
+            int slot = slot(table, high, low);
+            if (table[slot] != 0 || table[slot + 1] != 0) {
+                return false;
+            }
+            table[slot] = high;
+            table[slot + 1] = low;
+            size++;
+            if (size > table.length / 4) {
+                grow();
+            }
+            return true;
+        }
+
+        synchronized int size() {
+            return containsZero ? size + 1 : size;
+        }
+
+        @GuardedBy("this")
+        private void grow() {
+            long[] old = table;
+            table = new long[2 * old.length];
+            for (int i = 0; i < old.length; i += 2) {
+                if (old[i] != 0 || old[i + 1] != 0) {
+                    int slot = slot(table, old[i], old[i + 1]);
+                    table[slot] = old[i];
+                    table[slot + 1] = old[i + 1];
+                }
+            }
+        }
+
+        /**
+         * @return the slot that holds the fingerprint, or the empty slot where it belongs.
+         */
+        private static int slot(long[] table, long high, long low) {
+            int mask = table.length / 2 - 1;
+            int index = (int) low & mask;
+            while (true) {
+                int slot = 2 * index;
+                if ((table[slot] == high && table[slot + 1] == low) || (table[slot] == 0 && table[slot + 1] == 0)) {
+                    return slot;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+    }
+}
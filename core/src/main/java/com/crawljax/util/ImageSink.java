@@ -0,0 +1,132 @@
+package com.crawljax.util;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.crawljax.metrics.MetricsModule;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Encodes and writes images on a pool of worker threads, so the crawler threads do not wait for
+ * PNG compression or the disk. At most <code>capacity</code> images are pending at any time;
+ * submitting more blocks until one has been written, which bounds the memory held by screenshots.
+ * Errors are logged, the images submitted must not be changed afterwards.
+ */
+public final class ImageSink {
+
+    /**
+     * Writes one or more images.
+     */
+    @FunctionalInterface
+    public interface ImageJob {
+        void write() throws IOException;
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImageSink.class);
+
+    private static final ImageSink SHARED =
+            new ImageSink(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 16);
+
+    private final ExecutorService workers;
+    private final Semaphore slots;
+    private final int capacity;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Timer encodeTime = new Timer();
+
+    /**
+     * @param threads  the number of worker threads.
+     * @param capacity the maximum number of jobs that are queued or being written.
+     */
+    public ImageSink(int threads, int capacity) {
+        this.workers = Executors.newFixedThreadPool(
+                threads,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("image-sink-%d")
+                        .setDaemon(true)
+                        .build());
+        this.capacity = capacity;
+        this.slots = new Semaphore(capacity);
+    }
+
+    /**
+     * @return the sink shared by the crawl and the plugins.
+     */
+    public static ImageSink shared() {
+        return SHARED;
+    }
+
+    /**
+     * Writes the image in the given format, for example <code>PNG</code>.
+     *
+     * @see #submit(String, ImageJob)
+     */
+    public Future<?> write(BufferedImage image, String format, File target) throws InterruptedException {
+        return submit(target.getName(), () -> ImageIO.write(image, format, target));
+    }
+
+    /**
+     * Queues the job, waiting for a free slot when <code>capacity</code> jobs are pending.
+     *
+     * @param description what is written, for the log.
+     * @param job         the job.
+     * @return the future of the job, failing with the exception of the job.
+     * @throws InterruptedException when interrupted while waiting for a slot.
+     */
+    public Future<?> submit(String description, ImageJob job) throws InterruptedException {
+        slots.acquire();
+        pending.incrementAndGet();
+        try {
+            return workers.submit(() -> {
+                try (Timer.Context ignored = encodeTime.time()) {
+                    job.write();
+                    return null;
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Could not write {}: {}", description, e.getMessage());
+                    LOG.debug("Writing {} failed", description, e);
+                    throw e;
+                } finally {
+                    pending.decrementAndGet();
+                    slots.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            pending.decrementAndGet();
+            slots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits until all jobs submitted so far are written.
+     *
+     * @throws InterruptedException when interrupted while waiting.
+     */
+    public void awaitCompletion() throws InterruptedException {
+        slots.acquire(capacity);
+        slots.release(capacity);
+    }
+
+    /**
+     * @return the number of jobs that are queued or being written.
+     */
+    public int getQueueDepth() {
+        return pending.get();
+    }
+
+    public void registerMetrics(MetricRegistry registry) {
+        Gauge<Integer> queueDepth = this::getQueueDepth;
+        registry.gauge(MetricRegistry.name(MetricsModule.CRAWL_PREFIX, "images", "queue_depth"), () -> queueDepth);
+        registry.timer(MetricRegistry.name(MetricsModule.CRAWL_PREFIX, "images", "encode_time"), () -> encodeTime);
+    }
+}
@@ -0,0 +1,75 @@
+package com.crawljax.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates executors that start a virtual thread per task. Virtual threads are available from JDK
+ * 21, while Crawljax is built for JDK 11, so they are looked up reflectively. A virtual thread
+ * that blocks on a WebDriver call or a sleep releases its carrier thread, so one JVM can drive many
+ * more browsers than it has platform threads.
+ */
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = lookup(Thread.class, "ofVirtual");
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR =
+            lookup(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+    private VirtualThreads() {}
+
+    private static Method lookup(Class<?> type, String name, Class<?>... parameters) {
+        try {
+            return type.getMethod(name, parameters);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return whether the running JVM supports virtual threads.
+     */
+    public static boolean isAvailable() {
+        return OF_VIRTUAL != null && NEW_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * @param prefix the name of the threads, followed by a counter.
+     * @return a factory of unstarted virtual threads.
+     * @throws UnsupportedOperationException when the JVM does not support virtual threads.
+     */
+    public static ThreadFactory factory(String prefix) {
+        checkAvailable();
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Could not create a virtual thread factory", e);
+        }
+    }
+
+    /**
+     * @param prefix the name of the threads, followed by a counter.
+     * @return an executor that starts a new virtual thread for every task.
+     * @throws UnsupportedOperationException when the JVM does not support virtual threads.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        ThreadFactory factory = factory(prefix);
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new UnsupportedOperationException("Could not create a virtual thread executor", e);
+        }
+    }
+
+    private static void checkAvailable() {
+        if (!isAvailable()) {
+            throw new UnsupportedOperationException("Virtual threads need JDK 21 or later, this is JDK "
+                    + System.getProperty("java.specification.version"));
+        }
+    }
+}
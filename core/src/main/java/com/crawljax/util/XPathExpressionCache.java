@@ -0,0 +1,88 @@
+package com.crawljax.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * Caches compiled {@link XPathExpression}s. Neither {@link XPath} nor compiled expressions are
+ * thread-safe, so every thread gets its own {@link XPath} and its own least recently used cache of
+ * at most the given number of expressions.
+ */
+public final class XPathExpressionCache {
+
+    private final NamespaceContext namespaceContext;
+    private final int maximumSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final ThreadLocal<Compiler> compilers = ThreadLocal.withInitial(Compiler::new);
+
+    /**
+     * @param namespaceContext the namespace context the expressions are compiled with, or
+     *                         <code>null</code> for none.
+     * @param maximumSize      the maximum number of compiled expressions per thread.
+     */
+    public XPathExpressionCache(NamespaceContext namespaceContext, int maximumSize) {
+        this.namespaceContext = namespaceContext;
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * @param expression the XPath expression.
+     * @return the compiled expression, which may only be used by the calling thread.
+     * @throws XPathExpressionException if the expression cannot be compiled.
+     */
+    public XPathExpression get(String expression) throws XPathExpressionException {
+        return compilers.get().compile(expression);
+    }
+
+    /**
+     * @return the number of lookups that found a compiled expression.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that had to compile the expression.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private final class Compiler {
+
+        private final XPath xpath;
+
+        private final Map<String, XPathExpression> expressions = new LinkedHashMap<String, XPathExpression>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+                return size() > maximumSize;
+            }
+        };
+
+        private Compiler() {
+            xpath = XPathFactory.newInstance().newXPath();
+            if (namespaceContext != null) {
+                xpath.setNamespaceContext(namespaceContext);
+            }
+        }
+
+        private XPathExpression compile(String expression) throws XPathExpressionException {
+            XPathExpression compiled = expressions.get(expression);
+            if (compiled != null) {
+                hits.increment();
+                return compiled;
+            }
+            misses.increment();
+            compiled = xpath.compile(expression);
+            expressions.put(expression, compiled);
+            return compiled;
+        }
+    }
+}
@@ -1,24 +1,28 @@
 package com.crawljax.util;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.crawljax.forms.FormInput;
 import com.crawljax.forms.FormInput.InputType;
+import com.crawljax.metrics.MetricsModule;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -39,6 +43,16 @@ public final class XPathHelper {
 
     private static final int MAX_SEARCH_LOOPS = 10000;
 
+    /**
+     * The number of compiled expressions kept per thread and namespace context.
+     */
+    private static final int EXPRESSION_CACHE_SIZE = 1024;
+
+    static final XPathExpressionCache EXPRESSION_CACHE = new XPathExpressionCache(null, EXPRESSION_CACHE_SIZE);
+
+    static final XPathExpressionCache HTML_EXPRESSION_CACHE =
+            new XPathExpressionCache(new HtmlNamespace(), EXPRESSION_CACHE_SIZE);
+
     private XPathHelper() {}
 
     /**
@@ -133,6 +147,25 @@ public final class XPathHelper {
         return getSkeletonXpath(node);
     }
 
+    /**
+     * Caches the {@link #getXPathExpression(Node) XPath expression} of every element child of the
+     * given element. The children are numbered in one pass over the child list, instead of scanning
+     * all siblings for every child.
+     *
+     * @param parent the element of which the children are visited.
+     */
+    public static void cacheChildXPathExpressions(Element parent) {
+        String parentXpath = getXPathExpression(parent);
+        Map<String, Integer> positions = new HashMap<>();
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            int position = positions.merge(child.getNodeName(), 1, Integer::sum);
+            if (child.getNodeType() == Node.ELEMENT_NODE && child.getUserData(SKEL_XPATH_CACHE) == null) {
+                child.setUserData(
+                        SKEL_XPATH_CACHE, parentXpath + "/" + child.getNodeName() + "[" + position + "]", null);
+            }
+        }
+    }
+
     /**
      * Reverse Engineers an XPath Expression of a given Node in the DOM.
      *
@@ -231,13 +264,23 @@ public final class XPathHelper {
      * @throws XPathExpressionException On error.
      */
     public static NodeList evaluateXpathExpression(Document dom, String xpathExpr) throws XPathExpressionException {
-        XPathFactory factory = XPathFactory.newInstance();
-        XPath xpath = factory.newXPath();
-        XPathExpression expr = xpath.compile(xpathExpr);
+        XPathExpression expr = EXPRESSION_CACHE.get(xpathExpr);
         Object result = expr.evaluate(dom, XPathConstants.NODESET);
         return (NodeList) result;
     }
 
+    /**
+     * Reports the hits and misses of the compiled expression caches.
+     *
+     * @param registry the registry of the crawl.
+     */
+    public static void registerMetrics(MetricRegistry registry) {
+        Gauge<Long> hits = () -> EXPRESSION_CACHE.getHitCount() + HTML_EXPRESSION_CACHE.getHitCount();
+        Gauge<Long> misses = () -> EXPRESSION_CACHE.getMissCount() + HTML_EXPRESSION_CACHE.getMissCount();
+        registry.gauge(MetricRegistry.name(MetricsModule.CRAWL_PREFIX, "xpath_cache", "hits"), () -> hits);
+        registry.gauge(MetricRegistry.name(MetricsModule.CRAWL_PREFIX, "xpath_cache", "misses"), () -> misses);
+    }
+
     /**
      * Returns the XPaths of all nodes retrieved by xpathExpression. Example: //DIV[@id='foo'] returns
      * /HTM[1]/BODY[1]/DIV[2]
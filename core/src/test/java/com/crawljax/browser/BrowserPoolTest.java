@@ -0,0 +1,131 @@
+package com.crawljax.browser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.codahale.metrics.MetricRegistry;
+import com.crawljax.browser.EmbeddedBrowser.BrowserType;
+import com.crawljax.core.configuration.BrowserConfiguration;
+import com.crawljax.core.configuration.BrowserOptions;
+import com.crawljax.core.configuration.CrawljaxConfiguration;
+import com.crawljax.core.plugin.OnBrowserCreatedPlugin;
+import com.crawljax.core.plugin.Plugins;
+import com.crawljax.metrics.MetricsModule;
+import com.google.common.collect.ImmutableSortedSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+public class BrowserPoolTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final WebDriverBrowserBuilder builder = mock(WebDriverBrowserBuilder.class);
+    private final MetricRegistry registry = new MetricRegistry();
+    private final OnBrowserCreatedPlugin onBrowserCreated = mock(OnBrowserCreatedPlugin.class);
+
+    @Test
+    public void aHealthyBrowserIsKept() {
+        WebDriver driver = newDriver();
+        when(((JavascriptExecutor) driver).executeScript(anyString())).thenReturn(1000L);
+        WebDriverBackedEmbeddedBrowser browser = newBrowser(driver);
+        BrowserPool pool = newPool(0, 1_000_000, 1000);
+
+        assertThat(pool.maintain(browser), is(false));
+        assertThat(browser.getWebDriver(), is(sameInstance(driver)));
+    }
+
+    @Test
+    public void aBrowserThatDoesNotAnswerIsReplaced() {
+        WebDriver driver = newDriver();
+        when(((JavascriptExecutor) driver).executeScript(anyString())).thenThrow(new WebDriverException("crashed"));
+        WebDriver fresh = newDriver();
+        when(builder.newDriver()).thenReturn(fresh);
+        WebDriverBackedEmbeddedBrowser browser = newBrowser(driver);
+        BrowserPool pool = newPool(0, 0, 1000);
+
+        assertThat(pool.maintain(browser), is(true));
+        assertThat(browser.getWebDriver(), is(sameInstance(fresh)));
+        verify(driver, timeout(1000)).quit();
+        assertThat(registry.counter(MetricsModule.CRAWL_PREFIX + ".browsers.recycled.unhealthy").getCount(), is(1L));
+    }
+
+    @Test(timeout = 5000L)
+    public void aBrowserWithALargeHeapIsReplacedBySpare() throws InterruptedException {
+        WebDriver spare = newDriver();
+        when(builder.newDriver()).thenReturn(spare, newDriver());
+        BrowserPool pool = newPool(1, 1000, 0);
+        while (pool.getSpareCount() == 0) {
+            Thread.sleep(10);
+        }
+        WebDriver driver = newDriver();
+        when(((JavascriptExecutor) driver).executeScript(anyString())).thenReturn(2000L);
+        WebDriverBackedEmbeddedBrowser browser = newBrowser(driver);
+
+        assertThat(pool.maintain(browser), is(true));
+        assertThat(browser.getWebDriver(), is(sameInstance(spare)));
+        assertThat(registry.counter(MetricsModule.CRAWL_PREFIX + ".browsers.recycled.memory").getCount(), is(1L));
+        pool.close();
+    }
+
+    @Test
+    public void theOnBrowserCreatedPluginsRunForTheNewDriver() {
+        WebDriver driver = newDriver();
+        when(((JavascriptExecutor) driver).executeScript(anyString())).thenThrow(new WebDriverException("crashed"));
+        when(builder.newDriver()).thenReturn(newDriver());
+        WebDriverBackedEmbeddedBrowser browser = newBrowser(driver);
+        BrowserPool pool = newPool(0, 0, 1000);
+
+        assertThat(pool.maintain(browser), is(true));
+        verify(onBrowserCreated).onBrowserCreated(browser);
+    }
+
+    @Test
+    public void customBrowsersAreNotPooled() {
+        BrowserOptions options = new BrowserOptions();
+        options.setMaxPingLatency(1000);
+        BrowserConfiguration browserConfig =
+                new BrowserConfiguration(BrowserType.CHROME_HEADLESS, 1, () -> mock(EmbeddedBrowser.class));
+        browserConfig.setBrowserOptions(options);
+        CrawljaxConfiguration config = CrawljaxConfiguration.builderFor("http://example.com")
+                .setBrowserConfig(browserConfig)
+                .build();
+        WebDriver driver = newDriver();
+
+        BrowserPool pool = new BrowserPool(config, builder, new Plugins(config, registry), registry);
+
+        assertThat(pool.maintain(newBrowser(driver)), is(false));
+    }
+
+    private BrowserPool newPool(int spares, long maxHeapSize, long maxPingLatency) {
+        BrowserOptions options = new BrowserOptions();
+        options.setSpareBrowsers(spares);
+        options.setMaxBrowserHeapSize(maxHeapSize);
+        options.setMaxPingLatency(maxPingLatency);
+        CrawljaxConfiguration config = CrawljaxConfiguration.builderFor("http://example.com")
+                .setBrowserConfig(new BrowserConfiguration(BrowserType.CHROME_HEADLESS, 1, options))
+                .setOutputDirectory(folder.getRoot())
+                .addPlugin(onBrowserCreated)
+                .build();
+        return new BrowserPool(config, builder, new Plugins(config, registry), registry);
+    }
+
+    private static WebDriver newDriver() {
+        return mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+    }
+
+    private static WebDriverBackedEmbeddedBrowser newBrowser(WebDriver driver) {
+        return WebDriverBackedEmbeddedBrowser.withDriver(driver, ImmutableSortedSet.of(), 0, 0);
+    }
+}
@@ -0,0 +1,102 @@
+package com.crawljax.browser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import com.codahale.metrics.MetricRegistry;
+import com.crawljax.metrics.MetricsModule;
+import com.crawljax.test.BrowserTest;
+import com.crawljax.test.RunWithWebServer;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+@Category(BrowserTest.class)
+public class DomQuiescenceWaiterTest {
+
+    private static final long QUIET_PERIOD = 100;
+    private static final long MAX_WAIT = 1000;
+
+    @ClassRule
+    public static final RunWithWebServer SERVER = new RunWithWebServer("/site/iframe");
+
+    @Rule
+    public final BrowserProvider provider = new BrowserProvider();
+
+    private final MetricRegistry registry = new MetricRegistry();
+    private final DomQuiescenceWaiter waiter = new DomQuiescenceWaiter(QUIET_PERIOD, registry);
+    private RemoteWebDriver driver;
+
+    @Before
+    public void loadPage() {
+        driver = provider.newBrowser();
+        driver.get(SERVER.getSiteUrl().toString());
+    }
+
+    @Test
+    public void aSettledPageIsWaitedForOneQuietPeriod() throws InterruptedException {
+        long waited = waiter.waitAfterReload(driver, MAX_WAIT);
+
+        assertThat(waited, is(greaterThanOrEqualTo(QUIET_PERIOD)));
+        assertThat(waited, is(lessThan(MAX_WAIT)));
+        assertThat(registry.histogram(MetricRegistry.name(
+                                MetricsModule.CRAWL_PREFIX, "browser", "reload_settle_time"))
+                        .getCount(),
+                is(1L));
+    }
+
+    @Test
+    public void aPageThatKeepsChangingIsWaitedForUntilTheMaximum() throws InterruptedException {
+        waiter.prepare(driver);
+        ((JavascriptExecutor) driver)
+                .executeScript("setInterval(function() {"
+                        + " document.getElementById('content').textContent = Date.now(); }, 5);");
+
+        long waited = waiter.waitAfterEvent(driver, MAX_WAIT);
+
+        assertThat(waited, is(greaterThanOrEqualTo(MAX_WAIT)));
+        assertThat(waited, is(lessThan(MAX_WAIT + 1000)));
+        assertThat(registry.histogram(MetricRegistry.name(
+                                MetricsModule.CRAWL_PREFIX, "browser", "event_settle_time"))
+                        .getCount(),
+                is(1L));
+    }
+
+    @Test
+    public void aMutationAClickSchedulesIsWaitedFor() throws InterruptedException {
+        waiter.waitAfterReload(driver, MAX_WAIT);
+        ((JavascriptExecutor) driver)
+                .executeScript("document.getElementById('content').onclick = function() {"
+                        + " setTimeout(function() {"
+                        + " document.getElementById('content').textContent = 'changed'; }, 50); };");
+        Thread.sleep(QUIET_PERIOD * 2);
+
+        waiter.prepare(driver);
+        driver.findElement(By.id("content")).click();
+        waiter.waitAfterEvent(driver, MAX_WAIT);
+
+        assertThat(driver.findElement(By.id("content")).getText(), is("changed"));
+    }
+
+    @Test
+    public void anAnimationLoopIsNotWaitedFor() throws InterruptedException {
+        waiter.prepare(driver);
+        ((JavascriptExecutor) driver)
+                .executeScript("var content = document.getElementById('content');"
+                        + " var loop = function(time) {"
+                        + " content.style.marginLeft = (Math.floor(time) % 100) + 'px';"
+                        + " requestAnimationFrame(loop); };"
+                        + " requestAnimationFrame(loop);");
+
+        long waited = waiter.waitAfterEvent(driver, MAX_WAIT);
+
+        assertThat(waited, is(lessThan(MAX_WAIT)));
+    }
+}
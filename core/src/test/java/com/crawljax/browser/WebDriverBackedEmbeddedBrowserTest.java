@@ -1,26 +1,41 @@
 package com.crawljax.browser;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import com.crawljax.core.CrawljaxException;
 import com.crawljax.test.BrowserTest;
 import com.crawljax.test.RunWithWebServer;
 import com.crawljax.util.DomUtils;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedSet;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.List;
 import org.junit.ClassRule;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.openqa.selenium.JavascriptExecutor;
 import org.w3c.dom.Document;
 import org.w3c.dom.NodeList;
 
 @Category(BrowserTest.class)
 public class WebDriverBackedEmbeddedBrowserTest {
 
+    private static final String CHANGE_FRAME = "document.getElementById('frame0').contentDocument.body.innerHTML"
+            + " = '<p id=\"changed-frame\">changed</p>';";
+
     @ClassRule
     public static final RunWithWebServer SERVER = new RunWithWebServer("/site/iframe");
 
@@ -59,4 +74,62 @@ public class WebDriverBackedEmbeddedBrowserTest {
 
         assertNotEquals(Files.size(f.toPath()), 0);
     }
+
+    @Test
+    public void aScriptDropsTheDomSnapshot() {
+        WebDriverBackedEmbeddedBrowser browser = WebDriverBackedEmbeddedBrowser.withDriver(
+                provider.newBrowser(), ImmutableSortedSet.<String>of(), 100, 100);
+        browser.goToUrl(SERVER.getSiteUrl());
+        browser.getStrippedDom();
+
+        browser.executeJavaScript(CHANGE_FRAME);
+
+        assertThat(browser.getFrameDom("frame0"), containsString("changed-frame"));
+    }
+
+    @Test
+    public void handingOutTheDriverKeepsTheDomSnapshot() {
+        WebDriverBackedEmbeddedBrowser browser = WebDriverBackedEmbeddedBrowser.withDriver(
+                provider.newBrowser(), ImmutableSortedSet.<String>of(), 100, 100);
+        browser.goToUrl(SERVER.getSiteUrl());
+        browser.getStrippedDom();
+
+        ((JavascriptExecutor) browser.getWebDriver()).executeScript(CHANGE_FRAME);
+
+        assertThat(browser.getFrameDom("frame0"), not(containsString("changed-frame")));
+        browser.getStrippedDom();
+        assertThat(browser.getFrameDom("frame0"), containsString("changed-frame"));
+    }
+
+    @Test
+    public void theTreeOfTheStrippedDomIsHandedOverOnce() {
+        WebDriverBackedEmbeddedBrowser browser = WebDriverBackedEmbeddedBrowser.withDriver(
+                provider.newBrowser(), ImmutableSortedSet.<String>of(), 100, 100);
+        browser.goToUrl(SERVER.getSiteUrl());
+        String dom = browser.getStrippedDom();
+
+        Document document = browser.takeStrippedDocument(dom);
+
+        assertEquals(dom, DomUtils.getDocumentToString(document));
+        assertNull(browser.takeStrippedDocument(dom));
+    }
+
+    @Test
+    public void boundingBoxesAreMeasuredInOneBatch() {
+        WebDriverBackedEmbeddedBrowser browser = WebDriverBackedEmbeddedBrowser.withDriver(
+                provider.newBrowser(), ImmutableSortedSet.<String>of(), 100, 100);
+        browser.goToUrl(SERVER.getSiteUrl());
+
+        List<ElementBoundingBox> boxes = browser.getBoundingBoxes(
+                ImmutableList.of("//a[@id='top-click-1']", "//a[@id='missing']", "//a[@id="));
+
+        assertEquals(3, boxes.size());
+        assertTrue(boxes.get(0).isFound());
+        assertThat(boxes.get(0).getRectangle().getWidth(), is(greaterThan(0)));
+        assertThat(boxes.get(0).getRectangle().getHeight(), is(greaterThan(0)));
+        assertFalse(boxes.get(1).isFound());
+        assertEquals("No element found", boxes.get(1).getError());
+        assertFalse(boxes.get(2).isFound());
+        assertNotNull(boxes.get(2).getError());
+    }
 }
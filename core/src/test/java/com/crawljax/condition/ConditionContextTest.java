@@ -0,0 +1,74 @@
+package com.crawljax.condition;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.condition.invariant.Invariant;
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConditionContextTest {
+
+    private static final String DOM = "<HTML><BODY><DIV id=\"menu\">Home</DIV></BODY></HTML>";
+
+    private EmbeddedBrowser browser;
+
+    @Before
+    public void setup() {
+        browser = mock(EmbeddedBrowser.class);
+        when(browser.getStrippedDom()).thenReturn(DOM);
+    }
+
+    @Test
+    public void theDomIsRetrievedOnceForAllConditions() {
+        ConditionContext context = new ConditionContext(browser);
+
+        assertThat(context.check(new XPathCondition("//DIV[@id='menu']")), is(true));
+        assertThat(context.check(new NotXPathCondition("//SPAN")), is(true));
+        assertThat(context.check(Logic.and(new RegexCondition("home"), new NotRegexCondition("logout"))), is(true));
+        assertThat(context.check(new RegexCondition("logout")), is(false));
+
+        verify(browser, times(1)).getStrippedDom();
+    }
+
+    @Test
+    public void aRepeatedConditionIsEvaluatedOnce() {
+        Condition condition = mock(Condition.class);
+        ConditionContext context = new ConditionContext(browser);
+        when(condition.check(context)).thenReturn(true);
+
+        assertThat(context.check(condition), is(true));
+        assertThat(context.check(condition), is(true));
+
+        verify(condition, times(1)).check(context);
+    }
+
+    @Test
+    public void countConditionsCountEveryCheck() {
+        CountCondition condition = new CountCondition(1, new RegexCondition("home"));
+        ConditionContext context = new ConditionContext(browser);
+
+        assertThat(context.check(condition), is(true));
+        assertThat(context.check(condition), is(false));
+    }
+
+    @Test
+    public void invariantsShareTheContextWithTheirPreconditions() {
+        Condition menu = new XPathCondition("//DIV[@id='menu']");
+        ConditionTypeChecker<Invariant> checker = new ConditionTypeChecker<>(ImmutableList.of(
+                new Invariant("menu shows home", new RegexCondition("home"), menu),
+                new Invariant("menu has no logout", new RegexCondition("logout"), menu)));
+
+        ImmutableList<Invariant> failed = checker.getFailedConditions(browser);
+
+        assertThat(failed.size(), is(1));
+        assertThat(failed.get(0).getDescription(), is("menu has no logout"));
+        verify(browser, times(1)).getStrippedDom();
+    }
+}
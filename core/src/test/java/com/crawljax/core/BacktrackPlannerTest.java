@@ -0,0 +1,77 @@
+package com.crawljax.core;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import com.codahale.metrics.MetricRegistry;
+import com.crawljax.core.BacktrackPlanner.Route;
+import com.crawljax.core.configuration.CrawljaxConfiguration;
+import com.crawljax.core.configuration.CrawljaxConfiguration.CrawljaxConfigurationBuilder;
+import com.crawljax.core.state.DefaultStateVertexFactory;
+import com.crawljax.core.state.StateVertex;
+import com.crawljax.metrics.MetricsModule;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class BacktrackPlannerTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final MetricRegistry registry = new MetricRegistry();
+    private final StateVertex target = new DefaultStateVertexFactory()
+            .newStateVertex(3, "http://example.com/a", "state3", "<body>a</body>", "<body>a</body>", null);
+
+    @Test
+    public void withoutShortcutsTheCrawlerResets() {
+        BacktrackPlanner planner = new BacktrackPlanner(newConfig(false), registry);
+
+        assertThat(planner.plan(target, 1, 5, true, true), is(Route.RESET));
+    }
+
+    @Test
+    public void aShortPathFromTheCurrentStateIsPreferred() {
+        BacktrackPlanner planner = new BacktrackPlanner(newConfig(true), registry);
+
+        assertThat(planner.plan(target, 1, 5, false, false), is(Route.CURRENT_PATH));
+        assertThat(planner.plan(target, 8, 2, false, false), is(Route.RESET));
+    }
+
+    @Test
+    public void aShortcutThatKeepsFailingIsAvoided() {
+        BacktrackPlanner planner = new BacktrackPlanner(newConfig(true), registry);
+        assertThat(planner.plan(target, -1, 5, true, false), is(Route.HISTORY));
+
+        for (int i = 0; i < 5; i++) {
+            planner.record(target, Route.HISTORY, 0, false, 100 * MILLIS);
+        }
+
+        assertThat(planner.plan(target, -1, 5, true, false), is(Route.RESET));
+        assertThat(
+                registry.counter(MetricsModule.CRAWL_PREFIX + ".backtrack.history.failed")
+                        .getCount(),
+                is(5L));
+    }
+
+    @Test
+    public void aFastUrlLoadIsPreferredOverLongPaths() {
+        BacktrackPlanner planner = new BacktrackPlanner(newConfig(true), registry);
+
+        for (int i = 0; i < 10; i++) {
+            planner.record(target, Route.DIRECT_URL, 0, true, 100 * MILLIS);
+        }
+
+        assertThat(planner.plan(target, 3, 3, false, true), is(Route.DIRECT_URL));
+        assertThat(
+                registry.timer(MetricsModule.CRAWL_PREFIX + ".backtrack.direct_url")
+                        .getCount(),
+                is(10L));
+    }
+
+    private static CrawljaxConfiguration newConfig(boolean shortcuts) {
+        CrawljaxConfigurationBuilder builder = CrawljaxConfiguration.builderFor("http://example.com");
+        builder.crawlRules().waitAfterReloadUrl(500, TimeUnit.MILLISECONDS);
+        builder.crawlRules().waitAfterEvent(500, TimeUnit.MILLISECONDS);
+        builder.crawlRules().setBacktrackShortcuts(shortcuts);
+        return builder.build();
+    }
+}
@@ -0,0 +1,125 @@
+package com.crawljax.core;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.fail;
+
+import com.crawljax.core.state.Eventable.EventType;
+import com.crawljax.fragmentation.FragmentManager;
+import com.crawljax.util.DomUtils;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+public class CandidateActionQueueTest {
+
+    private static final int MAX_REPEAT = 2;
+
+    private static Document document;
+
+    private final FragmentManager fragmentManager = new FragmentManager(null);
+    private final Map<CandidateElement, Double> influences = new HashMap<>();
+    private final ToDoubleFunction<CandidateElement> score = influences::get;
+    private final CandidateActionQueue queue = new CandidateActionQueue();
+
+    @BeforeClass
+    public static void setupOnce() throws IOException {
+        document = DomUtils.asDocument("");
+    }
+
+    @Test
+    public void theActionWithTheHighestScoreIsBest() {
+        CandidateCrawlAction low = newAction(1.0);
+        CandidateCrawlAction high = newAction(3.0);
+        CandidateCrawlAction middle = newAction(2.0);
+
+        assertThat(queue.best(fragmentManager, MAX_REPEAT, score), is(sameInstance(high)));
+        queue.remove(high);
+        assertThat(queue.best(fragmentManager, MAX_REPEAT, score), is(sameInstance(middle)));
+        queue.remove(middle);
+        assertThat(queue.best(fragmentManager, MAX_REPEAT, score), is(sameInstance(low)));
+    }
+
+    @Test
+    public void equalScoresAreTakenInTheOrderTheyWereAdded() {
+        CandidateCrawlAction first = newAction(1.0);
+        newAction(1.0);
+
+        assertThat(queue.best(fragmentManager, MAX_REPEAT, score), is(sameInstance(first)));
+    }
+
+    @Test
+    public void anAccessedElementMovesDownWhenItReachesTheTop() {
+        CandidateCrawlAction high = newAction(3.0);
+        CandidateCrawlAction low = newAction(1.0);
+        assertThat(queue.best(fragmentManager, MAX_REPEAT, score), is(sameInstance(high)));
+
+        high.getCandidateElement().incrementEquivalentAccess();
+        influences.put(high.getCandidateElement(), 2.75);
+
+        assertThat(queue.best(fragmentManager, MAX_REPEAT, score), is(sameInstance(low)));
+        high.getCandidateElement().incrementEquivalentAccess();
+        queue.remove(low);
+        assertThat(queue.best(fragmentManager, MAX_REPEAT, score), is(nullValue()));
+    }
+
+    @Test
+    public void elementsWithoutAPositiveScoreAreNotEligible() {
+        newAction(0.0);
+        newAction(-1.0);
+
+        assertThat(queue.best(fragmentManager, MAX_REPEAT, score), is(nullValue()));
+        assertThat(queue.size(), is(2));
+    }
+
+    @Test
+    public void actionsCanBeTakenInTheOrderTheyWereAdded() {
+        CandidateCrawlAction first = newAction(1.0);
+        CandidateCrawlAction second = newAction(3.0);
+        CandidateCrawlAction third = newAction(2.0);
+        queue.remove(second);
+
+        assertThat(queue.toList(), is(ImmutableList.of(first, third)));
+        assertThat(queue.pollFirst(), is(sameInstance(first)));
+        assertThat(queue.best(fragmentManager, MAX_REPEAT, score), is(sameInstance(third)));
+        assertThat(queue.pollFirst(), is(sameInstance(third)));
+        assertThat(queue.isEmpty(), is(true));
+        assertThat(queue.pollFirst(), is(nullValue()));
+    }
+
+    @Test
+    public void theOrderIsRestoredWhenScoringFails() {
+        CandidateCrawlAction low = newAction(1.0);
+        CandidateCrawlAction high = newAction(3.0);
+        CandidateCrawlAction failing = newAction(2.0);
+        influences.remove(failing.getCandidateElement());
+
+        try {
+            queue.best(fragmentManager, MAX_REPEAT, score);
+            fail("Scoring an element without an influence should fail");
+        } catch (NullPointerException e) {
+            influences.put(failing.getCandidateElement(), 2.0);
+        }
+
+        assertThat(queue.best(fragmentManager, MAX_REPEAT, score), is(sameInstance(high)));
+        queue.remove(high);
+        assertThat(queue.best(fragmentManager, MAX_REPEAT, score), is(sameInstance(failing)));
+        queue.remove(failing);
+        assertThat(queue.best(fragmentManager, MAX_REPEAT, score), is(sameInstance(low)));
+    }
+
+    private CandidateCrawlAction newAction(double influence) {
+        CandidateElement element = new CandidateElement(document.createElement("a"), "", ImmutableList.of());
+        influences.put(element, influence);
+        CandidateCrawlAction action = new CandidateCrawlAction(element, EventType.click);
+        queue.add(action);
+        return action;
+    }
+}
@@ -0,0 +1,231 @@
+package com.crawljax.core;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import com.crawljax.core.configuration.CrawljaxConfiguration;
+import com.crawljax.core.state.DefaultStateVertexFactory;
+import com.crawljax.core.state.Eventable;
+import com.crawljax.core.state.Eventable.EventType;
+import com.crawljax.core.state.Identification;
+import com.crawljax.core.state.Identification.How;
+import com.crawljax.core.state.InMemoryStateFlowGraph;
+import com.crawljax.core.state.StateVertex;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CrawlCheckpointTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CrawljaxConfiguration config;
+
+    @Before
+    public void setUp() {
+        config = CrawljaxConfiguration.builderFor("http://example.com")
+                .setOutputDirectory(folder.getRoot())
+                .setCheckpointInterval(1, TimeUnit.HOURS)
+                .build();
+    }
+
+    @Test
+    public void theGraphAndTheFiredActionsAreRestored() throws IOException {
+        InMemoryStateFlowGraph graph = newGraph();
+        CrawlCheckpoint checkpoint = new CrawlCheckpoint(config, graph, new DefaultStateVertexFactory());
+        StateVertex index = newIndex(graph);
+        checkpoint.start(false);
+
+        StateVertex state = graph.newStateFor("http://example.com/a", "<body>a</body>", "<body>a</body>", null);
+        graph.putIfAbsent(state);
+        Eventable edge = new Eventable(new Identification(How.xpath, "/HTML[1]/BODY[1]/A[1]"), EventType.click);
+        edge.setId(42);
+        graph.addEdge(index, state, edge);
+        checkpoint.actionFired(index, action("/HTML[1]/BODY[1]/A[1]"));
+        checkpoint.stateExhausted(state);
+        checkpoint.close();
+
+        InMemoryStateFlowGraph resumedGraph = newGraph();
+        CrawlCheckpoint resumed = new CrawlCheckpoint(config, resumedGraph, new DefaultStateVertexFactory());
+        resumed.load();
+        StateVertex resumedIndex = newIndex(resumedGraph);
+        ImmutableList<StateVertex> states = resumed.restoreGraph(resumedIndex);
+
+        assertThat(states.size(), is(2));
+        assertThat(resumedGraph.getById(state.getId()).getDom(), is("<body>a</body>"));
+        assertThat(resumedGraph.getAllEdges().size(), is(1));
+        assertThat(resumedGraph.getAllEdges().iterator().next().getId(), is(42L));
+        assertThat(resumed.wasFired(resumedIndex, action("/HTML[1]/BODY[1]/A[1]")), is(true));
+        assertThat(resumed.wasFired(resumedIndex, action("/HTML[1]/BODY[1]/A[2]")), is(false));
+        assertThat(resumed.wasExhausted(states.get(1)), is(true));
+        assertThat(resumed.getLastEventableId(100000), is(42L));
+
+        StateVertex next = resumedGraph.newStateFor("http://example.com/b", "<body>b</body>", "<body>b</body>", null);
+        assertThat(next.getId(), is(state.getId() + 1));
+    }
+
+    @Test
+    public void theCrawlConditionsAndFramesOfAStateAreRestored() throws IOException {
+        InMemoryStateFlowGraph graph = newGraph();
+        CrawlCheckpoint checkpoint = new CrawlCheckpoint(config, graph, new DefaultStateVertexFactory());
+        newIndex(graph);
+        checkpoint.start(false);
+        StateVertex framed = graph.newStateFor("http://example.com/a", "<body>a</body>", "<body>a</body>", null);
+        graph.putIfAbsent(framed);
+        StateVertex filtered = graph.newStateFor("http://example.com/b", "<body>b</body>", "<body>b</body>", null);
+        graph.putIfAbsent(filtered);
+        StateVertex unknown = graph.newStateFor("http://example.com/c", "<body>c</body>", "<body>c</body>", null);
+        graph.putIfAbsent(unknown);
+        checkpoint.stateExtracted(framed, true, ImmutableMap.of("menu", "<body>menu</body>"));
+        checkpoint.stateExtracted(filtered, false, ImmutableMap.of());
+        checkpoint.close();
+
+        InMemoryStateFlowGraph resumedGraph = newGraph();
+        CrawlCheckpoint resumed = new CrawlCheckpoint(config, resumedGraph, new DefaultStateVertexFactory());
+        resumed.load();
+        resumed.restoreGraph(newIndex(resumedGraph));
+
+        assertThat(resumed.wereCrawlConditionsSatisfied(framed), is(true));
+        assertThat(resumed.getFrameDoms(framed), is(ImmutableMap.of("menu", "<body>menu</body>")));
+        assertThat(resumed.wereCrawlConditionsSatisfied(filtered), is(false));
+        assertThat(resumed.getFrameDoms(filtered), is(ImmutableMap.<String, String>of()));
+        assertThat(resumed.wereCrawlConditionsSatisfied(unknown), is(true));
+        assertThat(resumed.getFrameDoms(unknown), is(ImmutableMap.<String, String>of()));
+    }
+
+    @Test
+    public void anActionInFlightIsFiredAgainAfterResuming() throws IOException {
+        InMemoryStateFlowGraph graph = newGraph();
+        CrawlCheckpoint checkpoint = new CrawlCheckpoint(config, graph, new DefaultStateVertexFactory());
+        StateVertex index = newIndex(graph);
+        checkpoint.start(false);
+        CandidateCrawlAction first = action("/HTML[1]/BODY[1]/A[1]");
+        CandidateCrawlAction last = action("/HTML[1]/BODY[1]/A[2]");
+        checkpoint.actionFired(index, first);
+        checkpoint.stateExhausted(index, last);
+        checkpoint.close();
+
+        CrawlCheckpoint resumed = new CrawlCheckpoint(config, newGraph(), new DefaultStateVertexFactory());
+        resumed.load();
+
+        assertThat(resumed.wasFired(index, first), is(true));
+        assertThat(resumed.wasFired(index, last), is(false));
+        assertThat(resumed.wasExhausted(index), is(false));
+
+        resumed.start(true);
+        resumed.stateExhausted(index, last);
+        resumed.actionFired(index, last);
+        resumed.close();
+        CrawlCheckpoint resumedAgain = new CrawlCheckpoint(config, newGraph(), new DefaultStateVertexFactory());
+        resumedAgain.load();
+
+        assertThat(resumedAgain.wasFired(index, last), is(true));
+        assertThat(resumedAgain.wasExhausted(index), is(true));
+    }
+
+    @Test
+    public void aTruncatedLastRecordIsIgnored() throws IOException {
+        InMemoryStateFlowGraph graph = newGraph();
+        CrawlCheckpoint checkpoint = new CrawlCheckpoint(config, graph, new DefaultStateVertexFactory());
+        StateVertex index = newIndex(graph);
+        checkpoint.start(false);
+        checkpoint.stateExhausted(index);
+        checkpoint.close();
+        try (FileWriter writer = new FileWriter(new File(config.getSiteDir(), CrawlCheckpoint.FILE_NAME), true)) {
+            writer.write("{\"type\":\"state\",\"state\":3,\"dom\":\"<bo");
+        }
+
+        CrawlCheckpoint resumed = new CrawlCheckpoint(config, newGraph(), new DefaultStateVertexFactory());
+        resumed.load();
+
+        assertThat(resumed.wasExhausted(index), is(true));
+    }
+
+    @Test
+    public void aResumedCrawlDoesNotAppendToATruncatedRecord() throws IOException {
+        InMemoryStateFlowGraph graph = newGraph();
+        CrawlCheckpoint checkpoint = new CrawlCheckpoint(config, graph, new DefaultStateVertexFactory());
+        StateVertex index = newIndex(graph);
+        checkpoint.start(false);
+        checkpoint.stateExhausted(index);
+        checkpoint.close();
+        try (FileWriter writer = new FileWriter(new File(config.getSiteDir(), CrawlCheckpoint.FILE_NAME), true)) {
+            writer.write("{\"type\":\"state\",\"state\":3,\"dom\":\"<bo");
+        }
+
+        CrawlCheckpoint resumed = new CrawlCheckpoint(config, newGraph(), new DefaultStateVertexFactory());
+        resumed.load();
+        resumed.start(true);
+        resumed.actionFired(index, action("/HTML[1]/BODY[1]/A[1]"));
+        resumed.close();
+
+        CrawlCheckpoint resumedAgain = new CrawlCheckpoint(config, newGraph(), new DefaultStateVertexFactory());
+        resumedAgain.load();
+
+        assertThat(resumedAgain.wasExhausted(index), is(true));
+        assertThat(resumedAgain.wasFired(index, action("/HTML[1]/BODY[1]/A[1]")), is(true));
+    }
+
+    @Test
+    public void recordsAfterAMalformedLineAreRead() throws IOException {
+        InMemoryStateFlowGraph graph = newGraph();
+        StateVertex index = newIndex(graph);
+        try (FileWriter writer = new FileWriter(new File(config.getSiteDir(), CrawlCheckpoint.FILE_NAME))) {
+            writer.write("{\"type\":\"state\",\"state\":3,\"dom\":\"<bo\n");
+            writer.write("{\"type\":\"exhausted\",\"state\":" + index.getId() + "}\n");
+        }
+
+        CrawlCheckpoint resumed = new CrawlCheckpoint(config, graph, new DefaultStateVertexFactory());
+        resumed.load();
+
+        assertThat(resumed.wasExhausted(index), is(true));
+    }
+
+    @Test(timeout = 10_000)
+    public void aQuietCrawlIsFlushedWithinTheInterval() throws Exception {
+        config = CrawljaxConfiguration.builderFor("http://example.com")
+                .setOutputDirectory(folder.getRoot())
+                .setCheckpointInterval(50, TimeUnit.MILLISECONDS)
+                .build();
+        InMemoryStateFlowGraph graph = newGraph();
+        CrawlCheckpoint checkpoint = new CrawlCheckpoint(config, graph, new DefaultStateVertexFactory());
+        StateVertex index = newIndex(graph);
+        checkpoint.start(false);
+        try {
+            checkpoint.stateExhausted(index);
+            Thread.sleep(500);
+
+            // The crawl is killed here, only what reached the file survives.
+            CrawlCheckpoint resumed = new CrawlCheckpoint(config, newGraph(), new DefaultStateVertexFactory());
+            resumed.load();
+
+            assertThat(resumed.wasExhausted(index), is(true));
+        } finally {
+            checkpoint.close();
+        }
+    }
+
+    private static InMemoryStateFlowGraph newGraph() {
+        return new InMemoryStateFlowGraph(new ExitNotifier(0), new DefaultStateVertexFactory());
+    }
+
+    private static StateVertex newIndex(InMemoryStateFlowGraph graph) {
+        StateVertex index = new DefaultStateVertexFactory()
+                .createIndex("http://example.com", "<body></body>", "<body></body>", null);
+        graph.putIndex(index);
+        return index;
+    }
+
+    private static CandidateCrawlAction action(String xpath) {
+        return new CandidateCrawlAction(
+                new CandidateElement(null, new Identification(How.xpath, xpath), ""), EventType.click);
+    }
+}
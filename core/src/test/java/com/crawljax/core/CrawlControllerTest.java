@@ -10,20 +10,24 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.codahale.metrics.MetricRegistry;
+import com.crawljax.browser.BrowserPool;
 import com.crawljax.browser.EmbeddedBrowser.BrowserType;
 import com.crawljax.core.ExitNotifier.ExitStatus;
 import com.crawljax.core.configuration.BrowserConfiguration;
 import com.crawljax.core.configuration.CrawljaxConfiguration;
 import com.crawljax.core.plugin.Plugins;
 import com.crawljax.core.plugin.PostCrawlingPlugin;
+import com.crawljax.core.state.DefaultStateVertexFactory;
 import com.crawljax.core.state.InMemoryStateFlowGraph;
 import com.crawljax.core.state.StateFlowGraph;
 import com.crawljax.core.state.StateVertex;
 import com.crawljax.di.CrawlSessionProvider;
+import com.crawljax.util.ImageSink;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.inject.Provider;
 import org.junit.Before;
@@ -127,8 +131,14 @@ public class CrawlControllerTest {
                 .setBrowserConfig(new BrowserConfiguration(BrowserType.FIREFOX, consumers))
                 .build();
 
+        CrawlCheckpoint checkpoint = new CrawlCheckpoint(config, graph, new DefaultStateVertexFactory());
         candidateActions = new UnfiredFragmentCandidates(
-                config.getBrowserConfig(), graphProvider, new MetricRegistry(), config.getCrawlRules());
+                config.getBrowserConfig(),
+                graphProvider,
+                new MetricRegistry(),
+                config.getCrawlRules(),
+                checkpoint,
+                new BacktrackPlanner(config, new MetricRegistry()));
 
         consumersDoneLatch = new ExitNotifier(config.getMaximumStates());
 
@@ -138,7 +148,15 @@ public class CrawlControllerTest {
 
         Plugins plugins = new Plugins(config, new MetricRegistry());
         controller = new CrawlController(
-                executor, consumerFactory, config, consumersDoneLatch, crawlSessionProvider, plugins);
+                executor,
+                consumerFactory,
+                config,
+                consumersDoneLatch,
+                crawlSessionProvider,
+                plugins,
+                checkpoint,
+                mock(BrowserPool.class),
+                graph);
     }
 
     @Test(timeout = 5000L)
@@ -212,8 +230,52 @@ public class CrawlControllerTest {
         Plugins plugins = mock(Plugins.class);
         when(consumerFactory.get()).thenThrow(RuntimeException.class);
         controller = new CrawlController(
-                executor, consumerFactory, config, consumersDoneLatch, crawlSessionProvider, plugins);
+                executor,
+                consumerFactory,
+                config,
+                consumersDoneLatch,
+                crawlSessionProvider,
+                plugins,
+                mock(CrawlCheckpoint.class),
+                mock(BrowserPool.class),
+                graph);
         assertThrows(RuntimeException.class, () -> controller.call());
         verify(executor).shutdownNow();
+        verify(graph).close();
+    }
+
+    @Test
+    public void queuedImagesAreWrittenBeforeTheGraphIsClosed() throws InterruptedException {
+        AtomicBoolean written = new AtomicBoolean();
+        AtomicBoolean writtenWhenClosed = new AtomicBoolean();
+        Mockito.doAnswer((Answer<Void>) invocation -> {
+                    writtenWhenClosed.set(written.get());
+                    return null;
+                })
+                .when(graph)
+                .close();
+        when(consumerFactory.get()).thenThrow(RuntimeException.class);
+        controller = new CrawlController(
+                mock(ExecutorService.class),
+                consumerFactory,
+                mock(CrawljaxConfiguration.class),
+                mock(ExitNotifier.class),
+                mock(CrawlSessionProvider.class),
+                mock(Plugins.class),
+                mock(CrawlCheckpoint.class),
+                mock(BrowserPool.class),
+                graph);
+
+        ImageSink.shared().submit("slow image", () -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            written.set(true);
+        });
+        assertThrows(RuntimeException.class, () -> controller.call());
+
+        assertThat(writtenWhenClosed.get(), is(true));
     }
 }
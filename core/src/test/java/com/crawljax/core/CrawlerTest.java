@@ -6,6 +6,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.codahale.metrics.MetricRegistry;
+import com.crawljax.browser.BrowserPool;
 import com.crawljax.browser.EmbeddedBrowser;
 import com.crawljax.condition.browserwaiter.WaitConditionChecker;
 import com.crawljax.core.configuration.CrawljaxConfiguration;
@@ -149,7 +150,10 @@ public class CrawlerTest {
                 elementExtractor,
                 graphProvider,
                 plugins,
-                new DefaultStateVertexFactory());
+                new DefaultStateVertexFactory(),
+                new CrawlCheckpoint(config, graph, new DefaultStateVertexFactory()),
+                mock(BrowserPool.class),
+                new BacktrackPlanner(config, new MetricRegistry()));
 
         when(candidateActionCache.pollActionOrNull(index)).thenReturn(null);
         when(candidateActionCache.getInput(Mockito.any())).thenReturn(null);
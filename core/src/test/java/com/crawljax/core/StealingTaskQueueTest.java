@@ -0,0 +1,83 @@
+package com.crawljax.core;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import com.google.common.collect.ImmutableList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToDoubleFunction;
+import org.junit.After;
+import org.junit.Test;
+
+public class StealingTaskQueueTest {
+
+    private static final ToDoubleFunction<Integer> SAME_COST = id -> 1.0;
+
+    private final StealingTaskQueue queue = new StealingTaskQueue();
+    private final ExecutorService otherThread = Executors.newSingleThreadExecutor();
+
+    @After
+    public void shutdown() {
+        otherThread.shutdownNow();
+    }
+
+    @Test
+    public void aThreadTakesTheStateItAddedLast() throws InterruptedException {
+        queue.add(1);
+        queue.add(2);
+        queue.add(3);
+
+        assertThat(queue.take(SAME_COST), is(3));
+        assertThat(queue.take(SAME_COST), is(2));
+        assertThat(queue.take(SAME_COST), is(1));
+        assertThat(queue.size(), is(0));
+        assertThat(queue.getSteals(), is(0));
+    }
+
+    @Test
+    public void anIdleThreadStealsTheCheapestOldestState() throws Exception {
+        addFromOtherThread(5, 6);
+        Thread indexThread = new Thread(() -> queue.add(7));
+        indexThread.start();
+        indexThread.join();
+
+        assertThat(queue.take(id -> id == 7 ? 1.0 : 2.0), is(7));
+        assertThat(queue.take(SAME_COST), is(5));
+        assertThat(queue.getSteals(), is(2));
+        assertThat(otherThread.submit(() -> queue.take(SAME_COST)).get(), is(6));
+    }
+
+    @Test
+    public void allOccurrencesOfAStateAreRemoved() throws Exception {
+        queue.add(1);
+        queue.add(2);
+        addFromOtherThread(1, 3);
+
+        assertThat(queue.removeAll(1), is(2));
+        assertThat(queue.size(), is(2));
+        assertThat(queue.snapshot(), is(ImmutableList.of(2, 3)));
+    }
+
+    @Test(timeout = 5000L)
+    public void takeWaitsForAState() throws Exception {
+        Future<Integer> taken = otherThread.submit(() -> queue.take(SAME_COST));
+        Thread.sleep(50);
+
+        queue.add(4);
+
+        assertThat(taken.get(), is(4));
+    }
+
+    private void addFromOtherThread(int... ids) throws InterruptedException, ExecutionException {
+        otherThread
+                .submit(() -> {
+                    for (int id : ids) {
+                        queue.add(id);
+                    }
+                })
+                .get();
+    }
+}
@@ -8,6 +8,7 @@ import static org.junit.Assert.assertThrows;
 
 import com.crawljax.core.configuration.CrawljaxConfiguration.CrawljaxConfigurationBuilder;
 import com.crawljax.core.plugin.Plugin;
+import com.crawljax.util.VirtualThreads;
 import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
@@ -112,4 +113,14 @@ public class CrawljaxConfigurationBuilderTest {
         CrawljaxConfiguration conf = testBuilder().setOutputDirectory(outputDir).build();
         assertThat(conf.getOutputDir(), is(outputDir));
     }
+
+    @Test
+    public void virtualThreadsAreOnlyAcceptedWhenTheJvmSupportsThem() {
+        assertThat(testBuilder().build().isVirtualThreads(), is(false));
+        if (VirtualThreads.isAvailable()) {
+            assertThat(testBuilder().setVirtualThreads(true).build().isVirtualThreads(), is(true));
+        } else {
+            assertThrows(IllegalArgumentException.class, () -> testBuilder().setVirtualThreads(true));
+        }
+    }
 }
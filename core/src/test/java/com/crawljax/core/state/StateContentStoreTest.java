@@ -0,0 +1,86 @@
+package com.crawljax.core.state;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.codahale.metrics.MetricRegistry;
+import com.crawljax.core.CrawljaxException;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StateContentStoreTest {
+
+    private static final String DOM = "<html><body><div id='a'>café</div><a href='#'>link</a></body></html>";
+
+    private StateContentStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        store = new StateContentStore(1, new MetricRegistry());
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void stringsAreReadBack() throws IOException {
+        StateContentStore.Handle first = store.putString(DOM);
+        StateContentStore.Handle second = store.putString("");
+
+        assertThat(store.getString(first), is(DOM));
+        assertThat(store.getString(second), is(""));
+    }
+
+    @Test
+    public void contentCannotBeReadAfterTheStoreIsClosed() throws IOException {
+        StateContentStore.Handle handle = store.putString(DOM);
+
+        store.close();
+
+        assertThrows(CrawljaxException.class, () -> store.getString(handle));
+    }
+
+    @Test
+    public void imagesAreReadBack() throws IOException {
+        BufferedImage image = new BufferedImage(3, 2, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(1, 1, 0x123456);
+
+        BufferedImage stored = store.getImage(store.putImage(image));
+
+        assertThat(stored.getWidth(), is(3));
+        assertThat(stored.getRGB(1, 1) & 0xFFFFFF, is(0x123456));
+    }
+
+    @Test
+    public void movedStatesKeepTheirContentAndIdentity() {
+        StateVertexImpl state = new StateVertexImpl(1, "http://example.com", "state1", DOM, "<body></body>");
+        StateVertexImpl same = new StateVertexImpl(2, "http://example.com", "state2", "<html/>", "<body></body>");
+
+        state.moveContentTo(store);
+
+        assertThat(store.getStoredBytes() > 0, is(true));
+        assertThat(state.getDom(), is(DOM));
+        assertThat(state.getStrippedDom(), is("<body></body>"));
+        assertThat(state, equalTo((StateVertex) same));
+        assertThat(state.hashCode(), is(same.hashCode()));
+    }
+
+    @Test
+    public void movedStatesAreSerializedWithTheirContent() {
+        StateVertexImpl state = new StateVertexImpl(1, "state1", DOM);
+        state.moveContentTo(store);
+
+        StateVertex copy = SerializationUtils.deserialize(SerializationUtils.serialize(state));
+
+        assertThat(copy.getDom(), is(DOM));
+        assertThat(copy, equalTo((StateVertex) state));
+    }
+}
@@ -40,6 +40,51 @@ public class StateFlowGraphTest {
         graph.putIndex(index);
     }
 
+    @Test
+    public void hopsFollowAddedAndRemovedEdges() {
+        graph.putIfAbsent(state2);
+        graph.putIfAbsent(state3);
+        graph.putIfAbsent(state4);
+
+        Eventable indexTo2 = newXpathEventable("/index/2");
+        graph.addEdge(index, state2, indexTo2);
+        graph.addEdge(state2, state3, newXpathEventable("/2/3"));
+        assertThat(graph.getHops(index, state3), is(2));
+        assertThat(graph.getHops(index, state4), is(-1));
+
+        Eventable indexTo3 = newXpathEventable("/index/3");
+        graph.addEdge(index, state3, indexTo3);
+        graph.addEdge(state3, state4, newXpathEventable("/3/4"));
+        assertThat(graph.getHops(index, state3), is(1));
+        assertThat(graph.getHops(index, state4), is(2));
+
+        graph.removeEdge(indexTo3);
+        assertThat(graph.getHops(index, state4), is(3));
+        assertThat(graph.getHops(index, state4), is(graph.getShortestPath(index, state4).size()));
+
+        graph.restoreEdge(indexTo3);
+        assertThat(graph.getHops(index, state4), is(2));
+    }
+
+    @Test
+    public void publishedEdgesFollowChanges() {
+        graph.putIfAbsent(state2);
+        Eventable edge = newXpathEventable("/index/2");
+        graph.addEdge(index, state2, edge);
+        assertThat(graph.getOutgoingClickables(index), hasSize(1));
+        assertThat(graph.getIncomingClickable(state2), hasSize(1));
+        assertTrue(graph.canGoTo(state2, index));
+
+        graph.removeEdge(edge);
+        assertThat(graph.getOutgoingClickables(index), hasSize(0));
+        assertThat(graph.getIncomingClickable(state2), hasSize(0));
+        assertFalse(graph.canGoTo(index, state2));
+
+        int expectedMean = (index.getDom().getBytes().length + state2.getDom().getBytes().length) / 2;
+        assertThat(graph.getMeanStateStringSize(), is(expectedMean));
+        assertThat(graph.getAllStates(), hasSize(2));
+    }
+
     @Test
     public void testDuplicationAdding() {
         assertThat(graph.putIfAbsent(index), is(not(nullValue())));
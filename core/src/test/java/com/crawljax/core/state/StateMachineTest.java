@@ -6,9 +6,13 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 import com.codahale.metrics.MetricRegistry;
 import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.condition.ConditionContext;
+import com.crawljax.condition.RegexCondition;
 import com.crawljax.condition.invariant.Invariant;
 import com.crawljax.core.CrawlSession;
 import com.crawljax.core.CrawlerContext;
@@ -222,6 +226,21 @@ public class StateMachineTest {
         assertTrue("Invariants are executed", hit);
     }
 
+    @Test
+    public void theInvariantsAreCheckedAgainstTheDomTheStateWasCapturedWith() {
+        Invariant invariant = new Invariant("Shows the index", new RegexCondition("index"));
+        StateMachine smLocal = new StateMachine(
+                newStateFlowGraph(), ImmutableList.of(invariant), plugins, comparator, new ArrayList<>());
+        String dom = "<table><div>state2</div></table>";
+        StateVertex state2 = new StateVertexImpl(2, "state2", dom);
+        Eventable c = new Eventable(new Identification(How.xpath, "/bla"), EventType.click);
+
+        assertTrue(smLocal.switchToStateAndCheckIfClone(c, state2, context, new ConditionContext(dummyBrowser, dom)));
+
+        verify(plugins).runOnInvariantViolationPlugins(invariant, context);
+        verify(dummyBrowser, never()).getStrippedDom();
+    }
+
     private InMemoryStateFlowGraph newStateFlowGraph() {
         InMemoryStateFlowGraph sfg = new InMemoryStateFlowGraph(new ExitNotifier(0), new DefaultStateVertexFactory());
         sfg.putIndex(index);
@@ -0,0 +1,228 @@
+package com.crawljax.core.state;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.number.OrderingComparison.lessThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.codahale.metrics.MetricRegistry;
+import com.crawljax.core.ExitNotifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Test;
+
+public class StateVertexIndexTest {
+
+    /**
+     * A state on a number line. Two states are equal when their distance is at most the threshold.
+     */
+    private static class PointVertex extends StateVertexImpl {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int position;
+        private final double threshold;
+
+        PointVertex(int id, int position, double threshold) {
+            super(id, "state" + id, "<body>" + position + "</body>");
+            this.position = position;
+            this.threshold = threshold;
+        }
+
+        @Override
+        public double getDist(StateVertex vertexOfGraph) {
+            return Math.abs(position - ((PointVertex) vertexOfGraph).position);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof PointVertex && getDist((PointVertex) object) <= threshold;
+        }
+
+        @Override
+        public int hashCode() {
+            return 1;
+        }
+    }
+
+    /**
+     * A state on a grid, at the Manhattan distance from other states. The difference of the x
+     * coordinates is a lower bound of the distance.
+     */
+    private static class GridVertex extends StateVertexImpl {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int x;
+        private final int y;
+        private int distancesComputed;
+
+        GridVertex(int id, int x, int y) {
+            super(id, "state" + id, "<body>" + x + "," + y + "</body>");
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public double getDist(StateVertex vertexOfGraph) {
+            distancesComputed++;
+            GridVertex other = (GridVertex) vertexOfGraph;
+            return Math.abs(x - other.x) + Math.abs(y - other.y);
+        }
+    }
+
+    @Test
+    public void metricTreeFindsAllClonesAndTheNearestState() {
+        double threshold = 2;
+        MetricTreeStateVertexIndex index = new MetricTreeStateVertexIndex(threshold);
+        LinearStateVertexIndex linear = new LinearStateVertexIndex();
+        List<PointVertex> vertices = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            PointVertex vertex = new PointVertex(i, (i * 37) % 1000, threshold);
+            vertices.add(vertex);
+            index.add(vertex);
+            linear.add(vertex);
+        }
+        assertThat(index.size(), is(100));
+
+        for (int position = 0; position < 1000; position += 7) {
+            PointVertex query = new PointVertex(-1, position, threshold);
+            List<StateVertex> clones = new ArrayList<>();
+            for (PointVertex vertex : vertices) {
+                if (query.equals(vertex)) {
+                    clones.add(vertex);
+                }
+            }
+            assertThat(index.getCloneCandidates(query), containsInAnyOrder(clones.toArray()));
+
+            StateVertexIndex.Neighbour nearest = index.getNearest(query);
+            assertEquals(linear.getNearest(query).getDistance(), nearest.getDistance(), 0.0);
+            assertTrue(nearest.getComparisons() <= index.size());
+        }
+    }
+
+    @Test
+    public void aLowerBoundSkipsDistancesWithoutLosingClones() {
+        double threshold = 5;
+        MetricTreeStateVertexIndex bounded = new MetricTreeStateVertexIndex(
+                threshold,
+                (query, indexed, maxDistance) -> Math.abs(((GridVertex) query).x - ((GridVertex) indexed).x));
+        MetricTreeStateVertexIndex unbounded = new MetricTreeStateVertexIndex(threshold);
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            GridVertex vertex = new GridVertex(i, random.nextInt(100), random.nextInt(100));
+            bounded.add(vertex);
+            unbounded.add(vertex);
+        }
+
+        int boundedDistances = 0;
+        int unboundedDistances = 0;
+        for (int i = 0; i < 200; i++) {
+            int x = random.nextInt(100);
+            int y = random.nextInt(100);
+            GridVertex query = new GridVertex(-1, x, y);
+            Collection<StateVertex> clones = unbounded.getCloneCandidates(query);
+            double nearest = unbounded.getNearest(query).getDistance();
+            unboundedDistances += query.distancesComputed;
+
+            query = new GridVertex(-1, x, y);
+            assertThat(bounded.getCloneCandidates(query), containsInAnyOrder(clones.toArray()));
+            assertEquals(nearest, bounded.getNearest(query).getDistance(), 0.0);
+            boundedDistances += query.distancesComputed;
+        }
+        assertThat(boundedDistances, is(lessThan(unboundedDistances)));
+    }
+
+    @Test
+    public void hashBucketOnlyReturnsStatesWithTheSameHashCode() {
+        HashBucketStateVertexIndex index = new HashBucketStateVertexIndex();
+        StateVertex first = new StateVertexImpl(1, "first", "<body>first</body>");
+        StateVertex second = new StateVertexImpl(2, "second", "<body>second</body>");
+        index.add(first);
+        index.add(second);
+
+        StateVertex query = new StateVertexImpl(3, "third", "<body>second</body>");
+        assertThat(index.getCloneCandidates(query), containsInAnyOrder(second));
+    }
+
+    @Test
+    public void graphUsesTheIndexOfTheFactory() {
+        InMemoryStateFlowGraph graph = new InMemoryStateFlowGraph(new ExitNotifier(0), new DefaultStateVertexFactory());
+        StateVertex index = new StateVertexImpl(StateVertex.INDEX_ID, "index", "<body>index</body>");
+        StateVertex state2 = new StateVertexImpl(2, "state2", "<body>state2</body>");
+        graph.putIndex(index);
+        graph.putIfAbsent(state2);
+
+        StateVertex clone = new StateVertexImpl(3, "state3", "<body>state2</body>");
+        assertThat(graph.putIfAbsent(clone), is(state2));
+        assertThat(graph.getNumberOfStates(), is(2));
+    }
+
+    @Test
+    public void parallelDetectorFindsTheFirstCloneAndTheNearestState() {
+        double threshold = 2;
+        ParallelCloneDetector detector = new ParallelCloneDetector(4);
+        List<StateVertex> vertices = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            vertices.add(new PointVertex(i, (i * 37) % 1000, threshold));
+        }
+
+        for (int position = 0; position < 1000; position += 7) {
+            PointVertex query = new PointVertex(-1, position, threshold);
+            StateVertex firstClone = null;
+            for (StateVertex vertex : vertices) {
+                if (query.equals(vertex)) {
+                    firstClone = vertex;
+                    break;
+                }
+            }
+            assertEquals(firstClone, detector.findClone(query, vertices));
+
+            StateVertexIndex.Neighbour expected = LinearStateVertexIndex.nearestOf(query, vertices);
+            StateVertexIndex.Neighbour nearest = detector.findNearest(query, vertices);
+            assertThat(nearest.getVertex(), is(expected.getVertex()));
+            assertThat(nearest.getComparisons(), is(vertices.size()));
+        }
+        detector.close();
+    }
+
+    @Test
+    public void graphWithParallelDetectorFindsClones() {
+        InMemoryStateFlowGraph graph = new InMemoryStateFlowGraph(
+                new ExitNotifier(0),
+                new DefaultStateVertexFactory(),
+                new MetricRegistry(),
+                new ParallelCloneDetector(2));
+        StateVertex index = new StateVertexImpl(StateVertex.INDEX_ID, "index", "<body>index</body>");
+        StateVertex state2 = new StateVertexImpl(2, "state2", "<body>state2</body>");
+        graph.putIndex(index);
+        graph.putIfAbsent(state2);
+
+        StateVertex clone = new StateVertexImpl(3, "state3", "<body>state2</body>");
+        assertTrue(graph.hasClone(clone));
+        assertThat(graph.putIfAbsent(clone), is(state2));
+        assertThat(graph.getNumberOfStates(), is(2));
+        graph.close();
+    }
+
+    @Test
+    public void closingTheGraphStopsTheParallelDetector() {
+        ParallelCloneDetector detector = new ParallelCloneDetector(2);
+        InMemoryStateFlowGraph graph = new InMemoryStateFlowGraph(
+                new ExitNotifier(0), new DefaultStateVertexFactory(), new MetricRegistry(), detector);
+
+        graph.close();
+
+        List<StateVertex> states = new ArrayList<>();
+        states.add(new StateVertexImpl(2, "state2", "<body>state2</body>"));
+        assertThrows(
+                RejectedExecutionException.class,
+                () -> detector.findClone(new StateVertexImpl(3, "state3", "<body>state2</body>"), states));
+    }
+}
@@ -6,12 +6,16 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import com.crawljax.core.state.Eventable.EventType;
+import com.crawljax.util.DomUtils;
+import java.io.IOException;
 import org.apache.commons.lang3.SerializationUtils;
 import org.junit.Before;
 import org.junit.Test;
+import org.w3c.dom.Document;
 
 public class StateVertexTest {
 
@@ -97,4 +101,24 @@ public class StateVertexTest {
         assertThat(deserializedSv.getName(), is(sv.getName()));
         assertThat(deserializedSv.getDom(), is(sv.getDom()));
     }
+
+    @Test
+    public void theDocumentIsParsedOnceAndShared() throws IOException {
+        StateVertex sv = new StateVertexImpl(3, "test", HTML);
+
+        Document document = sv.getDocument();
+
+        assertSame(document, sv.getDocument());
+        assertEquals("orange", document.getElementById("firstdiv").getAttribute("class"));
+    }
+
+    @Test
+    public void theTreeOfTheBrowserIsUsedInsteadOfParsingAgain() throws IOException {
+        StateVertexImpl sv = new StateVertexImpl(3, "test", HTML);
+        Document parsed = DomUtils.asDocument(HTML);
+
+        sv.cacheDocument(parsed);
+
+        assertSame(parsed, sv.getDocument());
+    }
 }
@@ -0,0 +1,54 @@
+package com.crawljax.di;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.Assume.assumeTrue;
+
+import com.crawljax.core.configuration.CrawljaxConfiguration;
+import com.crawljax.util.VirtualThreads;
+import com.google.inject.Guice;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.junit.Test;
+
+public class CoreModuleTest {
+
+    @Test
+    public void crawlTasksRunOnAPlatformThreadPoolByDefault() throws Exception {
+        ExecutorService executor = executorFor(CrawljaxConfiguration.builderFor("http://localhost").build());
+        try {
+            assertThat(executor, is(instanceOf(ThreadPoolExecutor.class)));
+            assertThat(executor.submit(() -> isVirtual(Thread.currentThread())).get(), is(false));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void crawlTasksRunOnVirtualThreadsWhenConfigured() throws Exception {
+        assumeTrue(VirtualThreads.isAvailable());
+        ExecutorService executor = executorFor(CrawljaxConfiguration.builderFor("http://localhost")
+                .setVirtualThreads(true)
+                .build());
+        try {
+            assertThat(executor.submit(() -> isVirtual(Thread.currentThread())).get(), is(true));
+            String name = executor.submit(() -> Thread.currentThread().getName()).get();
+            assertThat(name.startsWith("crawljax-"), is(true));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ExecutorService executorFor(CrawljaxConfiguration config) {
+        return Guice.createInjector(new CoreModule(config)).getInstance(ExecutorService.class);
+    }
+
+    private static boolean isVirtual(Thread thread) throws ReflectiveOperationException {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
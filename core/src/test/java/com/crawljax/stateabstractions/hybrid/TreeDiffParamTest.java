@@ -1,8 +1,17 @@
 package com.crawljax.stateabstractions.hybrid;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import com.crawljax.stateabstractions.dom.TreeDistancePrefilter;
+import com.crawljax.stateabstractions.dom.TreeSignature;
+import com.crawljax.stateabstractions.dom.apted.costmodel.StringUnitCostModel;
+import com.crawljax.stateabstractions.dom.apted.distance.APTED;
+import com.crawljax.stateabstractions.dom.apted.node.AptedNode;
+import com.crawljax.stateabstractions.dom.apted.node.NodeIndexer;
+import com.crawljax.stateabstractions.dom.apted.node.StringNodeData;
+import com.crawljax.stateabstractions.dom.apted.util.AptedUtils;
 import com.crawljax.util.DomUtils;
 import java.io.File;
 import java.io.IOException;
@@ -69,4 +78,52 @@ public class TreeDiffParamTest {
             assertTrue(removedNodes.get(0).getNodeName().equalsIgnoreCase(removedNode));
         }
     }
+
+    @Test
+    public void testIndexedTreeDistance() throws IOException {
+        String docString = FileUtils.readFileToString(new File("src/test/resources/crawls/" + state1));
+        NodeIndexer<StringNodeData, StringUnitCostModel> tree1 =
+                AptedUtils.getIndexedTree(DomUtils.asDocument(docString), false);
+
+        String docString2 = FileUtils.readFileToString(new File("src/test/resources/crawls/" + state2));
+        NodeIndexer<StringNodeData, StringUnitCostModel> tree2 =
+                AptedUtils.getIndexedTree(DomUtils.asDocument(docString2), false);
+
+        // The indexed trees are reused, so repeated comparisons should give the same distance.
+        for (int i = 0; i < 2; i++) {
+            APTED<StringUnitCostModel, StringNodeData> apted = new APTED<>(new StringUnitCostModel());
+            assertEquals(this.distance, apted.computeEditDistance(tree1, tree2), 0.0);
+            apted = new APTED<>(new StringUnitCostModel());
+            assertEquals(this.distance, apted.computeEditDistance(tree2, tree1), 0.0);
+        }
+    }
+
+    @Test
+    public void testLowerBoundsDoNotExceedDistance() throws IOException {
+        String docString = FileUtils.readFileToString(new File("src/test/resources/crawls/" + state1));
+        TreeSignature signature1 = TreeSignature.of(AptedUtils.getIndexedTree(DomUtils.asDocument(docString), false));
+
+        String docString2 = FileUtils.readFileToString(new File("src/test/resources/crawls/" + state2));
+        TreeSignature signature2 = TreeSignature.of(AptedUtils.getIndexedTree(DomUtils.asDocument(docString2), false));
+
+        assertTrue(signature1.sizeLowerBound(signature2) <= this.distance);
+        assertTrue(signature1.labelLowerBound(signature2) <= this.distance);
+        assertTrue(signature1.degreeLowerBound(signature2) <= this.distance);
+        assertFalse(new TreeDistancePrefilter().exceeds(signature1, signature2, this.distance));
+    }
+
+    @Test
+    public void testStructuralHashSeparatesDifferentTrees() throws IOException {
+        String docString = FileUtils.readFileToString(new File("src/test/resources/crawls/" + state1));
+        AptedNode<StringNodeData> tree1 = AptedUtils.getAptedTree(DomUtils.asDocument(docString), false);
+        AptedNode<StringNodeData> sameTree = AptedUtils.getAptedTree(DomUtils.asDocument(docString), false);
+
+        String docString2 = FileUtils.readFileToString(new File("src/test/resources/crawls/" + state2));
+        AptedNode<StringNodeData> tree2 = AptedUtils.getAptedTree(DomUtils.asDocument(docString2), false);
+
+        assertEquals(AptedUtils.getStructuralHash(tree1), AptedUtils.getStructuralHash(sameTree));
+        assertTrue(AptedUtils.isIsomorphic(tree1, sameTree));
+        assertTrue(AptedUtils.getStructuralHash(tree1) != AptedUtils.getStructuralHash(tree2));
+        assertFalse(AptedUtils.isIsomorphic(tree1, tree2));
+    }
 }
@@ -0,0 +1,77 @@
+package com.crawljax.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class AppendOnlyListTest {
+
+    @Test
+    public void elementsAreKeptInTheOrderTheyWereAppended() {
+        AppendOnlyList<Integer> list = new AppendOnlyList<>();
+        for (int i = 0; i < 1000; i++) {
+            list.add(i);
+        }
+
+        List<Integer> snapshot = list.snapshot();
+        assertThat(list.size(), is(1000));
+        assertThat(snapshot.size(), is(1000));
+        for (int i = 0; i < 1000; i++) {
+            assertThat(snapshot.get(i), is(i));
+        }
+    }
+
+    @Test
+    public void aSnapshotDoesNotSeeLaterElements() {
+        AppendOnlyList<String> list = new AppendOnlyList<>();
+        list.add("a");
+        List<String> snapshot = list.snapshot();
+
+        for (int i = 0; i < 100; i++) {
+            list.add("b" + i);
+        }
+
+        assertThat(snapshot.size(), is(1));
+        assertThat(snapshot.get(0), is("a"));
+        assertThat(list.snapshot().subList(snapshot.size(), list.size()).get(0), is("b0"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void aSnapshotEndsAtItsSize() {
+        AppendOnlyList<String> list = new AppendOnlyList<>();
+        list.add("a");
+        List<String> snapshot = list.snapshot();
+        list.add("b");
+
+        snapshot.get(1);
+    }
+
+    @Test
+    public void readersSeeCompleteSnapshotsWhileElementsAreAppended() throws InterruptedException {
+        AppendOnlyList<Integer> list = new AppendOnlyList<>();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            int seen = 0;
+            while (seen < 100_000) {
+                List<Integer> snapshot = list.snapshot();
+                for (int i = seen; i < snapshot.size(); i++) {
+                    if (snapshot.get(i) != i) {
+                        failure.set("Element " + i + " was " + snapshot.get(i));
+                        return;
+                    }
+                }
+                seen = snapshot.size();
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 100_000; i++) {
+            list.add(i);
+        }
+        reader.join();
+
+        assertThat(failure.get(), is((String) null));
+    }
+}
@@ -541,4 +541,19 @@ public class DomUtilsTest {
         assertTrue("Wrong return attributes", attributeMap.get("id").containsAll(expecteds));
         //		assertArrayEquals("wrong return attribute values", expecteds, actuals);
     }
+
+    @Test
+    public void stripDocumentRemovesScriptsAndFilteredAttributes() throws IOException {
+        String html = "<html><head><script>var a = 1;</script></head><body>"
+                + "<div id='first' closure_hashcode='12' class='x'>text<script src='a.js'></script></div>"
+                + "<span jquery123='4'>span</span></body></html>";
+        Document dom = DomUtils.stripDocument(DomUtils.asDocument(html), Arrays.asList("closure_hashcode", "JQUERY123"));
+
+        assertThat(dom.getElementsByTagName("script").getLength(), is(0));
+        Element div = dom.getElementById("first");
+        assertThat(div.hasAttribute("closure_hashcode"), is(false));
+        assertThat(div.getAttribute("class"), is("x"));
+        assertThat(((Element) dom.getElementsByTagName("span").item(0)).hasAttribute("jquery123"), is(false));
+        assertThat(div.getTextContent(), is("text"));
+    }
 }
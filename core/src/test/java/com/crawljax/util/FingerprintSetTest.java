@@ -0,0 +1,91 @@
+package com.crawljax.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+public class FingerprintSetTest {
+
+    @Test
+    public void fingerprintsAreAddedOnce() {
+        FingerprintSet set = new FingerprintSet();
+        HashCode fingerprint = FingerprintSet.fingerprint("A: id=menu");
+
+        assertThat(set.contains(fingerprint), is(false));
+        assertThat(set.add(fingerprint), is(true));
+        assertThat(set.add(fingerprint), is(false));
+        assertThat(set.contains(fingerprint), is(true));
+        assertThat(set.contains(FingerprintSet.fingerprint("A: id=home")), is(false));
+    }
+
+    @Test
+    public void theSetGrows() {
+        FingerprintSet set = new FingerprintSet();
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(set.add(FingerprintSet.fingerprint("element " + i)), is(true));
+        }
+
+        assertThat(set.size(), is(100_000));
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(set.contains(FingerprintSet.fingerprint("element " + i)), is(true));
+        }
+        assertThat(set.contains(FingerprintSet.fingerprint("element " + 100_000)), is(false));
+    }
+
+    @Test
+    public void theZeroFingerprintIsAFingerprintToo() {
+        FingerprintSet set = new FingerprintSet();
+        HashCode zero = HashCode.fromBytes(new byte[16]);
+
+        assertThat(set.add(zero), is(true));
+        assertThat(set.contains(zero), is(true));
+        assertThat(set.size(), is(1));
+    }
+
+    @Test
+    public void onlyOneThreadAddsAFingerprint() throws InterruptedException {
+        FingerprintSet set = new FingerprintSet();
+        AtomicInteger added = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    if (set.add(FingerprintSet.fingerprint("element " + i))) {
+                        added.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(added.get(), is(10_000));
+        assertThat(set.size(), is(10_000));
+    }
+
+    @Test
+    public void attributeFingerprintsMatchTheAttributeString() throws IOException {
+        Document dom =
+                DomUtils.asDocument("<html><body><a id=\"menu\" atusa=\"x\" title=\"Home \">Home</a></body></html>");
+        Element element = dom.getElementById("menu");
+
+        for (ImmutableSet<String> exclude : ImmutableSet.of(ImmutableSet.<String>of(), ImmutableSet.of("atusa"))) {
+            HashCode expected = FingerprintSet.fingerprint(DomUtils.getElementAttributes(element, exclude));
+            HashCode actual = DomUtils.putElementAttributes(FingerprintSet.newFingerprint(), element, exclude)
+                    .hash();
+            assertThat(actual, is(expected));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.crawljax.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImageSinkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesAllImagesBeforeCompletion() throws Exception {
+        ImageSink sink = new ImageSink(2, 2);
+        BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+        File[] targets = new File[5];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = new File(folder.getRoot(), "image" + i + ".png");
+            sink.write(image, "PNG", targets[i]);
+        }
+        sink.awaitCompletion();
+
+        assertThat(sink.getQueueDepth(), is(0));
+        for (File target : targets) {
+            assertThat(target.exists(), is(true));
+            assertThat(ImageIO.read(target).getWidth(), is(10));
+        }
+    }
+
+    @Test
+    public void queueDepthCountsPendingJobs() throws Exception {
+        ImageSink sink = new ImageSink(1, 4);
+        CountDownLatch release = new CountDownLatch(1);
+        sink.submit("blocked", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        sink.submit("queued", () -> {});
+
+        assertThat(sink.getQueueDepth(), is(2));
+
+        release.countDown();
+        sink.awaitCompletion();
+        assertThat(sink.getQueueDepth(), is(0));
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void failedJobsAreReportedThroughTheFuture() throws Exception {
+        ImageSink sink = new ImageSink(1, 1);
+        Future<?> result = sink.submit("failing", () -> {
+            throw new IOException("disk full");
+        });
+        sink.awaitCompletion();
+        assertThat(sink.getQueueDepth(), is(0));
+        result.get();
+    }
+}
@@ -2,6 +2,7 @@ package com.crawljax.util;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
@@ -9,6 +10,7 @@ import java.io.IOException;
 import javax.xml.xpath.XPathExpressionException;
 import org.junit.Test;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
 /**
@@ -274,4 +276,38 @@ public class XPathHelperTest {
         NodeList nodes = XPathHelper.evaluateXpathExpression(html, "//*[@evlist]");
         System.out.println(nodes.getLength());
     }
+
+    @Test
+    public void compiledExpressionsAreReused() throws XPathExpressionException {
+        XPathExpressionCache cache = new XPathExpressionCache(null, 2);
+        assertThat(cache.get("//A"), is(sameInstance(cache.get("//A"))));
+        assertThat(cache.getMissCount(), is(1L));
+        assertThat(cache.getHitCount(), is(1L));
+
+        // The least recently used expression is evicted.
+        cache.get("//B");
+        cache.get("//C");
+        cache.get("//A");
+        assertThat(cache.getMissCount(), is(4L));
+    }
+
+    @Test
+    public void cachedChildXPathsEqualComputedXPaths() throws IOException {
+        String html = "<body><div><p>a</p>text<p>b</p><span></span><p>c</p></div><div><p>d</p></div></body>";
+        Document computed = DomUtils.asDocument(html);
+        Document cached = DomUtils.asDocument(html);
+
+        NodeList cachedElements = cached.getElementsByTagName("*");
+        for (int i = 0; i < cachedElements.getLength(); i++) {
+            XPathHelper.cacheChildXPathExpressions((Element) cachedElements.item(i));
+        }
+
+        NodeList computedElements = computed.getElementsByTagName("*");
+        assertThat(cachedElements.getLength(), is(computedElements.getLength()));
+        for (int i = 0; i < computedElements.getLength(); i++) {
+            assertEquals(
+                    XPathHelper.getXPathExpression(computedElements.item(i)),
+                    XPathHelper.getXPathExpression(cachedElements.item(i)));
+        }
+    }
 }
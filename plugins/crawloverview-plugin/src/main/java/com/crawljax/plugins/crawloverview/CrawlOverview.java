@@ -2,6 +2,7 @@ package com.crawljax.plugins.crawloverview;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import com.crawljax.browser.ElementBoundingBox;
 import com.crawljax.browser.EmbeddedBrowser;
 import com.crawljax.core.CandidateElement;
 import com.crawljax.core.CrawlSession;
@@ -17,6 +18,7 @@ import com.crawljax.core.plugin.PostCrawlingPlugin;
 import com.crawljax.core.plugin.PreCrawlingPlugin;
 import com.crawljax.core.plugin.PreStateCrawlingPlugin;
 import com.crawljax.core.state.Eventable;
+import com.crawljax.core.state.Identification;
 import com.crawljax.core.state.StateFlowGraph;
 import com.crawljax.core.state.StateVertex;
 import com.crawljax.plugins.crawloverview.model.CandidateElementPosition;
@@ -25,6 +27,7 @@ import com.crawljax.plugins.crawloverview.model.State;
 import com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl;
 import com.crawljax.stateabstractions.visual.ColorHistogramStateVertexImpl;
 import com.crawljax.stateabstractions.visual.imagehashes.DHashStateVertexImpl;
+import com.crawljax.util.ImageSink;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
@@ -39,6 +42,7 @@ import java.util.TreeSet;
 import java.util.concurrent.ConcurrentMap;
 import org.openqa.selenium.Dimension;
 import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
 import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.slf4j.Logger;
@@ -128,17 +132,23 @@ public class CrawlOverview
             File jpg = outputBuilder.newScreenShotFile(name);
             File thumb = outputBuilder.newThumbNail(name);
             try {
-                // byte[] screenshot = browser.getScreenShot();
-                BufferedImage screenshot = browser.getScreenShotAsBufferedImage(500);
-                ImageWriter.writeScreenShotAndThumbnail(screenshot, jpg, thumb);
+                BufferedImage screenshot = vertex instanceof HybridStateVertexImpl
+                                && ((HybridStateVertexImpl) vertex).getImage() != null
+                        ? ((HybridStateVertexImpl) vertex).getImage()
+                        : browser.getScreenShotAsBufferedImage(500);
+                ImageSink.shared()
+                        .submit(name, () -> ImageWriter.writeScreenShotAndThumbnail(screenshot, jpg, thumb));
             } catch (CrawljaxException | WebDriverException e) {
                 LOG.warn(
                         "Screenshots are not supported or not functioning for {}. Exception message: {}",
                         browser,
                         e.getMessage());
                 LOG.debug("Screenshot not made because {}", e.getMessage(), e);
+            } catch (InterruptedException e) {
+                LOG.debug("Interrupted while queueing the screenshot of {}", name);
+                Thread.currentThread().interrupt();
             }
-            LOG.trace("Screenshot saved");
+            LOG.trace("Screenshot queued");
         }
     }
 
@@ -152,14 +162,23 @@ public class CrawlOverview
         LOG.debug("preStateCrawling");
         List<CandidateElementPosition> newElements = Lists.newLinkedList();
         LOG.info("Prestate found new state {} with {} candidates", state.getName(), candidateElements.size());
+        EmbeddedBrowser browser = context.getBrowser();
+        List<String> xpaths = Lists.newArrayList();
         for (CandidateElement element : candidateElements) {
-            try {
-                WebElement webElement = getWebElement(context.getBrowser(), element);
-                if (webElement != null) {
-                    newElements.add(findElement(webElement, element));
-                }
-            } catch (WebDriverException e) {
-                LOG.info("Could not get position for {}", element, e);
+            if (!Strings.isNullOrEmpty(element.getRelatedFrame())) {
+                warnUserForInvisibleElements();
+            } else if (element.getIdentification().getHow() == Identification.How.xpath) {
+                xpaths.add(element.getIdentification().getValue());
+            } else {
+                addPositionOfWebElement(browser, element, newElements);
+            }
+        }
+
+        for (ElementBoundingBox boundingBox : browser.getBoundingBoxes(xpaths)) {
+            if (boundingBox.isFound()) {
+                newElements.add(findElement(boundingBox));
+            } else {
+                LOG.info("Could not get position for {}: {}", boundingBox.getXpath(), boundingBox.getError());
             }
         }
 
@@ -168,17 +187,15 @@ public class CrawlOverview
         LOG.trace("preState finished, elements added to state");
     }
 
-    private WebElement getWebElement(EmbeddedBrowser browser, CandidateElement element) {
+    private void addPositionOfWebElement(
+            EmbeddedBrowser browser, CandidateElement element, List<CandidateElementPosition> newElements) {
         try {
-            if (!Strings.isNullOrEmpty(element.getRelatedFrame())) {
-                warnUserForInvisibleElements();
-                return null;
-            } else {
-                return browser.getWebElement(element.getIdentification());
+            WebElement webElement = browser.getWebElement(element.getIdentification());
+            if (webElement != null) {
+                newElements.add(findElement(webElement, element));
             }
         } catch (WebDriverException e) {
-            LOG.info("Could not locate element for positioning {}", element);
-            return null;
+            LOG.info("Could not get position for {}", element, e);
         }
     }
 
@@ -200,6 +217,16 @@ public class CrawlOverview
         return renderedCandidateElement;
     }
 
+    private CandidateElementPosition findElement(ElementBoundingBox boundingBox) {
+        Rectangle rectangle = boundingBox.getRectangle();
+        CandidateElementPosition renderedCandidateElement = new CandidateElementPosition(
+                boundingBox.getXpath(), rectangle.getPoint(), rectangle.getDimension());
+        if (rectangle.getY() < 0) {
+            LOG.warn("Weird positioning {} for {}", rectangle.getPoint(), renderedCandidateElement.getXpath());
+        }
+        return renderedCandidateElement;
+    }
+
     /**
      * Generated the report.
      */
@@ -213,6 +240,13 @@ public class CrawlOverview
 
         result = outModelCache.close(session, exitStatus);
 
+        try {
+            ImageSink.shared().awaitCompletion();
+        } catch (InterruptedException e) {
+            LOG.warn("Interrupted while waiting for the screenshots to be written");
+            Thread.currentThread().interrupt();
+        }
+
         outputBuilder.write(result, session.getConfig());
         StateWriter writer = new StateWriter(outputBuilder, sfg, ImmutableMap.copyOf(visitedStates));
         for (State state : result.getStates().values()) {
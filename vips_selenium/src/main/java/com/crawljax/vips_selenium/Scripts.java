@@ -31,49 +31,33 @@ public class Scripts {
             + "    return !!( elem.offsetWidth || elem.offsetHeight || elem.getClientRects().length );\n"
             + "}\n"
             + "\n"
-            + "function computeContentRect(a){\n"
-            + "	var map1 = getComputedStyle(a);\n"
-            + "	var padding_left = CSSUnitValue.parse(map1.getPropertyValue('padding-left')).value;\n"
-            + "	var padding_right = CSSUnitValue.parse(map1.getPropertyValue('padding-right')).value;\n"
-            + "	var border_left_width = CSSUnitValue.parse(map1.getPropertyValue('border-left-width')).value;\n"
-            + "	var border_right_width = CSSUnitValue.parse(map1.getPropertyValue('border-right-width')).value;\n"
-            + "	var padding_top = CSSUnitValue.parse(map1.getPropertyValue('padding-top')).value;\n"
-            + "	var padding_bottom = CSSUnitValue.parse(map1.getPropertyValue('padding-bottom')).value ;\n"
-            + "	var border_top_width = CSSUnitValue.parse(map1.getPropertyValue('border-top-width')).value;\n"
-            + "	var border_bottom_width = CSSUnitValue.parse(map1.getPropertyValue('border-bottom-width')).value ;\n"
-            + "	var width = a.getBoundingClientRect().width -  (padding_left + padding_right + border_left_width + border_right_width );\n"
-            + "	var height = a.getBoundingClientRect().height - (padding_top + padding_bottom  + border_top_width + border_bottom_width);\n"
-            + "	var x = scrollX + a.getBoundingClientRect().x + (padding_left +  border_left_width);\n"
-            + "	var y = scrollY + a.getBoundingClientRect().y + (padding_top + border_top_width);\n"
-            + "	var returnString = { x : Math.round(x), y:  Math.round(y), width:  Math.round(width) , height:  Math.round(height) };\n"
-            + "	// console.log(returnString);\n"
-            + "	return returnString;\n"
+            + "function getPixels(style, property) {\n"
+            + "	var value = parseFloat(style.getPropertyValue(property));\n"
+            + "	return isNaN(value) ? 0 : value;\n"
+            + "}\n"
+            + "\n"
+            + "function computeContentRect(a, style){\n"
+            + "	var rect = a.getBoundingClientRect();\n"
+            + "	var left = getPixels(style, 'padding-left') + getPixels(style, 'border-left-width');\n"
+            + "	var right = getPixels(style, 'padding-right') + getPixels(style, 'border-right-width');\n"
+            + "	var top = getPixels(style, 'padding-top') + getPixels(style, 'border-top-width');\n"
+            + "	var bottom = getPixels(style, 'padding-bottom') + getPixels(style, 'border-bottom-width');\n"
+            + "	return { x : Math.round(scrollX + rect.x + left), y : Math.round(scrollY + rect.y + top),\n"
+            + "		width : Math.round(rect.width - (left + right)), height : Math.round(rect.height - (top + bottom)) };\n"
             + "};\n"
             + "\n"
             + "function getVipsAttributes(xpath){\n"
-            + "	// a= $x(xpath)[0];\n"
-            + "	result = document.evaluate(xpath, document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null);\n"
-            + "	a = result.singleNodeValue;\n"
+            + "	var a = document.evaluate(xpath, document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;\n"
             + "	var returnMap = {};\n"
-            + "	if(a==null){\n"
+            + "	if(a==null || !(a instanceof Element)){\n"
             + "		return returnMap;\n"
             + "	}\n"
-            + "	var map1 = a.computedStyleMap();\n"
-            + "	returnMap['rectangle'] = computeContentRect(a);\n"
-            + "	var fontSize=map1.get('font-size').value;\n"
-            + "	if(!isNaN(fontSize)){\n"
-            + "		returnMap['fontsize'] = Math.round(fontSize);\n"
-            + "	}else{\n"
-            + "		returnMap['fontsize'] = 0;\n"
-            + "	}\n"
-            + "\n"
-            + "	var fontWeight = map1.get('font-weight').value;\n"
-            + "	if(!isNaN(fontSize)){\n"
-            + "		returnMap['fontweight'] = Math.round(fontWeight);\n"
-            + "	}else{\n"
-            + "		returnMap['fontweight'] = 0;\n"
-            + "	}\n"
-            + "\n"
+            + "	var style = getComputedStyle(a);\n"
+            + "	returnMap['rectangle'] = computeContentRect(a, style);\n"
+            + "	var fontSize = parseFloat(style.fontSize);\n"
+            + "	returnMap['fontsize'] = isNaN(fontSize) ? 0 : Math.round(fontSize);\n"
+            + "	var fontWeight = parseFloat(style.fontWeight);\n"
+            + "	returnMap['fontweight'] = isNaN(fontWeight) ? 0 : Math.round(fontWeight);\n"
             + "	returnMap['bgcolor'] = a.bgColor;\n"
             + "	returnMap['isdisplayed'] = getDisplayed(a);\n"
             + "	return returnMap;\n"
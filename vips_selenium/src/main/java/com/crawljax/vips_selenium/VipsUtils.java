@@ -8,14 +8,15 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import javax.imageio.ImageIO;
-import javax.xml.xpath.XPathExpressionException;
 import org.apache.commons.io.FilenameUtils;
 import org.openqa.selenium.By;
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.slf4j.Logger;
@@ -906,10 +907,54 @@ public class VipsUtils {
             script = Scripts.VIPS_SCIRPT;
         }
 
-        List<String> xpaths = getXpathList(dom.getElementsByTagName("body").item(0));
+        Map<String, Node> elements = new LinkedHashMap<>();
+        collectElements(dom.getElementsByTagName("body").item(0), elements);
+        List<String> xpaths = new ArrayList<>(elements.keySet());
         LOG.info("Sending {} xpaths", xpaths.size());
         LOG.debug("{}", xpaths);
         Object attributeString = null;
+        try {
+            attributeString = getAttributesFromBrowser(xpaths, script, driver, USE_CDP);
+        } catch (WebDriverException e) {
+            LOG.warn("Could not get the browser attributes in one pass, falling back to single elements: {}",
+                    e.getMessage());
+            return;
+        }
+
+        Map<String, VipsBrowserAttributes> attributeMap = parseBrowserAttributes(attributeString);
+        if (attributeMap.isEmpty() && !elements.isEmpty()) {
+            LOG.warn("The browser returned no attributes, falling back to single elements");
+            return;
+        }
+
+        /* Elements the browser could not resolve are not displayed, so no element needs the driver later. */
+        for (Map.Entry<String, Node> element : elements.entrySet()) {
+            VipsBrowserAttributes attributes = attributeMap.get(element.getKey());
+            if (attributes == null) {
+                attributes = new VipsBrowserAttributes(new Rectangle(-1, -1, -1, -1), 0, 0, null, false, null);
+            }
+            setBrowserAttributes(element.getValue(), attributes);
+        }
+
+        setPopulated(dom);
+    }
+
+    /**
+     * Collects the elements below the given node by their XPath expression, in document order.
+     */
+    private static void collectElements(Node node, Map<String, Node> elements) {
+        if (node == null || node.getNodeName().startsWith("#")) {
+            return;
+        }
+        elements.put(XPathHelper.getXPathExpression(node), node);
+        for (Node child : getChildren(node)) {
+            collectElements(child, elements);
+        }
+    }
+
+    private static Object getAttributesFromBrowser(
+            List<String> xpaths, String script, WebDriver driver, boolean USE_CDP) {
+        Object attributeString;
         if (USE_CDP) {
             Gson gson = new Gson();
             String xpathString = gson.toJson(xpaths);
@@ -931,8 +976,12 @@ public class VipsUtils {
             String xpathString = gson.toJson(xpaths);
             String executeScript = script + String.format(COMPUTEDSTYLESHEET_ALL, xpathString);
             attributeString = ((JavascriptExecutor) driver).executeScript(executeScript);
-            LOG.debug(attributeString.toString());
+            LOG.debug("{}", attributeString);
         }
+        return attributeString;
+    }
+
+    private static Map<String, VipsBrowserAttributes> parseBrowserAttributes(Object attributeString) {
 
         //		Gson gson = new Gson();
         //		List<Map<String, VipsBrowserAttributes>> attributes = gson.fromJson( attributeString, new
@@ -962,19 +1011,19 @@ public class VipsUtils {
                         Rectangle rect = null;
                         if (rectangle instanceof Map) {
                             rect = new Rectangle(
-                                    (int) (long) ((Map) rectangle).get("x"),
-                                    (int) (long) ((Map) rectangle).get("y"),
-                                    (int) (long) ((Map) rectangle).get("width"),
-                                    (int) (long) ((Map) rectangle).get("height"));
+                                    intValue(((Map) rectangle).get("x")),
+                                    intValue(((Map) rectangle).get("y")),
+                                    intValue(((Map) rectangle).get("width")),
+                                    intValue(((Map) rectangle).get("height")));
                             LOG.debug(rect.toString());
                         } else {
                             rect = new Rectangle(-1, -1, -1, -1);
                         }
 
-                        int fontSize = (int) (long) ((Map) attributes).get(FONTSIZE);
-                        int fontWeight = (int) (long) ((Map) attributes).get(FONTWEIGHT);
+                        int fontSize = intValue(((Map) attributes).get(FONTSIZE));
+                        int fontWeight = intValue(((Map) attributes).get(FONTWEIGHT));
                         String bgColor = (String) ((Map) attributes).get(BGCOLOR);
-                        boolean isDisplayed = (boolean) ((Map) attributes).get(ISDISPLAYED);
+                        boolean isDisplayed = Boolean.TRUE.equals(((Map) attributes).get(ISDISPLAYED));
                         String eventListeners = (String) ((Map) attributes).get("eventListeners");
                         LOG.debug("rectangle {}", rectangle);
                         LOG.debug("font size {}", fontSize);
@@ -990,23 +1039,11 @@ public class VipsUtils {
             }
         }
 
-        for (String xpath : xpaths) {
-            try {
-                NodeList nodes = XPathHelper.evaluateXpathExpression(dom, xpath);
-                if (nodes.getLength() == 1) {
-                    Node vipsBlock = nodes.item(0);
-                    // Apply attributes
-                    if (attributeMap.containsKey(xpath)) {
-                        setBrowserAttributes(vipsBlock, attributeMap.get(xpath));
-                    }
-                }
-            } catch (XPathExpressionException e) {
-                LOG.error("Error while setting browser attribtues to document");
-                LOG.error(e.getMessage());
-            }
-        }
+        return attributeMap;
+    }
 
-        setPopulated(dom);
+    private static int intValue(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : 0;
     }
 
     private static void setBrowserAttributes(Node vipsBlock, VipsBrowserAttributes browserAttributes) {